@@ -0,0 +1,120 @@
+package org.component;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.component.AttachmentExchanges.process;
+import static org.component.AttachmentExchanges.xlsx;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveAttachmentTest {
+
+    private static final String CSV = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+            + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n"
+            + "2,Mary Major,Jane Roe,2024-01-04,2024-01-05,4\n";
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    void setUp() {
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+    }
+
+    @Test
+    void testParsesZipAndGzipAttachments(@TempDir Path dir) throws Exception {
+        byte[] zip = zip("leave.csv", CSV.getBytes(StandardCharsets.UTF_8), "readme.txt", "see the CSV".getBytes(StandardCharsets.UTF_8),
+                "__MACOSX/._leave.csv", new byte[]{0, 5, 22, 7}, "sheets/leave.xlsx", xlsx(CSV));
+
+        for (String uri : new String[]{"emailCsvProcessor:test", "emailCsvProcessor:spool?spoolThreshold=16&spoolDirectory=" + dir}) {
+            LeaveSubmission submission = process(camelContext, uri, "leave.zip", zip).getIn().getBody(LeaveSubmission.class);
+            assertEquals(4, submission.leaveDetails().size(), uri);
+            assertEquals("Mary Major", submission.leaveDetails().get(3).displayName(), uri);
+            assertEquals(2, process(camelContext, uri, "leave.csv.gz", gzip(CSV.getBytes(StandardCharsets.UTF_8)))
+                    .getIn().getBody(LeaveSubmission.class).leaveDetails().size(), uri);
+        }
+    }
+
+    @Test
+    void testRejectsInvalidArchives() throws Exception {
+        Exchange notGzip = process(camelContext, "emailCsvProcessor:test", "leave.gz", CSV.getBytes(StandardCharsets.UTF_8));
+        assertEquals("Please attach a valid GZIP file: Error reading GZIP archive!", notGzip.getIn().getHeader("ErrorReason"));
+
+        Exchange noCsv = process(camelContext, "emailCsvProcessor:test", "leave.zip", zip("readme.txt", new byte[10]));
+        assertEquals("Please attach a valid ZIP file: The archive contains no CSV or XLSX file", noCsv.getIn().getHeader("ErrorReason"));
+    }
+
+    @Test
+    void testAcceptsOnlyGzippedCsvFiles() throws Exception {
+        byte[] csv = gzip(CSV.getBytes(StandardCharsets.UTF_8));
+        for (String fileName : new String[]{"leave.csv.gz", "LEAVE.CSV.GZ", "leave.gz"}) {
+            assertEquals(2, process(camelContext, "emailCsvProcessor:test", fileName, csv).getIn().getBody(LeaveSubmission.class).leaveDetails().size(), fileName);
+        }
+
+        Exchange xlsx = process(camelContext, "emailCsvProcessor:test", "leave.xlsx.gz", gzip(xlsx(CSV)));
+        assertNull(xlsx.getIn().getBody());
+        assertEquals("Please attach a valid GZIP file: Unsupported compressed file leave.xlsx.gz, only gzipped CSV files are accepted",
+                xlsx.getIn().getHeader("ErrorReason"));
+        assertEquals("Please attach a valid GZIP file: Unsupported compressed file leave.txt.gz, only gzipped CSV files are accepted",
+                process(camelContext, "emailCsvProcessor:test", "leave.txt.gz", csv).getIn().getHeader("ErrorReason"));
+    }
+
+    @Test
+    void testRejectsArchivesOverTheLimits() throws Exception {
+        byte[] csv = CSV.getBytes(StandardCharsets.UTF_8);
+        byte[] twoEntries = zip("a.csv", csv, "b.csv", csv);
+        assertEquals("Please attach a valid ZIP file: Archive exceeds the maximum of 1 entries",
+                process(camelContext, "emailCsvProcessor:test?maxArchiveEntries=1", "leave.zip", twoEntries).getIn().getHeader("ErrorReason"));
+        assertEquals("Please attach a valid ZIP file: Archive exceeds the maximum of 200 decompressed bytes",
+                process(camelContext, "emailCsvProcessor:test?maxDecompressedBytes=200", "leave.zip", twoEntries).getIn().getHeader("ErrorReason"));
+        assertEquals(4, process(camelContext, "emailCsvProcessor:test?maxArchiveEntries=2&maxDecompressedBytes=" + 2 * csv.length, "leave.zip", twoEntries)
+                .getIn().getBody(LeaveSubmission.class).leaveDetails().size());
+
+        StringBuilder rows = new StringBuilder(CSV);
+        while (rows.length() < 4 * 1024 * 1024) {
+            rows.append("1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n");
+        }
+        byte[] bomb = gzip(rows.toString().getBytes(StandardCharsets.UTF_8));
+        Exchange exchange = process(camelContext, "emailCsvProcessor:test?metricsEnabled=true", "leave.csv.gz", bomb);
+        assertNull(exchange.getIn().getBody());
+        assertEquals("Please attach a valid GZIP file: Archive exceeds the maximum compression ratio of 100", exchange.getIn().getHeader("ErrorReason"));
+        assertNotNull(process(camelContext, "emailCsvProcessor:test?maxCompressionRatio=0", "leave.csv.gz", bomb).getIn().getBody(LeaveSubmission.class));
+    }
+
+    private static byte[] zip(Object... entries) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry((String) entries[i]));
+                zip.write((byte[]) entries[i + 1]);
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] content) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,61 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.support.DefaultExchange;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+
+/**
+ * Builds the emails the attachment tests send through the producer.
+ */
+final class AttachmentExchanges {
+
+    private AttachmentExchanges() {
+    }
+
+    /**
+     * Sends an email from john.doe@example.com with the one attachment to {@code uri}.
+     */
+    static Exchange process(CamelContext camelContext, String uri, String fileName, byte[] content) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", "john.doe@example.com");
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(content, "application/octet-stream");
+        dataSource.setName(fileName);
+        in.addAttachment(fileName, new DataHandler(dataSource));
+        exchange.setIn(in);
+
+        camelContext.createProducerTemplate().send(uri, exchange);
+        return exchange;
+    }
+
+    /**
+     * A workbook with the lines of {@code csv} as string cells on its only sheet.
+     */
+    static byte[] xlsx(String csv) throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet();
+            String[] lines = csv.split("\n");
+            for (int r = 0; r < lines.length; r++) {
+                Row row = sheet.createRow(r);
+                String[] values = lines[r].split(",");
+                for (int c = 0; c < values.length; c++) {
+                    row.createCell(c).setCellValue(values[c]);
+                }
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+}
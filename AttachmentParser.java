@@ -0,0 +1,25 @@
+package org.component;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Parses the leave rows of one file type.
+ * <p>
+ * The producer creates the parser of a file type the first time an attachment of that type arrives, so OpenCSV and
+ * POI are only loaded and initialized by the deployments that receive such attachments. Each implementation
+ * validates the header and the rows and reports them with {@link EmailCsvProcessorProducer.InvalidRowException}.
+ */
+interface AttachmentParser {
+
+    /**
+     * Parses the attachment and hands every data row to {@code sink}, closing {@code inputStream}.
+     */
+    void parse(InputStream inputStream, Consumer<LeaveDetail> sink) throws Exception;
+
+    /**
+     * Parses an attachment spooled to disk, reading it from the file rather than back onto the heap.
+     */
+    void parse(Path file, Consumer<LeaveDetail> sink) throws Exception;
+}
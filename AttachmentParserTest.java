@@ -0,0 +1,164 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentParserTest {
+
+    private static final String CSV = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+            + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n";
+
+    @Test
+    void testLoadsTheLibraryOfAFormatOnItsFirstAttachment() throws Exception {
+        try (IsolatedClassLoader loader = new IsolatedClassLoader()) {
+            assertEquals(1, run(loader, CsvEmail.class));
+            assertFalse(loader.isLoaded("org.apache.poi.ss.usermodel.Workbook"));
+            assertFalse(loader.isLoaded("org.apache.poi.openxml4j.opc.OPCPackage"));
+            assertFalse(loader.isLoaded("com.opencsv.CSVReader"));
+
+            assertEquals(1, run(loader, XlsxEmail.class));
+            assertTrue(loader.isLoaded("org.apache.poi.openxml4j.opc.OPCPackage"));
+            assertFalse(loader.isLoaded("com.opencsv.CSVReader"));
+        }
+    }
+
+    @Test
+    void testParsesAWorkbookWrittenWithoutPoi() throws Exception {
+        assertEquals(1, new XlsxEmail().call());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object run(IsolatedClassLoader loader, Class<?> email) throws Exception {
+        // Camel finds its services through the context class loader
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            return ((Callable<Object>) loader.loadClass(email.getName()).getDeclaredConstructor().newInstance()).call();
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    /**
+     * Loads the component, Camel and every library again from the class path, sharing only the JDK.
+     */
+    private static final class IsolatedClassLoader extends URLClassLoader {
+
+        IsolatedClassLoader() throws Exception {
+            super(classPath(), ClassLoader.getPlatformClassLoader());
+        }
+
+        boolean isLoaded(String name) {
+            return findLoadedClass(name) != null;
+        }
+
+        private static URL[] classPath() throws Exception {
+            String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+            URL[] urls = new URL[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                urls[i] = new File(entries[i]).toURI().toURL();
+            }
+            return urls;
+        }
+    }
+
+    public static class CsvEmail implements Callable<Object> {
+
+        @Override
+        public Object call() throws Exception {
+            return rowCount("leave.csv", CSV.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public static class XlsxEmail implements Callable<Object> {
+
+        @Override
+        public Object call() throws Exception {
+            return rowCount("leave.xlsx", inlineStringWorkbook(CSV));
+        }
+    }
+
+    private static Object rowCount(String fileName, byte[] content) throws Exception {
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+        try {
+            Exchange exchange = new DefaultExchange(camelContext);
+            AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+            in.setHeader("From", "john.doe@example.com");
+            in.setHeader("Subject", "Company X");
+            in.setHeader("CamelMailMessageReceivedDate", new Date());
+            ByteArrayDataSource dataSource = new ByteArrayDataSource(content, "application/octet-stream");
+            dataSource.setName(fileName);
+            in.addAttachment(fileName, new DataHandler(dataSource));
+            exchange.setIn(in);
+            camelContext.createProducerTemplate().send("emailCsvProcessor:lazy", exchange);
+            assertNull(exchange.getIn().getHeader("ErrorReason"));
+            return exchange.getIn().getBody(LeaveSubmission.class).leaveDetails().size();
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    /**
+     * The smallest workbook the parsers accept, holding the lines of {@code csv} as inline strings, written with
+     * {@code java.util.zip} so POI is not loaded to create it.
+     */
+    static byte[] inlineStringWorkbook(String csv) throws Exception {
+        StringBuilder rows = new StringBuilder();
+        String[] lines = csv.split("\n");
+        for (int r = 0; r < lines.length; r++) {
+            rows.append("<row r=\"").append(r + 1).append("\">");
+            for (String value : lines[r].split(",")) {
+                rows.append("<c t=\"inlineStr\"><is><t>").append(value).append("</t></is></c>");
+            }
+            rows.append("</row>");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            entry(zip, "[Content_Types].xml", "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                    + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                    + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                    + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                    + "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+                    + "</Types>");
+            entry(zip, "_rels/.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                    + "</Relationships>");
+            entry(zip, "xl/workbook.xml", "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+                    + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+                    + "<sheets><sheet name=\"Leave\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+            entry(zip, "xl/_rels/workbook.xml.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+                    + "</Relationships>");
+            entry(zip, "xl/worksheets/sheet1.xml", "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                    + "<sheetData>" + rows + "</sheetData></worksheet>");
+        }
+        return out.toByteArray();
+    }
+
+    private static void entry(ZipOutputStream zip, String name, String content) throws Exception {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
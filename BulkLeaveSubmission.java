@@ -0,0 +1,80 @@
+package org.component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * One bulk submission holding the leave records of many emails, built by {@link LeaveAggregator}.
+ * <p>
+ * Every record carries the requester of the email it came from. The requester is shared by all records of an
+ * email, so it is only copied into the JSON by {@link Serializer}, never in memory.
+ */
+@JsonSerialize(using = BulkLeaveSubmission.Serializer.class)
+public record BulkLeaveSubmission(List<Entry> records) {
+
+    /**
+     * The sender metadata of one email.
+     */
+    public record Requester(String name, String email, String company, String createOn) {
+    }
+
+    public record Entry(Requester requester, LeaveDetail leaveDetail) {
+
+        // the field names, punctuation, fixed dates and other constants of one serialized record
+        private static final int FIXED_SIZE = 320;
+
+        /**
+         * Rough size of the record in the JSON, used for the size limit of an aggregated submission.
+         */
+        long estimatedSize() {
+            return FIXED_SIZE + requester.name().length() + requester.email().length() + requester.company().length()
+                    + 2L * leaveDetail.displayName().length() + leaveDetail.manager().length();
+        }
+    }
+
+    public static class Serializer extends StdSerializer<BulkLeaveSubmission> {
+        private static final SerializedString FORMIO_FORM_ID = new SerializedString("_formio_formId");
+        private static final SerializedString RECORDS = new SerializedString("records");
+        private static final SerializedString REQUESTER_NAME = new SerializedString("requester_name");
+        private static final SerializedString REQUESTER_EMAIL = new SerializedString("requester_email");
+        private static final SerializedString REQUESTER_COMPANY = new SerializedString("requesterCompany");
+        private static final SerializedString CREATE_ON = new SerializedString("createOn");
+        private static final SerializedString LEAVE_DETAIL = new SerializedString("leave_detail");
+
+        public Serializer() {
+            super(BulkLeaveSubmission.class);
+        }
+
+        @Override
+        public void serialize(BulkLeaveSubmission value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeFieldName(FORMIO_FORM_ID);
+            gen.writeString(LeaveSubmission.FORM_ID);
+            gen.writeFieldName(RECORDS);
+            gen.writeStartArray();
+            for (Entry entry : value.records()) {
+                Requester requester = entry.requester();
+                gen.writeStartObject();
+                gen.writeFieldName(REQUESTER_NAME);
+                gen.writeString(requester.name());
+                gen.writeFieldName(REQUESTER_EMAIL);
+                gen.writeString(requester.email());
+                gen.writeFieldName(REQUESTER_COMPANY);
+                gen.writeString(requester.company());
+                gen.writeFieldName(CREATE_ON);
+                gen.writeString(requester.createOn());
+                gen.writeFieldName(LEAVE_DETAIL);
+                LeaveDetail.Serializer.write(entry.leaveDetail(), gen);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.component;
+
+import org.apache.camel.spi.IdempotentRepository;
+import org.apache.camel.support.service.ServiceHelper;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the content hashes of the attachments already processed.
+ * <p>
+ * Hashes are kept in a bounded LRU map where every entry expires after a time to live. With an
+ * {@link IdempotentRepository} configured, hashes are also written through to it and hashes missing from memory
+ * are looked up there, so duplicates are still recognized after a restart or on another node sharing the store.
+ * The repository is expected to bound its own size, such as the LRU of the file based repository.
+ */
+public class ContentHashCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final IdempotentRepository repository;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Long> expiries;
+
+    public ContentHashCache(int maxSize, long ttlMillis, IdempotentRepository repository) {
+        this(maxSize, ttlMillis, repository, System::currentTimeMillis);
+    }
+
+    ContentHashCache(int maxSize, long ttlMillis, IdempotentRepository repository, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("idempotentCacheSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.repository = repository;
+        this.clock = clock;
+        this.expiries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Whether the hash has been added before and has not expired yet.
+     */
+    public boolean contains(String hash) {
+        if (containsInMemory(hash)) {
+            return true;
+        }
+        if (repository != null && repository.contains(hash)) {
+            remember(hash);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the hash, returns false when it was already known, which also covers two copies of the same
+     * attachment finishing at the same time when the repository adds atomically.
+     */
+    public boolean add(String hash) {
+        synchronized (this) {
+            if (containsInMemory(hash)) {
+                return false;
+            }
+            if (repository == null) {
+                remember(hash);
+                return true;
+            }
+        }
+        boolean added = repository.add(hash);
+        remember(hash);
+        return added;
+    }
+
+    /**
+     * Forgets the hash, so the same attachment is processed again next time.
+     */
+    public void remove(String hash) {
+        synchronized (this) {
+            expiries.remove(hash);
+        }
+        if (repository != null) {
+            repository.remove(hash);
+        }
+    }
+
+    public void start() {
+        ServiceHelper.startService(repository);
+    }
+
+    public void stop() {
+        ServiceHelper.stopService(repository);
+    }
+
+    private synchronized boolean containsInMemory(String hash) {
+        Long expiry = expiries.get(hash);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry <= clock.getAsLong()) {
+            expiries.remove(hash);
+            return false;
+        }
+        return true;
+    }
+
+    private synchronized void remember(String hash) {
+        long now = clock.getAsLong();
+        expiries.put(hash, now + ttlMillis);
+        // iteration is in access order, so the least recently used hash goes first
+        Iterator<Map.Entry<String, Long>> entries = expiries.entrySet().iterator();
+        while (expiries.size() > maxSize && entries.hasNext()) {
+            entries.next();
+            entries.remove();
+        }
+    }
+}
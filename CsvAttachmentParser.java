@@ -0,0 +1,111 @@
+package org.component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+import static org.component.EmailCsvProcessorProducer.EXPECTED_HEADERS;
+
+/**
+ * Parses CSV attachments with {@link LeaveCsvTokenizer}, files spooled to disk larger than the parallel threshold
+ * with {@link ParallelCsvParser}.
+ */
+final class CsvAttachmentParser implements AttachmentParser {
+
+    private final Charset charset;
+    private final ParallelCsvParser parallelCsv;
+    private final long parallelThreshold;
+
+    /**
+     * {@code parallelCsv} is {@code null} when files are never parsed in parallel.
+     */
+    CsvAttachmentParser(Charset charset, ParallelCsvParser parallelCsv, long parallelThreshold) {
+        this.charset = charset;
+        this.parallelCsv = parallelCsv;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @Override
+    public void parse(InputStream inputStream, Consumer<LeaveDetail> sink) throws Exception {
+        parse(new LeaveCsvTokenizer(inputStream, charset), sink);
+    }
+
+    /**
+     * The tokenizer maps the file instead of reading it through a stream.
+     */
+    @Override
+    public void parse(Path file, Consumer<LeaveDetail> sink) throws Exception {
+        if (parallelCsv != null && Files.size(file) > parallelThreshold) {
+            parallelCsv.parse(file, (tokenizer, header, chunk) -> parseRecords(tokenizer, header, RowDeduplicator.sameSession(sink, chunk)), sink);
+        } else {
+            parse(new LeaveCsvTokenizer(FileChannel.open(file, StandardOpenOption.READ), charset), sink);
+        }
+    }
+
+    private void parse(LeaveCsvTokenizer csvTokenizer, Consumer<LeaveDetail> sink) throws IOException {
+        try (LeaveCsvTokenizer tokenizer = csvTokenizer) {
+            parseRecords(tokenizer, true, sink);
+        }
+    }
+
+    /**
+     * Validates the records of the tokenizer and hands them to the sink, starting with the header when
+     * {@code header} is set. Also used for every chunk of a file parsed in parallel, where only the first chunk
+     * has the header.
+     */
+    private static void parseRecords(LeaveCsvTokenizer tokenizer, boolean header, Consumer<LeaveDetail> sink) throws IOException {
+        if (header && (!tokenizer.nextRecord() || !isExpectedHeader(tokenizer))) {
+            throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_HEADER_MISMATCH,
+                    "Invalid CSV header format!", 1, null);
+        }
+
+        while (tokenizer.nextRecord()) {
+            if (tokenizer.getFieldCount() != EXPECTED_HEADERS.length) {
+                throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_MISSING_VALUES,
+                        "CSV file format is correct but values are missing", tokenizer.getRecordNumber(), null);
+            }
+            for (int i = 0; i < EXPECTED_HEADERS.length; i++) {
+                if (tokenizer.isBlank(i)) {
+                    throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_MISSING_VALUES,
+                            "CSV file format is correct but values are missing", tokenizer.getRecordNumber(), null);
+                }
+            }
+
+            LeaveDetail leaveDetail;
+            try {
+                int employeeId = tokenizer.getInt(0);
+                LocalDate startDate = tokenizer.getDate(3);
+                LocalDate endDate = tokenizer.getDate(4);
+                int noOfHours = tokenizer.getInt(5);
+                // before the names are decoded, a duplicate costs no String
+                if (RowDeduplicator.isDuplicate(sink, employeeId, startDate, endDate)) {
+                    continue;
+                }
+                leaveDetail = LeaveDetail.of(employeeId, tokenizer.getString(1), tokenizer.getString(2), startDate, endDate, noOfHours);
+            } catch (NumberFormatException | DateTimeException e) {
+                throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_INVALID_FILE,
+                        e.getMessage(), tokenizer.getRecordNumber(), e);
+            }
+            sink.accept(leaveDetail);
+        }
+    }
+
+    private static boolean isExpectedHeader(LeaveCsvTokenizer tokenizer) {
+        if (tokenizer.getFieldCount() != EXPECTED_HEADERS.length) {
+            return false;
+        }
+        for (int i = 0; i < EXPECTED_HEADERS.length; i++) {
+            if (!tokenizer.fieldEquals(i, EXPECTED_HEADERS[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+package org.component;
+
+import jakarta.mail.Message;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads {@code .eml} files from a local directory. Processed files are moved into a {@code .processed}
+ * sub directory, failed ones stay where they are and are retried on the next poll.
+ */
+public class DirectoryMailSource implements MailSource {
+
+    static final String PROCESSED_DIRECTORY = ".processed";
+
+    private final Path directory;
+    private final Session session = Session.getInstance(new Properties());
+    private final Map<Message, Path> files = new ConcurrentHashMap<>();
+
+    public DirectoryMailSource(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void open() throws Exception {
+        Files.createDirectories(directory.resolve(PROCESSED_DIRECTORY));
+    }
+
+    @Override
+    public List<Message> fetch(int maxMessages) throws Exception {
+        List<Message> messages = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.eml")) {
+            for (Path file : stream) {
+                if (messages.size() >= maxMessages) {
+                    break;
+                }
+                if (!Files.isRegularFile(file)) {
+                    continue;
+                }
+                MimeMessage message;
+                try (InputStream in = Files.newInputStream(file)) {
+                    message = new MimeMessage(session, in);
+                }
+                files.put(message, file);
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public void commit(Message message) throws Exception {
+        Path file = files.remove(message);
+        if (file != null) {
+            Files.move(file, directory.resolve(PROCESSED_DIRECTORY).resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public void rollback(Message message) {
+        files.remove(message);
+    }
+
+    @Override
+    public void close() {
+        files.clear();
+    }
+}
@@ -59,13 +59,13 @@ class EmailCsvProcessProducerTest {
         emailCsvProcessorProducer.process(exchange);
 
         // Validate the JSON response that is produced
-        Map<String, Object> jsonResponse = (Map<String, Object>) exchange.getIn().getBody();
+        LeaveSubmission jsonResponse = (LeaveSubmission) exchange.getIn().getBody();
         assertNotNull(jsonResponse, "The JSON response should not be null");
 
         // Validate expected data in the JSON response
-        assertEquals("John Doe", ((Map<String, Object>) jsonResponse.get("data")).get("requester_name"));
-        assertEquals("john.doe@example.com", ((Map<String, Object>) jsonResponse.get("data")).get("requester_email"));
-        assertTrue(((List<?>) ((Map<String, Object>) jsonResponse.get("data")).get("leave_details")).size() > 0);
+        assertEquals("John Doe", jsonResponse.requesterName());
+        assertEquals("john.doe@example.com", jsonResponse.requesterEmail());
+        assertTrue(jsonResponse.leaveDetails().size() > 0);
     }
 
     @Test
@@ -0,0 +1,112 @@
+package org.component;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.spi.ThreadPoolProfile;
+import org.apache.camel.support.DefaultAsyncProducer;
+import org.apache.camel.support.service.ServiceHelper;
+import org.apache.camel.util.concurrent.ThreadPoolRejectedPolicy;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Asynchronous variant of {@link EmailCsvProcessorProducer} that parses on its own thread pool and completes
+ * the {@link AsyncCallback} when done, so the calling route thread (typically the mail poller) is released
+ * as soon as the work has been handed off.
+ * <p>
+ * At most {@code maxInFlight} exchanges are parsed or queued at any time. When that limit is reached the caller
+ * either waits for a slot, which pushes back on the consumer, or the exchange is failed straight away with a
+ * {@link RejectedExecutionException} when {@code rejectWhenSaturated} is enabled.
+ */
+public class EmailCsvProcessorAsyncProducer extends DefaultAsyncProducer {
+
+    private final EmailCsvProcessorProducer delegate;
+    private ExecutorService executor;
+    private Semaphore inFlight;
+
+    public EmailCsvProcessorAsyncProducer(EmailCsvProcessorEndpoint endpoint) {
+        super(endpoint);
+        this.delegate = new EmailCsvProcessorProducer(endpoint);
+    }
+
+    @Override
+    public EmailCsvProcessorEndpoint getEndpoint() {
+        return (EmailCsvProcessorEndpoint) super.getEndpoint();
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        ServiceHelper.startService(delegate);
+        inFlight = new Semaphore(getEndpoint().getMaxInFlight());
+        ThreadPoolProfile profile = new ThreadPoolProfile("EmailCsvProcessorAsync");
+        profile.setPoolSize(getEndpoint().getAsyncPoolSize());
+        profile.setMaxPoolSize(getEndpoint().getAsyncPoolSize());
+        profile.setKeepAliveTime(0L);
+        profile.setAllowCoreThreadTimeOut(false);
+        // room for every permit, so a task is only rejected once the pool is shut down and never run by the caller
+        profile.setMaxQueueSize(Math.max(getEndpoint().getMaxInFlight(), 1));
+        profile.setRejectedPolicy(ThreadPoolRejectedPolicy.Abort);
+        executor = getEndpoint().getCamelContext().getExecutorServiceManager()
+                .newThreadPool(this, "EmailCsvProcessorAsync", profile);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        if (executor != null) {
+            getEndpoint().getCamelContext().getExecutorServiceManager().shutdownGraceful(executor);
+            executor = null;
+        }
+        ServiceHelper.stopService(delegate);
+        super.doStop();
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        try {
+            if (getEndpoint().isRejectWhenSaturated()) {
+                if (!inFlight.tryAcquire()) {
+                    exchange.setException(new RejectedExecutionException(
+                            "Too many emails in flight, the limit of " + getEndpoint().getMaxInFlight() + " has been reached"));
+                    callback.done(true);
+                    return true;
+                }
+            } else {
+                inFlight.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    delegate.process(exchange);
+                } catch (Throwable e) {
+                    exchange.setException(e);
+                } finally {
+                    inFlight.release();
+                    callback.done(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Number of exchanges currently being parsed or waiting for a parser thread.
+     */
+    public int getInFlightCount() {
+        return inFlight == null ? 0 : getEndpoint().getMaxInFlight() - inFlight.availablePermits();
+    }
+}
@@ -0,0 +1,200 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.DataSource;
+import org.apache.camel.AsyncProducer;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailCsvProcessorAsyncProducerTest {
+
+    private static final byte[] CSV = ("employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+            + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n").getBytes(StandardCharsets.UTF_8);
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    void setUp() {
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+    }
+
+    @Test
+    void testCompletesTheCallbackOffTheCallerThread() throws Exception {
+        EmailCsvProcessorAsyncProducer producer = producer("emailCsvProcessor:async?asyncProcessing=true");
+        Exchange exchange = exchange("john.doe@example.com", new Attachment(null));
+
+        Callback callback = process(producer, exchange);
+
+        assertFalse(callback.returned);
+        assertFalse(callback.doneSync.get(5, TimeUnit.SECONDS));
+        assertNotEquals(Thread.currentThread(), callback.thread);
+        assertNull(exchange.getException());
+        assertEquals(1, exchange.getIn().getBody(LeaveSubmission.class).leaveDetails().size());
+        assertEquals(0, producer.getInFlightCount());
+    }
+
+    @Test
+    void testReleasesThePermitWhenTheEmailFails() throws Exception {
+        EmailCsvProcessorAsyncProducer producer = producer("emailCsvProcessor:async?asyncProcessing=true&maxInFlight=1&rejectWhenSaturated=true");
+
+        Exchange invalid = exchange("not an email", new Attachment(null));
+        assertFalse(process(producer, invalid).doneSync.get(5, TimeUnit.SECONDS));
+        assertEquals("Invalid or missing email address!", invalid.getIn().getHeader("ErrorReason"));
+        assertEquals(0, producer.getInFlightCount());
+
+        // an error the producer does not turn into an ErrorReason fails the exchange
+        Exchange broken = exchange("john.doe@example.com", new Attachment(null) {
+            @Override
+            public InputStream getInputStream() {
+                throw new AssertionError("Broken attachment");
+            }
+        });
+        assertFalse(process(producer, broken).doneSync.get(5, TimeUnit.SECONDS));
+        assertEquals("Broken attachment", broken.getException().getCause().getMessage());
+        assertEquals(0, producer.getInFlightCount());
+
+        // the only permit is free again
+        Exchange next = exchange("john.doe@example.com", new Attachment(null));
+        assertFalse(process(producer, next).doneSync.get(5, TimeUnit.SECONDS));
+        assertNull(next.getException());
+    }
+
+    @Test
+    void testRejectsWhenSaturated() throws Exception {
+        EmailCsvProcessorAsyncProducer producer = producer("emailCsvProcessor:async?asyncProcessing=true&maxInFlight=1&rejectWhenSaturated=true");
+        CountDownLatch release = new CountDownLatch(1);
+        Callback first = process(producer, exchange("john.doe@example.com", new Attachment(release)));
+
+        Exchange rejected = exchange("john.doe@example.com", new Attachment(null));
+        Callback second = process(producer, rejected);
+
+        assertTrue(second.returned);
+        assertTrue(second.doneSync.getNow(false));
+        assertInstanceOf(RejectedExecutionException.class, rejected.getException());
+        assertEquals(1, producer.getInFlightCount());
+
+        release.countDown();
+        assertFalse(first.doneSync.get(5, TimeUnit.SECONDS));
+        assertEquals(0, producer.getInFlightCount());
+    }
+
+    @Test
+    void testBlocksWhenSaturated() throws Exception {
+        EmailCsvProcessorAsyncProducer producer = producer("emailCsvProcessor:async?asyncProcessing=true&maxInFlight=1");
+        CountDownLatch release = new CountDownLatch(1);
+        Callback first = process(producer, exchange("john.doe@example.com", new Attachment(release)));
+
+        Exchange waiting = exchange("john.doe@example.com", new Attachment(null));
+        CompletableFuture<Callback> second = CompletableFuture.supplyAsync(() -> process(producer, waiting));
+
+        // the caller waits for the permit instead of failing the exchange
+        assertThrows(TimeoutException.class, () -> second.get(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, producer.getInFlightCount());
+
+        release.countDown();
+        assertFalse(first.doneSync.get(5, TimeUnit.SECONDS));
+        assertFalse(second.get(5, TimeUnit.SECONDS).doneSync.get(5, TimeUnit.SECONDS));
+        assertNull(waiting.getException());
+        assertEquals(1, waiting.getIn().getBody(LeaveSubmission.class).leaveDetails().size());
+        assertEquals(0, producer.getInFlightCount());
+    }
+
+    private EmailCsvProcessorAsyncProducer producer(String uri) throws Exception {
+        AsyncProducer producer = camelContext.getEndpoint(uri).createAsyncProducer();
+        producer.start();
+        return (EmailCsvProcessorAsyncProducer) producer;
+    }
+
+    private Exchange exchange(String from, Attachment attachment) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", from);
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        in.addAttachment("leave.csv", new DataHandler(attachment));
+        exchange.setIn(in);
+        return exchange;
+    }
+
+    private static Callback process(EmailCsvProcessorAsyncProducer producer, Exchange exchange) {
+        Callback callback = new Callback();
+        callback.returned = producer.process(exchange, doneSync -> {
+            callback.thread = Thread.currentThread();
+            callback.doneSync.complete(doneSync);
+        });
+        return callback;
+    }
+
+    private static final class Callback {
+        private final CompletableFuture<Boolean> doneSync = new CompletableFuture<>();
+        private volatile Thread thread;
+        private boolean returned;
+    }
+
+    /**
+     * The CSV attachment, which cannot be read before {@code release} when it is set.
+     */
+    private static class Attachment implements DataSource {
+
+        private final CountDownLatch release;
+
+        Attachment(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            try {
+                if (release != null && !release.await(10, TimeUnit.SECONDS)) {
+                    throw new IOException("Timed out waiting for the attachment");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            return new ByteArrayInputStream(CSV);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getContentType() {
+            return "text/csv";
+        }
+
+        @Override
+        public String getName() {
+            return "leave.csv";
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.Producer;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing an email with one CSV or XLSX attachment through {@link EmailCsvProcessorProducer#process}
+ * and serializing the resulting {@link LeaveSubmission}, for attachments from 10 up to 1M rows.
+ * <p>
+ * Run with {@code mvn -Pjmh test}. The {@code rows} counter reports rows per second next to the operations,
+ * the GC profiler reports the allocation rate, and the results are written to {@code target/jmh-result.json}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class EmailCsvProcessorBenchmark {
+
+    private static final String[] EMPLOYEE_NAMES = {"John Doe", "Jane Q Roe", "Richard Miles", "Mary Major"};
+    private static final String[] MANAGERS = {"Alice Boss", "Bob Lead"};
+
+    @State(Scope.Benchmark)
+    public static class Attachment {
+
+        @Param({"10", "1000", "100000", "1000000"})
+        public int rows;
+
+        @Param({"CSV", "XLSX"})
+        public String format;
+
+        @Param({"fast"})
+        public String csvParser;
+
+        private DefaultCamelContext camelContext;
+        private Producer producer;
+        private DataHandler attachment;
+        private String fileName;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            camelContext = new DefaultCamelContext();
+            camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+            camelContext.start();
+            producer = camelContext.getEndpoint("emailCsvProcessor:benchmark?csvParser=" + csvParser).createProducer();
+            producer.start();
+
+            fileName = "CSV".equals(format) ? "leave.csv" : "leave.xlsx";
+            byte[] content = "CSV".equals(format) ? generateCsv(rows) : generateXlsx(rows);
+            ByteArrayDataSource dataSource = new ByteArrayDataSource(content, "application/octet-stream");
+            dataSource.setName(fileName);
+            attachment = new DataHandler(dataSource);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            producer.stop();
+            camelContext.stop();
+        }
+
+        Exchange createExchange() {
+            Exchange exchange = new DefaultExchange(camelContext);
+            AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+            in.setHeader("From", "john.doe@example.com");
+            in.setHeader("Subject", "Company X");
+            in.setHeader("CamelMailMessageReceivedDate", new Date());
+            in.addAttachment(fileName, attachment);
+            exchange.setIn(in);
+            return exchange;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Envelope {
+
+        @Param({"10", "1000", "100000", "1000000"})
+        public int rows;
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private LeaveSubmission submission;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            List<LeaveDetail> leaveDetails = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                leaveDetails.add(LeaveDetail.of(i + 1, EMPLOYEE_NAMES[i % EMPLOYEE_NAMES.length], MANAGERS[i % MANAGERS.length],
+                        LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 3), 8));
+            }
+            submission = new LeaveSubmission("john.doe", "john.doe@example.com", "Company X", "2024-01-01 10:00:00", leaveDetails);
+        }
+    }
+
+    /**
+     * Rows handled per iteration, reported by JMH as a throughput next to the benchmark score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RowCounter {
+
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Benchmark
+    public LeaveSubmission process(Attachment state, RowCounter counter) throws Exception {
+        Exchange exchange = state.createExchange();
+        state.producer.process(exchange);
+
+        LeaveSubmission submission = exchange.getIn().getBody(LeaveSubmission.class);
+        if (submission == null) {
+            throw new IllegalStateException("Benchmark attachment was rejected: " + exchange.getIn().getHeader("ErrorReason"));
+        }
+        counter.rows += submission.leaveDetails().size();
+        return submission;
+    }
+
+    @Benchmark
+    public byte[] serializeEnvelope(Envelope state, RowCounter counter) throws Exception {
+        counter.rows += state.rows;
+        return state.objectMapper.writeValueAsBytes(state.submission);
+    }
+
+    static byte[] generateCsv(int rows) {
+        StringBuilder csv = new StringBuilder(rows * 64);
+        csv.append(String.join(",", EmailCsvProcessorProducer.EXPECTED_HEADERS)).append('\n');
+        for (int i = 0; i < rows; i++) {
+            csv.append(i + 1).append(',')
+                    .append(EMPLOYEE_NAMES[i % EMPLOYEE_NAMES.length]).append(',')
+                    .append(MANAGERS[i % MANAGERS.length]).append(',')
+                    .append("2024-01-02,2024-01-03,")
+                    .append(8).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] generateXlsx(int rows) throws Exception {
+        // the producer reads every cell as text, so ids and hours are written as strings like a typical export
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, 1000, true, true);
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Leave");
+            writeRow(sheet.createRow(0), EmailCsvProcessorProducer.EXPECTED_HEADERS);
+            for (int i = 0; i < rows; i++) {
+                writeRow(sheet.createRow(i + 1), new String[]{String.valueOf(i + 1), EMPLOYEE_NAMES[i % EMPLOYEE_NAMES.length],
+                        MANAGERS[i % MANAGERS.length], "2024-01-02", "2024-01-03", "8"});
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static void writeRow(Row row, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            row.createCell(i).setCellValue(values[i]);
+        }
+    }
+}
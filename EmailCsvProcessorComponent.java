@@ -1,5 +1,8 @@
 package org.component;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.camel.Endpoint;
+import org.apache.camel.StreamCache;
+import org.apache.camel.spi.PropertyConfigurer;
 import org.apache.camel.support.DefaultComponent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,14 +13,303 @@ import java.util.Map;
 public class EmailCsvProcessorComponent extends DefaultComponent {
     private static final Logger LOGGER = LoggerFactory.getLogger(EmailCsvProcessorComponent.class);
 
+    private static final PropertyConfigurer COMPONENT_CONFIGURER = new EmailCsvProcessorComponentConfigurer();
+    private static final PropertyConfigurer ENDPOINT_CONFIGURER = new EmailCsvProcessorEndpointConfigurer();
+
+    // defaults for every endpoint, overridden by the options in the endpoint URI
+    private boolean streamingXlsx = true;
+    private String xlsxSheets;
+    private int xlsxSheetParallelism = 4;
+    private String csvParser = "fast";
+    private String charset = "UTF-8";
+    private int maxRows;
+    private long maxAttachmentBytes;
+    private long maxDecompressedBytes = 256 * 1024 * 1024;
+    private int maxArchiveEntries = 100;
+    private int maxCompressionRatio = 100;
+    private long spoolThreshold;
+    private String spoolDirectory;
+    private boolean streamBody;
+    private long streamBodyThreshold = StreamCache.DEFAULT_SPOOL_THRESHOLD;
+    private long parallelCsvThreshold;
+    private long parallelCsvChunkSize = 8 * 1024 * 1024;
+    private int parallelCsvParallelism = 4;
+    private boolean parallelAttachments;
+    private int attachmentParallelism = 4;
+    private boolean metricsEnabled;
+    private MeterRegistry meterRegistry;
+
     @Override
     protected Endpoint createEndpoint(String uri, String remaining, Map<String, Object> parameters) throws Exception {
-        LOGGER.info("Creating EmailCsvProcessorEndpoint for URI: {}", uri);
+        // debug only, dynamic toD routes can create many endpoints
+        LOGGER.debug("Creating EmailCsvProcessorEndpoint for URI: {}", uri);
 
         // Create and configure the custom endpoint
         EmailCsvProcessorEndpoint endpoint = new EmailCsvProcessorEndpoint(uri, this);
-        setProperties(endpoint, parameters); // Apply user-defined properties
+        endpoint.setStreamingXlsx(streamingXlsx);
+        endpoint.setXlsxSheets(xlsxSheets);
+        endpoint.setXlsxSheetParallelism(xlsxSheetParallelism);
+        endpoint.setCsvParser(csvParser);
+        endpoint.setCharset(charset);
+        endpoint.setMaxRows(maxRows);
+        endpoint.setMaxAttachmentBytes(maxAttachmentBytes);
+        endpoint.setMaxDecompressedBytes(maxDecompressedBytes);
+        endpoint.setMaxArchiveEntries(maxArchiveEntries);
+        endpoint.setMaxCompressionRatio(maxCompressionRatio);
+        endpoint.setSpoolThreshold(spoolThreshold);
+        endpoint.setSpoolDirectory(spoolDirectory);
+        endpoint.setStreamBody(streamBody);
+        endpoint.setStreamBodyThreshold(streamBodyThreshold);
+        endpoint.setParallelCsvThreshold(parallelCsvThreshold);
+        endpoint.setParallelCsvChunkSize(parallelCsvChunkSize);
+        endpoint.setParallelCsvParallelism(parallelCsvParallelism);
+        endpoint.setParallelAttachments(parallelAttachments);
+        endpoint.setAttachmentParallelism(attachmentParallelism);
+        endpoint.setMetricsEnabled(metricsEnabled);
+        endpoint.setMeterRegistry(meterRegistry);
+        setProperties(endpoint, parameters); // Apply user-defined properties through the endpoint configurer
 
         return endpoint;
     }
-}
\ No newline at end of file
+
+    @Override
+    public PropertyConfigurer getComponentPropertyConfigurer() {
+        return COMPONENT_CONFIGURER;
+    }
+
+    @Override
+    public PropertyConfigurer getEndpointPropertyConfigurer() {
+        return ENDPOINT_CONFIGURER;
+    }
+
+    public boolean isStreamingXlsx() {
+        return streamingXlsx;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setStreamingXlsx(boolean)}.
+     */
+    public void setStreamingXlsx(boolean streamingXlsx) {
+        this.streamingXlsx = streamingXlsx;
+    }
+
+    public String getXlsxSheets() {
+        return xlsxSheets;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setXlsxSheets(String)}.
+     */
+    public void setXlsxSheets(String xlsxSheets) {
+        this.xlsxSheets = xlsxSheets;
+    }
+
+    public int getXlsxSheetParallelism() {
+        return xlsxSheetParallelism;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setXlsxSheetParallelism(int)}.
+     */
+    public void setXlsxSheetParallelism(int xlsxSheetParallelism) {
+        this.xlsxSheetParallelism = xlsxSheetParallelism;
+    }
+
+    public String getCsvParser() {
+        return csvParser;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setCsvParser(String)}.
+     */
+    public void setCsvParser(String csvParser) {
+        this.csvParser = csvParser;
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setCharset(String)}.
+     */
+    public void setCharset(String charset) {
+        this.charset = charset;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setMaxRows(int)}.
+     */
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    public long getMaxAttachmentBytes() {
+        return maxAttachmentBytes;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setMaxAttachmentBytes(long)}.
+     */
+    public void setMaxAttachmentBytes(long maxAttachmentBytes) {
+        this.maxAttachmentBytes = maxAttachmentBytes;
+    }
+
+    public long getMaxDecompressedBytes() {
+        return maxDecompressedBytes;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setMaxDecompressedBytes(long)}.
+     */
+    public void setMaxDecompressedBytes(long maxDecompressedBytes) {
+        this.maxDecompressedBytes = maxDecompressedBytes;
+    }
+
+    public int getMaxArchiveEntries() {
+        return maxArchiveEntries;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setMaxArchiveEntries(int)}.
+     */
+    public void setMaxArchiveEntries(int maxArchiveEntries) {
+        this.maxArchiveEntries = maxArchiveEntries;
+    }
+
+    public int getMaxCompressionRatio() {
+        return maxCompressionRatio;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setMaxCompressionRatio(int)}.
+     */
+    public void setMaxCompressionRatio(int maxCompressionRatio) {
+        this.maxCompressionRatio = maxCompressionRatio;
+    }
+
+    public long getSpoolThreshold() {
+        return spoolThreshold;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setSpoolThreshold(long)}.
+     */
+    public void setSpoolThreshold(long spoolThreshold) {
+        this.spoolThreshold = spoolThreshold;
+    }
+
+    public String getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setSpoolDirectory(String)}.
+     */
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public boolean isStreamBody() {
+        return streamBody;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setStreamBody(boolean)}.
+     */
+    public void setStreamBody(boolean streamBody) {
+        this.streamBody = streamBody;
+    }
+
+    public long getStreamBodyThreshold() {
+        return streamBodyThreshold;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setStreamBodyThreshold(long)}.
+     */
+    public void setStreamBodyThreshold(long streamBodyThreshold) {
+        this.streamBodyThreshold = streamBodyThreshold;
+    }
+
+    public long getParallelCsvThreshold() {
+        return parallelCsvThreshold;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setParallelCsvThreshold(long)}.
+     */
+    public void setParallelCsvThreshold(long parallelCsvThreshold) {
+        this.parallelCsvThreshold = parallelCsvThreshold;
+    }
+
+    public long getParallelCsvChunkSize() {
+        return parallelCsvChunkSize;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setParallelCsvChunkSize(long)}.
+     */
+    public void setParallelCsvChunkSize(long parallelCsvChunkSize) {
+        this.parallelCsvChunkSize = parallelCsvChunkSize;
+    }
+
+    public int getParallelCsvParallelism() {
+        return parallelCsvParallelism;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setParallelCsvParallelism(int)}.
+     */
+    public void setParallelCsvParallelism(int parallelCsvParallelism) {
+        this.parallelCsvParallelism = parallelCsvParallelism;
+    }
+
+    public boolean isParallelAttachments() {
+        return parallelAttachments;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setParallelAttachments(boolean)}.
+     */
+    public void setParallelAttachments(boolean parallelAttachments) {
+        this.parallelAttachments = parallelAttachments;
+    }
+
+    public int getAttachmentParallelism() {
+        return attachmentParallelism;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setAttachmentParallelism(int)}.
+     */
+    public void setAttachmentParallelism(int attachmentParallelism) {
+        this.attachmentParallelism = attachmentParallelism;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setMetricsEnabled(boolean)}.
+     */
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    /**
+     * Default for {@link EmailCsvProcessorEndpoint#setMeterRegistry(MeterRegistry)}.
+     */
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+}
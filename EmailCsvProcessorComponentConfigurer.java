@@ -3,120 +3,175 @@ package org.component;
 import org.apache.camel.CamelContext;
 import org.apache.camel.spi.GeneratedPropertyConfigurer;
 import org.apache.camel.spi.PropertyConfigurerGetter;
-import org.apache.camel.support.PropertyConfigurerSupport;
-
-import java.util.HashMap;
-import java.util.Map;
+import org.apache.camel.support.component.PropertyConfigurerSupport;
 
+/**
+ * Sets the component options, the defaults every endpoint created by the component starts from, with a plain
+ * string switch the same way Camel's generated configurers do.
+ */
 public class EmailCsvProcessorComponentConfigurer extends PropertyConfigurerSupport implements GeneratedPropertyConfigurer, PropertyConfigurerGetter {
 
-    // Map holding configurations in key-value form for property resolution
-    private final Map<String, Class<?>> configProperties = new HashMap<>();
-
-    public EmailCsvProcessorComponentConfigurer() {
-        // Declare available properties (customize based on your component's needs)
-        configProperties.put("sampleProperty", String.class); // Example of custom property for demonstration
-    }
-
-    /**
-     * This method sets a property to the EmailCsvProcessorComponent.
-     *
-     * @param camelContext The Camel context (if needed for custom logic)
-     * @param target       The instance of the target property owner (EmailCsvProcessorComponent in this case)
-     * @param name         The name of the property
-     * @param value        The value to set on the target object
-     * @param ignoreCase   Whether to ignore case when matching the property name
-     * @return true if the property was set, otherwise false
-     */
     @Override
-    public boolean configure(CamelContext camelContext, Object target, String name, Object value, boolean ignoreCase) {
-        if (target instanceof EmailCsvProcessorComponent) {
-            EmailCsvProcessorComponent component = (EmailCsvProcessorComponent) target;
-            if (ignoreCase && "sampleProperty".equalsIgnoreCase(name) || "sampleProperty".equals(name)) {
-                // Set the value of a sample property
-                System.out.println("Setting property 'sampleProperty' to value: " + value); // Logging for demo purposes
-                // Here, you can set any custom property on the component, e.g., `component.setSomeProperty(value)`
-                return true;
-            }
+    public boolean configure(CamelContext camelContext, Object obj, String name, Object value, boolean ignoreCase) {
+        EmailCsvProcessorComponent target = (EmailCsvProcessorComponent) obj;
+        switch (ignoreCase ? name.toLowerCase() : name) {
+        case "attachmentparallelism":
+        case "attachmentParallelism": target.setAttachmentParallelism(property(camelContext, int.class, value)); return true;
+        case "autowiredenabled":
+        case "autowiredEnabled": target.setAutowiredEnabled(property(camelContext, boolean.class, value)); return true;
+        case "bridgeerrorhandler":
+        case "bridgeErrorHandler": target.setBridgeErrorHandler(property(camelContext, boolean.class, value)); return true;
+        case "charset": target.setCharset(property(camelContext, java.lang.String.class, value)); return true;
+        case "csvparser":
+        case "csvParser": target.setCsvParser(property(camelContext, java.lang.String.class, value)); return true;
+        case "lazystartproducer":
+        case "lazyStartProducer": target.setLazyStartProducer(property(camelContext, boolean.class, value)); return true;
+        case "maxarchiveentries":
+        case "maxArchiveEntries": target.setMaxArchiveEntries(property(camelContext, int.class, value)); return true;
+        case "maxattachmentbytes":
+        case "maxAttachmentBytes": target.setMaxAttachmentBytes(property(camelContext, long.class, value)); return true;
+        case "maxcompressionratio":
+        case "maxCompressionRatio": target.setMaxCompressionRatio(property(camelContext, int.class, value)); return true;
+        case "maxdecompressedbytes":
+        case "maxDecompressedBytes": target.setMaxDecompressedBytes(property(camelContext, long.class, value)); return true;
+        case "maxrows":
+        case "maxRows": target.setMaxRows(property(camelContext, int.class, value)); return true;
+        case "meterregistry":
+        case "meterRegistry": target.setMeterRegistry(property(camelContext, io.micrometer.core.instrument.MeterRegistry.class, value)); return true;
+        case "metricsenabled":
+        case "metricsEnabled": target.setMetricsEnabled(property(camelContext, boolean.class, value)); return true;
+        case "parallelattachments":
+        case "parallelAttachments": target.setParallelAttachments(property(camelContext, boolean.class, value)); return true;
+        case "parallelcsvchunksize":
+        case "parallelCsvChunkSize": target.setParallelCsvChunkSize(property(camelContext, long.class, value)); return true;
+        case "parallelcsvparallelism":
+        case "parallelCsvParallelism": target.setParallelCsvParallelism(property(camelContext, int.class, value)); return true;
+        case "parallelcsvthreshold":
+        case "parallelCsvThreshold": target.setParallelCsvThreshold(property(camelContext, long.class, value)); return true;
+        case "spooldirectory":
+        case "spoolDirectory": target.setSpoolDirectory(property(camelContext, java.lang.String.class, value)); return true;
+        case "spoolthreshold":
+        case "spoolThreshold": target.setSpoolThreshold(property(camelContext, long.class, value)); return true;
+        case "streambody":
+        case "streamBody": target.setStreamBody(property(camelContext, boolean.class, value)); return true;
+        case "streambodythreshold":
+        case "streamBodyThreshold": target.setStreamBodyThreshold(property(camelContext, long.class, value)); return true;
+        case "streamingxlsx":
+        case "streamingXlsx": target.setStreamingXlsx(property(camelContext, boolean.class, value)); return true;
+        case "xlsxsheetparallelism":
+        case "xlsxSheetParallelism": target.setXlsxSheetParallelism(property(camelContext, int.class, value)); return true;
+        case "xlsxsheets":
+        case "xlsxSheets": target.setXlsxSheets(property(camelContext, java.lang.String.class, value)); return true;
+        default: return false;
         }
-        return false; // Return false if the property name or target is not supported
     }
 
-    /**
-     * This method gets the class type of a property by name.
-     *
-     * @param name       The name of the property
-     * @param ignoreCase Whether to ignore case when matching the property name
-     * @return The Java Class type of the property, or null if no property found
-     */
     @Override
     public Class<?> getOptionType(String name, boolean ignoreCase) {
-        for (Map.Entry<String, Class<?>> entry : configProperties.entrySet()) {
-            if (ignoreCase && entry.getKey().equalsIgnoreCase(name) || entry.getKey().equals(name)) {
-                return entry.getValue();
-            }
-        }
-        return null;
-    }
-
-    /**
-     * This method retrieves the value of a given property name.
-     *
-     * @param target     The object for which the property is being retrieved
-     * @param name       The name of the property
-     * @param ignoreCase Whether to ignore case when matching the property name
-     * @return The property value (if exists), otherwise null
-     */
-    @Override
-    public Object getOptionValue(Object target, String name, boolean ignoreCase) {
-        if (target instanceof EmailCsvProcessorComponent) {
-            // Retrieve a value for the demo "sampleProperty"
-            if (ignoreCase && "sampleProperty".equalsIgnoreCase(name) || "sampleProperty".equals(name)) {
-                // Placeholder logic — return the actual value from the component if needed
-                return "sampleValue"; // Example default value
-            }
-        }
-        return null;
-    }
-
-    /**
-     * This method gets the type of a property by only using the property name (case-sensitive).
-     *
-     * @param target The instance of the target property owner (EmailCsvProcessorComponent in this case)
-     * @param name   The name of the property
-     * @return The Java Class type of the property or null
-     */
-    @Override
-    public Class<?> getOptionType(Object target, String name) {
-        return configProperties.get(name); // Return the property type based on its name
-    }
-
-    /**
-     * Retrieves the runtime value of a property from the given target object.
-     *
-     * @param target The instance of the target property owner (EmailCsvProcessorComponent in this case)
-     * @param name   The name of the property
-     * @return The value of the property, or null if not found
-     */
-    @Override
-    public Object getOptionValue(Object target, String name) {
-        if (target instanceof EmailCsvProcessorComponent && configProperties.containsKey(name)) {
-            return getOptionValue(target, name, false); // Delegate to the case-sensitive version
+        switch (ignoreCase ? name.toLowerCase() : name) {
+        case "attachmentparallelism":
+        case "attachmentParallelism": return int.class;
+        case "autowiredenabled":
+        case "autowiredEnabled": return boolean.class;
+        case "bridgeerrorhandler":
+        case "bridgeErrorHandler": return boolean.class;
+        case "charset": return java.lang.String.class;
+        case "csvparser":
+        case "csvParser": return java.lang.String.class;
+        case "lazystartproducer":
+        case "lazyStartProducer": return boolean.class;
+        case "maxarchiveentries":
+        case "maxArchiveEntries": return int.class;
+        case "maxattachmentbytes":
+        case "maxAttachmentBytes": return long.class;
+        case "maxcompressionratio":
+        case "maxCompressionRatio": return int.class;
+        case "maxdecompressedbytes":
+        case "maxDecompressedBytes": return long.class;
+        case "maxrows":
+        case "maxRows": return int.class;
+        case "meterregistry":
+        case "meterRegistry": return io.micrometer.core.instrument.MeterRegistry.class;
+        case "metricsenabled":
+        case "metricsEnabled": return boolean.class;
+        case "parallelattachments":
+        case "parallelAttachments": return boolean.class;
+        case "parallelcsvchunksize":
+        case "parallelCsvChunkSize": return long.class;
+        case "parallelcsvparallelism":
+        case "parallelCsvParallelism": return int.class;
+        case "parallelcsvthreshold":
+        case "parallelCsvThreshold": return long.class;
+        case "spooldirectory":
+        case "spoolDirectory": return java.lang.String.class;
+        case "spoolthreshold":
+        case "spoolThreshold": return long.class;
+        case "streambody":
+        case "streamBody": return boolean.class;
+        case "streambodythreshold":
+        case "streamBodyThreshold": return long.class;
+        case "streamingxlsx":
+        case "streamingXlsx": return boolean.class;
+        case "xlsxsheetparallelism":
+        case "xlsxSheetParallelism": return int.class;
+        case "xlsxsheets":
+        case "xlsxSheets": return java.lang.String.class;
+        default: return null;
         }
-        return null;
     }
 
-    /**
-     * Gets all property names and their types for the EmailCsvProcessorComponent.
-     *
-     * @param target The instance of the target property owner (EmailCsvProcessorComponent in this case)
-     * @return A map of all properties and their types
-     */
     @Override
-    public Map<String, Class<?>> getOptions(Object target) {
-        if (target instanceof EmailCsvProcessorComponent) {
-            return configProperties; // Relevant properties for the component
+    public Object getOptionValue(Object obj, String name, boolean ignoreCase) {
+        EmailCsvProcessorComponent target = (EmailCsvProcessorComponent) obj;
+        switch (ignoreCase ? name.toLowerCase() : name) {
+        case "attachmentparallelism":
+        case "attachmentParallelism": return target.getAttachmentParallelism();
+        case "autowiredenabled":
+        case "autowiredEnabled": return target.isAutowiredEnabled();
+        case "bridgeerrorhandler":
+        case "bridgeErrorHandler": return target.isBridgeErrorHandler();
+        case "charset": return target.getCharset();
+        case "csvparser":
+        case "csvParser": return target.getCsvParser();
+        case "lazystartproducer":
+        case "lazyStartProducer": return target.isLazyStartProducer();
+        case "maxarchiveentries":
+        case "maxArchiveEntries": return target.getMaxArchiveEntries();
+        case "maxattachmentbytes":
+        case "maxAttachmentBytes": return target.getMaxAttachmentBytes();
+        case "maxcompressionratio":
+        case "maxCompressionRatio": return target.getMaxCompressionRatio();
+        case "maxdecompressedbytes":
+        case "maxDecompressedBytes": return target.getMaxDecompressedBytes();
+        case "maxrows":
+        case "maxRows": return target.getMaxRows();
+        case "meterregistry":
+        case "meterRegistry": return target.getMeterRegistry();
+        case "metricsenabled":
+        case "metricsEnabled": return target.isMetricsEnabled();
+        case "parallelattachments":
+        case "parallelAttachments": return target.isParallelAttachments();
+        case "parallelcsvchunksize":
+        case "parallelCsvChunkSize": return target.getParallelCsvChunkSize();
+        case "parallelcsvparallelism":
+        case "parallelCsvParallelism": return target.getParallelCsvParallelism();
+        case "parallelcsvthreshold":
+        case "parallelCsvThreshold": return target.getParallelCsvThreshold();
+        case "spooldirectory":
+        case "spoolDirectory": return target.getSpoolDirectory();
+        case "spoolthreshold":
+        case "spoolThreshold": return target.getSpoolThreshold();
+        case "streambody":
+        case "streamBody": return target.isStreamBody();
+        case "streambodythreshold":
+        case "streamBodyThreshold": return target.getStreamBodyThreshold();
+        case "streamingxlsx":
+        case "streamingXlsx": return target.isStreamingXlsx();
+        case "xlsxsheetparallelism":
+        case "xlsxSheetParallelism": return target.getXlsxSheetParallelism();
+        case "xlsxsheets":
+        case "xlsxSheets": return target.getXlsxSheets();
+        default: return null;
         }
-        return new HashMap<>(); // Return an empty map if the target is not supported
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+package org.component;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailCsvProcessorConfigurerTest {
+
+    private static final String CSV = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+            + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n"
+            + "2,Mary Major,Jane Roe,2024-01-04,2024-01-05,4\n";
+
+    private DefaultCamelContext camelContext;
+    private EmailCsvProcessorComponent component;
+
+    @BeforeEach
+    void setUp() {
+        camelContext = new DefaultCamelContext();
+        component = new EmailCsvProcessorComponent();
+        camelContext.addComponent("emailCsvProcessor", component);
+        camelContext.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+    }
+
+    @Test
+    void testEveryEndpointOptionIsKnownToTheConfigurer() {
+        EmailCsvProcessorEndpointConfigurer configurer = new EmailCsvProcessorEndpointConfigurer();
+        for (Method method : EmailCsvProcessorEndpoint.class.getDeclaredMethods()) {
+            if (Modifier.isPublic(method.getModifiers()) && method.getName().startsWith("set") && method.getParameterCount() == 1) {
+                String option = Character.toLowerCase(method.getName().charAt(3)) + method.getName().substring(4);
+                assertEquals(method.getParameterTypes()[0], configurer.getOptionType(option, false), option);
+            }
+        }
+    }
+
+    @Test
+    void testOptionsAreSetFromTheUri() {
+        EmailCsvProcessorEndpoint endpoint = camelContext.getEndpoint("emailCsvProcessor:test?csvParser=opencsv&BatchSize=10"
+                + "&batchEndpoint=mock:batches&maxrows=500&maxAttachmentBytes=1024&parallelAttachments=true&attachmentParallelism=2"
+                + "&xlsxSheetParallelism=3&delay=5&timeUnit=SECONDS&scheduler.foo=bar", EmailCsvProcessorEndpoint.class);
+
+        assertEquals("opencsv", endpoint.getCsvParser());
+        assertEquals(10, endpoint.getBatchSize());
+        assertEquals("mock:batches", endpoint.getBatchEndpoint());
+        assertEquals(500, endpoint.getMaxRows());
+        assertEquals(1024, endpoint.getMaxAttachmentBytes());
+        assertTrue(endpoint.isParallelAttachments());
+        assertEquals(2, endpoint.getAttachmentParallelism());
+        assertEquals(3, endpoint.getXlsxSheetParallelism());
+        assertEquals(5, endpoint.getDelay());
+        assertEquals(TimeUnit.SECONDS, endpoint.getTimeUnit());
+        assertEquals("bar", endpoint.getSchedulerProperties().get("foo"));
+    }
+
+    @Test
+    void testComponentOptionsAreEndpointDefaults() {
+        new EmailCsvProcessorComponentConfigurer().configure(camelContext, component, "maxrows", "100", true);
+        component.setCsvParser("opencsv");
+
+        EmailCsvProcessorEndpoint defaults = camelContext.getEndpoint("emailCsvProcessor:defaults", EmailCsvProcessorEndpoint.class);
+        EmailCsvProcessorEndpoint overridden = camelContext.getEndpoint("emailCsvProcessor:overridden?maxRows=5", EmailCsvProcessorEndpoint.class);
+
+        assertEquals(100, defaults.getMaxRows());
+        assertEquals("opencsv", defaults.getCsvParser());
+        assertEquals(5, overridden.getMaxRows());
+    }
+
+    @Test
+    void testRejectsTooManyRows() throws Exception {
+        Exchange exchange = process("emailCsvProcessor:test?maxRows=1");
+
+        assertNull(exchange.getIn().getBody());
+        assertEquals("Please attach a valid CSV file: Attachment exceeds the maximum of 1 rows", exchange.getIn().getHeader("ErrorReason"));
+    }
+
+    @Test
+    void testRejectsTooLargeAttachment() throws Exception {
+        Exchange exchange = process("emailCsvProcessor:test?maxAttachmentBytes=64");
+
+        assertNull(exchange.getIn().getBody());
+        assertEquals("Please attach a valid CSV file: Attachment exceeds the maximum of 64 bytes", exchange.getIn().getHeader("ErrorReason"));
+    }
+
+    @Test
+    void testAcceptsAttachmentWithinLimits() throws Exception {
+        Exchange exchange = process("emailCsvProcessor:test?maxRows=2&maxAttachmentBytes=" + CSV.length());
+
+        assertEquals(2, exchange.getIn().getBody(LeaveSubmission.class).leaveDetails().size());
+    }
+
+    private Exchange process(String uri) throws Exception {
+        return AttachmentExchanges.process(camelContext, uri, "leave.csv", CSV.getBytes(StandardCharsets.UTF_8));
+    }
+}
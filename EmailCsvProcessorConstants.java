@@ -0,0 +1,49 @@
+package org.component;
+
+/**
+ * Header names set by the email CSV processor on the exchanges it produces.
+ */
+public final class EmailCsvProcessorConstants {
+
+    /** Zero based index of a leave details batch. */
+    public static final String BATCH_INDEX = "EmailCsvBatchIndex";
+
+    /** Whether this batch is the last one produced for the email. */
+    public static final String BATCH_COMPLETE = "EmailCsvBatchComplete";
+
+    /** Total number of batches, set on the last batch and on the original exchange. */
+    public static final String BATCH_SIZE = "EmailCsvBatchSize";
+
+    /** Total number of leave detail rows parsed from the email. */
+    public static final String ROW_COUNT = "EmailCsvRowCount";
+
+    /** Hex SHA-256 of the parsed attachments, set when idempotency is enabled. */
+    public static final String CONTENT_HASH = "EmailCsvContentHash";
+
+    /** Whether the attachments have been processed before, set when idempotency is enabled. */
+    public static final String DUPLICATE = "EmailCsvDuplicate";
+
+    /** One based number of the attachment row that failed validation, the header being row 1. */
+    public static final String ERROR_ROW = "EmailCsvErrorRow";
+
+    /** Whether the leave records have been handed to the aggregator instead of being set as the body. */
+    public static final String AGGREGATED = "EmailCsvAggregated";
+
+    /** Why a bulk submission was sent: {@code records}, {@code bytes}, {@code time} or {@code stop}. */
+    public static final String AGGREGATE_COMPLETED_BY = "EmailCsvAggregateCompletedBy";
+
+    /** Milliseconds until the sender of a rate limited email gets a permit again. */
+    public static final String RETRY_AFTER = "EmailCsvRetryAfter";
+
+    /** Whether the email was only turned away for now, and should be delivered again rather than dropped. */
+    public static final String RETRYABLE = "EmailCsvRetryable";
+
+    /** Number of rows dropped because they had been received before, set when row deduplication is enabled. */
+    public static final String DUPLICATE_ROWS = "EmailCsvDuplicateRows";
+
+    /** Position in the failure journal of a replayed email, such an email is not journaled again when it fails. */
+    public static final String JOURNAL_POSITION = "EmailCsvJournalPosition";
+
+    private EmailCsvProcessorConstants() {
+    }
+}
@@ -0,0 +1,232 @@
+package org.component;
+
+import jakarta.mail.Address;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangePropertyKey;
+import org.apache.camel.Processor;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.support.ScheduledBatchPollingConsumer;
+import org.apache.camel.support.service.ServiceHelper;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls emails straight from a {@link MailSource} and parses their attachments with the producer logic before
+ * handing the exchange to the route, so no separate mail consumer and route hop is needed.
+ * <p>
+ * Every poll fetches at most {@code maxMessagesPerPoll} emails. With {@code concurrentConsumers} above one the
+ * emails of a batch are processed in parallel, and the poll returns once the whole batch is done.
+ * <p>
+ * An email the producer turns away for now, because its sender is over the rate limit, is not handed to the route.
+ * It is rolled back and left alone by the following polls until its {@code EmailCsvRetryAfter} has passed.
+ */
+public class EmailCsvProcessorConsumer extends ScheduledBatchPollingConsumer {
+
+    private final MailSource source;
+    private final EmailCsvProcessorProducer parser;
+    // Message-ID of every email held back by the rate limit, with the System.nanoTime() it may be retried at
+    private final Map<String, Long> deferred = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    public EmailCsvProcessorConsumer(EmailCsvProcessorEndpoint endpoint, Processor processor, MailSource source) {
+        super(endpoint, processor);
+        this.source = source;
+        this.parser = new EmailCsvProcessorProducer(endpoint);
+    }
+
+    @Override
+    public EmailCsvProcessorEndpoint getEndpoint() {
+        return (EmailCsvProcessorEndpoint) super.getEndpoint();
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        ServiceHelper.startService(parser);
+        if (getEndpoint().getConcurrentConsumers() > 1) {
+            executor = getEndpoint().getCamelContext().getExecutorServiceManager()
+                    .newFixedThreadPool(this, "EmailCsvProcessorConsumer", getEndpoint().getConcurrentConsumers());
+        }
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+        if (executor != null) {
+            getEndpoint().getCamelContext().getExecutorServiceManager().shutdownGraceful(executor);
+            executor = null;
+        }
+        ServiceHelper.stopService(parser);
+        source.shutdown();
+    }
+
+    @Override
+    protected int poll() throws Exception {
+        shutdownRunningTask = null;
+        pendingExchanges = 0;
+        long now = System.nanoTime();
+        // also forgets emails that have been deleted or picked up by someone else in the meantime
+        deferred.values().removeIf(retryAt -> now - retryAt >= 0);
+
+        int max = maxMessagesPerPoll > 0 ? maxMessagesPerPoll : Integer.MAX_VALUE;
+        source.open();
+        try {
+            List<jakarta.mail.Message> messages = source.fetch(max);
+            Queue<Object> batch = new ArrayDeque<>(messages);
+            return processBatch(batch);
+        } finally {
+            source.close();
+        }
+    }
+
+    @Override
+    public int processBatch(Queue<Object> messages) throws Exception {
+        int total = messages.size();
+        if (executor == null) {
+            for (int index = 0; index < total && isBatchAllowed(); index++) {
+                pendingExchanges = total - index - 1;
+                processMessage((jakarta.mail.Message) messages.poll(), index, total);
+            }
+            rollbackRemaining(messages);
+            return total;
+        }
+
+        CountDownLatch done = new CountDownLatch(total);
+        for (int index = 0; index < total && isBatchAllowed(); index++) {
+            pendingExchanges = total - index - 1;
+            jakarta.mail.Message message = (jakarta.mail.Message) messages.poll();
+            int batchIndex = index;
+            executor.execute(() -> {
+                try {
+                    processMessage(message, batchIndex, total);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        // shutdown only waits for the emails already handed to the executor
+        for (int i = rollbackRemaining(messages); i > 0; i--) {
+            done.countDown();
+        }
+        done.await();
+        return total;
+    }
+
+    /**
+     * Leaves the emails of the batch that were not processed, because the consumer is stopping, for a later poll.
+     * Returns how many there were.
+     */
+    private int rollbackRemaining(Queue<Object> messages) {
+        int remaining = 0;
+        Object message;
+        while ((message = messages.poll()) != null) {
+            remaining++;
+            release((jakarta.mail.Message) message);
+        }
+        return remaining;
+    }
+
+    private void processMessage(jakarta.mail.Message message, int index, int total) {
+        String messageId = messageId(message);
+        if (messageId != null && deferred.containsKey(messageId)) {
+            release(message);
+            return;
+        }
+
+        Exchange exchange = createExchange(false);
+        boolean retryable = false;
+        try {
+            populateExchange(exchange, message);
+            exchange.setProperty(ExchangePropertyKey.BATCH_INDEX, index);
+            exchange.setProperty(ExchangePropertyKey.BATCH_SIZE, total);
+            exchange.setProperty(ExchangePropertyKey.BATCH_COMPLETE, index == total - 1);
+
+            parser.process(exchange);
+            retryable = exchange.getIn().getHeader(EmailCsvProcessorConstants.RETRYABLE, false, Boolean.class);
+            if (!retryable) {
+                getProcessor().process(exchange);
+            }
+        } catch (Exception e) {
+            exchange.setException(e);
+        }
+
+        try {
+            if (retryable) {
+                if (messageId != null) {
+                    long retryAfter = exchange.getIn().getHeader(EmailCsvProcessorConstants.RETRY_AFTER, 0L, Long.class);
+                    deferred.put(messageId, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryAfter));
+                }
+                source.rollback(message);
+            } else if (exchange.getException() != null) {
+                source.rollback(message);
+                getExceptionHandler().handleException("Error processing email", exchange, exchange.getException());
+            } else {
+                source.commit(message);
+            }
+        } catch (Exception e) {
+            getExceptionHandler().handleException("Error completing email", exchange, e);
+        } finally {
+            releaseExchange(exchange, false);
+        }
+    }
+
+    private void release(jakarta.mail.Message message) {
+        try {
+            source.rollback(message);
+        } catch (Exception e) {
+            getExceptionHandler().handleException("Error releasing email", e);
+        }
+    }
+
+    private static String messageId(jakarta.mail.Message message) {
+        try {
+            return message instanceof MimeMessage mime ? mime.getMessageID() : null;
+        } catch (Exception e) {
+            // an email that cannot be told apart from the others is simply retried on the next poll
+            return null;
+        }
+    }
+
+    /**
+     * Copies the headers the producer expects and every attachment of the email onto the exchange,
+     * the same way a camel-mail consumer would.
+     */
+    static void populateExchange(Exchange exchange, jakarta.mail.Message message) throws Exception {
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        exchange.setIn(in);
+
+        Address[] from = message.getFrom();
+        if (from != null && from.length > 0) {
+            in.setHeader("From", from[0] instanceof InternetAddress ? ((InternetAddress) from[0]).getAddress() : from[0].toString());
+        }
+        in.setHeader("Subject", message.getSubject());
+        Date receivedDate = message.getReceivedDate() != null ? message.getReceivedDate() : message.getSentDate();
+        in.setHeader("CamelMailMessageReceivedDate", receivedDate);
+
+        addAttachments(in, message);
+    }
+
+    private static void addAttachments(AttachmentMessage in, Part part) throws Exception {
+        if (part.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                addAttachments(in, multipart.getBodyPart(i));
+            }
+        } else if (part.getFileName() != null) {
+            in.addAttachment(part.getFileName(), part.getDataHandler());
+        }
+    }
+}
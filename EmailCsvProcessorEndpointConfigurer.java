@@ -0,0 +1,485 @@
+package org.component;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.spi.GeneratedPropertyConfigurer;
+import org.apache.camel.spi.PropertyConfigurerGetter;
+import org.apache.camel.support.component.PropertyConfigurerSupport;
+
+/**
+ * Sets the endpoint options from URI parameters with a plain string switch, the same way Camel's generated
+ * configurers do, so creating an endpoint never falls back to reflection. Covers the options inherited from
+ * {@link org.apache.camel.support.ScheduledPollEndpoint} as well.
+ */
+@SuppressWarnings("unchecked")
+public class EmailCsvProcessorEndpointConfigurer extends PropertyConfigurerSupport implements GeneratedPropertyConfigurer, PropertyConfigurerGetter {
+
+    @Override
+    public boolean configure(CamelContext camelContext, Object obj, String name, Object value, boolean ignoreCase) {
+        EmailCsvProcessorEndpoint target = (EmailCsvProcessorEndpoint) obj;
+        switch (ignoreCase ? name.toLowerCase() : name) {
+        case "aggregateendpoint":
+        case "aggregateEndpoint": target.setAggregateEndpoint(property(camelContext, java.lang.String.class, value)); return true;
+        case "aggregatemaxbytes":
+        case "aggregateMaxBytes": target.setAggregateMaxBytes(property(camelContext, long.class, value)); return true;
+        case "aggregatemaxrecords":
+        case "aggregateMaxRecords": target.setAggregateMaxRecords(property(camelContext, int.class, value)); return true;
+        case "aggregatewindow":
+        case "aggregateWindow": target.setAggregateWindow(property(camelContext, long.class, value)); return true;
+        case "asyncpoolsize":
+        case "asyncPoolSize": target.setAsyncPoolSize(property(camelContext, int.class, value)); return true;
+        case "asyncprocessing":
+        case "asyncProcessing": target.setAsyncProcessing(property(camelContext, boolean.class, value)); return true;
+        case "attachmentparallelism":
+        case "attachmentParallelism": target.setAttachmentParallelism(property(camelContext, int.class, value)); return true;
+        case "backofferrorthreshold":
+        case "backoffErrorThreshold": target.setBackoffErrorThreshold(property(camelContext, int.class, value)); return true;
+        case "backoffidlethreshold":
+        case "backoffIdleThreshold": target.setBackoffIdleThreshold(property(camelContext, int.class, value)); return true;
+        case "backoffmultiplier":
+        case "backoffMultiplier": target.setBackoffMultiplier(property(camelContext, int.class, value)); return true;
+        case "batchendpoint":
+        case "batchEndpoint": target.setBatchEndpoint(property(camelContext, java.lang.String.class, value)); return true;
+        case "batchsize":
+        case "batchSize": target.setBatchSize(property(camelContext, int.class, value)); return true;
+        case "bridgeerrorhandler":
+        case "bridgeErrorHandler": target.setBridgeErrorHandler(property(camelContext, boolean.class, value)); return true;
+        case "charset": target.setCharset(property(camelContext, java.lang.String.class, value)); return true;
+        case "concurrentconsumers":
+        case "concurrentConsumers": target.setConcurrentConsumers(property(camelContext, int.class, value)); return true;
+        case "csvparser":
+        case "csvParser": target.setCsvParser(property(camelContext, java.lang.String.class, value)); return true;
+        case "delay": target.setDelay(property(camelContext, long.class, value)); return true;
+        case "directory": target.setDirectory(property(camelContext, java.lang.String.class, value)); return true;
+        case "employeedirectoryfile":
+        case "employeeDirectoryFile": target.setEmployeeDirectoryFile(property(camelContext, java.lang.String.class, value)); return true;
+        case "employeedirectoryreloadinterval":
+        case "employeeDirectoryReloadInterval": target.setEmployeeDirectoryReloadInterval(property(camelContext, long.class, value)); return true;
+        case "exceptionhandler":
+        case "exceptionHandler": target.setExceptionHandler(property(camelContext, org.apache.camel.spi.ExceptionHandler.class, value)); return true;
+        case "exchangepattern":
+        case "exchangePattern": target.setExchangePattern(property(camelContext, org.apache.camel.ExchangePattern.class, value)); return true;
+        case "executorservice":
+        case "executorService": target.setExecutorService(property(camelContext, java.util.concurrent.ExecutorService.class, value)); return true;
+        case "greedy": target.setGreedy(property(camelContext, boolean.class, value)); return true;
+        case "idempotent": target.setIdempotent(property(camelContext, boolean.class, value)); return true;
+        case "idempotentcachesize":
+        case "idempotentCacheSize": target.setIdempotentCacheSize(property(camelContext, int.class, value)); return true;
+        case "idempotentfile":
+        case "idempotentFile": target.setIdempotentFile(property(camelContext, java.lang.String.class, value)); return true;
+        case "idempotentrepository":
+        case "idempotentRepository": target.setIdempotentRepository(property(camelContext, org.apache.camel.spi.IdempotentRepository.class, value)); return true;
+        case "idempotentttl":
+        case "idempotentTtl": target.setIdempotentTtl(property(camelContext, long.class, value)); return true;
+        case "initialdelay":
+        case "initialDelay": target.setInitialDelay(property(camelContext, long.class, value)); return true;
+        case "journaldirectory":
+        case "journalDirectory": target.setJournalDirectory(property(camelContext, java.lang.String.class, value)); return true;
+        case "journalmaxbytes":
+        case "journalMaxBytes": target.setJournalMaxBytes(property(camelContext, long.class, value)); return true;
+        case "journalreasons":
+        case "journalReasons": target.setJournalReasons(property(camelContext, java.lang.String.class, value)); return true;
+        case "journalsegmentsize":
+        case "journalSegmentSize": target.setJournalSegmentSize(property(camelContext, int.class, value)); return true;
+        case "lazystartproducer":
+        case "lazyStartProducer": target.setLazyStartProducer(property(camelContext, boolean.class, value)); return true;
+        case "mailstoreurl":
+        case "mailStoreUrl": target.setMailStoreUrl(property(camelContext, java.lang.String.class, value)); return true;
+        case "maxarchiveentries":
+        case "maxArchiveEntries": target.setMaxArchiveEntries(property(camelContext, int.class, value)); return true;
+        case "maxattachmentbytes":
+        case "maxAttachmentBytes": target.setMaxAttachmentBytes(property(camelContext, long.class, value)); return true;
+        case "maxcompressionratio":
+        case "maxCompressionRatio": target.setMaxCompressionRatio(property(camelContext, int.class, value)); return true;
+        case "maxdecompressedbytes":
+        case "maxDecompressedBytes": target.setMaxDecompressedBytes(property(camelContext, long.class, value)); return true;
+        case "maxinflight":
+        case "maxInFlight": target.setMaxInFlight(property(camelContext, int.class, value)); return true;
+        case "maxmessagesperpoll":
+        case "maxMessagesPerPoll": target.setMaxMessagesPerPoll(property(camelContext, int.class, value)); return true;
+        case "maxrows":
+        case "maxRows": target.setMaxRows(property(camelContext, int.class, value)); return true;
+        case "meterregistry":
+        case "meterRegistry": target.setMeterRegistry(property(camelContext, io.micrometer.core.instrument.MeterRegistry.class, value)); return true;
+        case "metricsenabled":
+        case "metricsEnabled": target.setMetricsEnabled(property(camelContext, boolean.class, value)); return true;
+        case "parallelattachments":
+        case "parallelAttachments": target.setParallelAttachments(property(camelContext, boolean.class, value)); return true;
+        case "parallelcsvchunksize":
+        case "parallelCsvChunkSize": target.setParallelCsvChunkSize(property(camelContext, long.class, value)); return true;
+        case "parallelcsvparallelism":
+        case "parallelCsvParallelism": target.setParallelCsvParallelism(property(camelContext, int.class, value)); return true;
+        case "parallelcsvthreshold":
+        case "parallelCsvThreshold": target.setParallelCsvThreshold(property(camelContext, long.class, value)); return true;
+        case "pollstrategy":
+        case "pollStrategy": target.setPollStrategy(property(camelContext, org.apache.camel.spi.PollingConsumerPollStrategy.class, value)); return true;
+        case "ratelimit":
+        case "rateLimit": target.setRateLimit(property(camelContext, double.class, value)); return true;
+        case "ratelimitburst":
+        case "rateLimitBurst": target.setRateLimitBurst(property(camelContext, int.class, value)); return true;
+        case "ratelimitby":
+        case "rateLimitBy": target.setRateLimitBy(property(camelContext, java.lang.String.class, value)); return true;
+        case "ratelimitmaxdelay":
+        case "rateLimitMaxDelay": target.setRateLimitMaxDelay(property(camelContext, long.class, value)); return true;
+        case "ratelimitmaxkeys":
+        case "rateLimitMaxKeys": target.setRateLimitMaxKeys(property(camelContext, int.class, value)); return true;
+        case "rejectwhensaturated":
+        case "rejectWhenSaturated": target.setRejectWhenSaturated(property(camelContext, boolean.class, value)); return true;
+        case "repeatcount":
+        case "repeatCount": target.setRepeatCount(property(camelContext, long.class, value)); return true;
+        case "rowdedup":
+        case "rowDedup": target.setRowDedup(property(camelContext, boolean.class, value)); return true;
+        case "rowdedupexpectedrows":
+        case "rowDedupExpectedRows": target.setRowDedupExpectedRows(property(camelContext, int.class, value)); return true;
+        case "rowdedupfile":
+        case "rowDedupFile": target.setRowDedupFile(property(camelContext, java.lang.String.class, value)); return true;
+        case "rowdedupsaveinterval":
+        case "rowDedupSaveInterval": target.setRowDedupSaveInterval(property(camelContext, long.class, value)); return true;
+        case "runlogginglevel":
+        case "runLoggingLevel": target.setRunLoggingLevel(property(camelContext, org.apache.camel.LoggingLevel.class, value)); return true;
+        case "scheduledexecutorservice":
+        case "scheduledExecutorService": target.setScheduledExecutorService(property(camelContext, java.util.concurrent.ScheduledExecutorService.class, value)); return true;
+        case "scheduler": target.setScheduler(property(camelContext, java.lang.Object.class, value)); return true;
+        case "schedulerproperties":
+        case "schedulerProperties": target.setSchedulerProperties(property(camelContext, java.util.Map.class, value)); return true;
+        case "sendemptymessagewhenidle":
+        case "sendEmptyMessageWhenIdle": target.setSendEmptyMessageWhenIdle(property(camelContext, boolean.class, value)); return true;
+        case "spooldirectory":
+        case "spoolDirectory": target.setSpoolDirectory(property(camelContext, java.lang.String.class, value)); return true;
+        case "spoolthreshold":
+        case "spoolThreshold": target.setSpoolThreshold(property(camelContext, long.class, value)); return true;
+        case "startscheduler":
+        case "startScheduler": target.setStartScheduler(property(camelContext, boolean.class, value)); return true;
+        case "streambody":
+        case "streamBody": target.setStreamBody(property(camelContext, boolean.class, value)); return true;
+        case "streambodythreshold":
+        case "streamBodyThreshold": target.setStreamBodyThreshold(property(camelContext, long.class, value)); return true;
+        case "streamingxlsx":
+        case "streamingXlsx": target.setStreamingXlsx(property(camelContext, boolean.class, value)); return true;
+        case "timeunit":
+        case "timeUnit": target.setTimeUnit(property(camelContext, java.util.concurrent.TimeUnit.class, value)); return true;
+        case "usefixeddelay":
+        case "useFixedDelay": target.setUseFixedDelay(property(camelContext, boolean.class, value)); return true;
+        case "xlsxsheetparallelism":
+        case "xlsxSheetParallelism": target.setXlsxSheetParallelism(property(camelContext, int.class, value)); return true;
+        case "xlsxsheets":
+        case "xlsxSheets": target.setXlsxSheets(property(camelContext, java.lang.String.class, value)); return true;
+        default: return false;
+        }
+    }
+
+    @Override
+    public Class<?> getOptionType(String name, boolean ignoreCase) {
+        switch (ignoreCase ? name.toLowerCase() : name) {
+        case "aggregateendpoint":
+        case "aggregateEndpoint": return java.lang.String.class;
+        case "aggregatemaxbytes":
+        case "aggregateMaxBytes": return long.class;
+        case "aggregatemaxrecords":
+        case "aggregateMaxRecords": return int.class;
+        case "aggregatewindow":
+        case "aggregateWindow": return long.class;
+        case "asyncpoolsize":
+        case "asyncPoolSize": return int.class;
+        case "asyncprocessing":
+        case "asyncProcessing": return boolean.class;
+        case "attachmentparallelism":
+        case "attachmentParallelism": return int.class;
+        case "backofferrorthreshold":
+        case "backoffErrorThreshold": return int.class;
+        case "backoffidlethreshold":
+        case "backoffIdleThreshold": return int.class;
+        case "backoffmultiplier":
+        case "backoffMultiplier": return int.class;
+        case "batchendpoint":
+        case "batchEndpoint": return java.lang.String.class;
+        case "batchsize":
+        case "batchSize": return int.class;
+        case "bridgeerrorhandler":
+        case "bridgeErrorHandler": return boolean.class;
+        case "charset": return java.lang.String.class;
+        case "concurrentconsumers":
+        case "concurrentConsumers": return int.class;
+        case "csvparser":
+        case "csvParser": return java.lang.String.class;
+        case "delay": return long.class;
+        case "directory": return java.lang.String.class;
+        case "employeedirectoryfile":
+        case "employeeDirectoryFile": return java.lang.String.class;
+        case "employeedirectoryreloadinterval":
+        case "employeeDirectoryReloadInterval": return long.class;
+        case "exceptionhandler":
+        case "exceptionHandler": return org.apache.camel.spi.ExceptionHandler.class;
+        case "exchangepattern":
+        case "exchangePattern": return org.apache.camel.ExchangePattern.class;
+        case "executorservice":
+        case "executorService": return java.util.concurrent.ExecutorService.class;
+        case "greedy": return boolean.class;
+        case "idempotent": return boolean.class;
+        case "idempotentcachesize":
+        case "idempotentCacheSize": return int.class;
+        case "idempotentfile":
+        case "idempotentFile": return java.lang.String.class;
+        case "idempotentrepository":
+        case "idempotentRepository": return org.apache.camel.spi.IdempotentRepository.class;
+        case "idempotentttl":
+        case "idempotentTtl": return long.class;
+        case "initialdelay":
+        case "initialDelay": return long.class;
+        case "journaldirectory":
+        case "journalDirectory": return java.lang.String.class;
+        case "journalmaxbytes":
+        case "journalMaxBytes": return long.class;
+        case "journalreasons":
+        case "journalReasons": return java.lang.String.class;
+        case "journalsegmentsize":
+        case "journalSegmentSize": return int.class;
+        case "lazystartproducer":
+        case "lazyStartProducer": return boolean.class;
+        case "mailstoreurl":
+        case "mailStoreUrl": return java.lang.String.class;
+        case "maxarchiveentries":
+        case "maxArchiveEntries": return int.class;
+        case "maxattachmentbytes":
+        case "maxAttachmentBytes": return long.class;
+        case "maxcompressionratio":
+        case "maxCompressionRatio": return int.class;
+        case "maxdecompressedbytes":
+        case "maxDecompressedBytes": return long.class;
+        case "maxinflight":
+        case "maxInFlight": return int.class;
+        case "maxmessagesperpoll":
+        case "maxMessagesPerPoll": return int.class;
+        case "maxrows":
+        case "maxRows": return int.class;
+        case "meterregistry":
+        case "meterRegistry": return io.micrometer.core.instrument.MeterRegistry.class;
+        case "metricsenabled":
+        case "metricsEnabled": return boolean.class;
+        case "parallelattachments":
+        case "parallelAttachments": return boolean.class;
+        case "parallelcsvchunksize":
+        case "parallelCsvChunkSize": return long.class;
+        case "parallelcsvparallelism":
+        case "parallelCsvParallelism": return int.class;
+        case "parallelcsvthreshold":
+        case "parallelCsvThreshold": return long.class;
+        case "pollstrategy":
+        case "pollStrategy": return org.apache.camel.spi.PollingConsumerPollStrategy.class;
+        case "ratelimit":
+        case "rateLimit": return double.class;
+        case "ratelimitburst":
+        case "rateLimitBurst": return int.class;
+        case "ratelimitby":
+        case "rateLimitBy": return java.lang.String.class;
+        case "ratelimitmaxdelay":
+        case "rateLimitMaxDelay": return long.class;
+        case "ratelimitmaxkeys":
+        case "rateLimitMaxKeys": return int.class;
+        case "rejectwhensaturated":
+        case "rejectWhenSaturated": return boolean.class;
+        case "repeatcount":
+        case "repeatCount": return long.class;
+        case "rowdedup":
+        case "rowDedup": return boolean.class;
+        case "rowdedupexpectedrows":
+        case "rowDedupExpectedRows": return int.class;
+        case "rowdedupfile":
+        case "rowDedupFile": return java.lang.String.class;
+        case "rowdedupsaveinterval":
+        case "rowDedupSaveInterval": return long.class;
+        case "runlogginglevel":
+        case "runLoggingLevel": return org.apache.camel.LoggingLevel.class;
+        case "scheduledexecutorservice":
+        case "scheduledExecutorService": return java.util.concurrent.ScheduledExecutorService.class;
+        case "scheduler": return java.lang.Object.class;
+        case "schedulerproperties":
+        case "schedulerProperties": return java.util.Map.class;
+        case "sendemptymessagewhenidle":
+        case "sendEmptyMessageWhenIdle": return boolean.class;
+        case "spooldirectory":
+        case "spoolDirectory": return java.lang.String.class;
+        case "spoolthreshold":
+        case "spoolThreshold": return long.class;
+        case "startscheduler":
+        case "startScheduler": return boolean.class;
+        case "streambody":
+        case "streamBody": return boolean.class;
+        case "streambodythreshold":
+        case "streamBodyThreshold": return long.class;
+        case "streamingxlsx":
+        case "streamingXlsx": return boolean.class;
+        case "timeunit":
+        case "timeUnit": return java.util.concurrent.TimeUnit.class;
+        case "usefixeddelay":
+        case "useFixedDelay": return boolean.class;
+        case "xlsxsheetparallelism":
+        case "xlsxSheetParallelism": return int.class;
+        case "xlsxsheets":
+        case "xlsxSheets": return java.lang.String.class;
+        default: return null;
+        }
+    }
+
+    @Override
+    public Object getOptionValue(Object obj, String name, boolean ignoreCase) {
+        EmailCsvProcessorEndpoint target = (EmailCsvProcessorEndpoint) obj;
+        switch (ignoreCase ? name.toLowerCase() : name) {
+        case "aggregateendpoint":
+        case "aggregateEndpoint": return target.getAggregateEndpoint();
+        case "aggregatemaxbytes":
+        case "aggregateMaxBytes": return target.getAggregateMaxBytes();
+        case "aggregatemaxrecords":
+        case "aggregateMaxRecords": return target.getAggregateMaxRecords();
+        case "aggregatewindow":
+        case "aggregateWindow": return target.getAggregateWindow();
+        case "asyncpoolsize":
+        case "asyncPoolSize": return target.getAsyncPoolSize();
+        case "asyncprocessing":
+        case "asyncProcessing": return target.isAsyncProcessing();
+        case "attachmentparallelism":
+        case "attachmentParallelism": return target.getAttachmentParallelism();
+        case "backofferrorthreshold":
+        case "backoffErrorThreshold": return target.getBackoffErrorThreshold();
+        case "backoffidlethreshold":
+        case "backoffIdleThreshold": return target.getBackoffIdleThreshold();
+        case "backoffmultiplier":
+        case "backoffMultiplier": return target.getBackoffMultiplier();
+        case "batchendpoint":
+        case "batchEndpoint": return target.getBatchEndpoint();
+        case "batchsize":
+        case "batchSize": return target.getBatchSize();
+        case "bridgeerrorhandler":
+        case "bridgeErrorHandler": return target.isBridgeErrorHandler();
+        case "charset": return target.getCharset();
+        case "concurrentconsumers":
+        case "concurrentConsumers": return target.getConcurrentConsumers();
+        case "csvparser":
+        case "csvParser": return target.getCsvParser();
+        case "delay": return target.getDelay();
+        case "directory": return target.getDirectory();
+        case "employeedirectoryfile":
+        case "employeeDirectoryFile": return target.getEmployeeDirectoryFile();
+        case "employeedirectoryreloadinterval":
+        case "employeeDirectoryReloadInterval": return target.getEmployeeDirectoryReloadInterval();
+        case "exceptionhandler":
+        case "exceptionHandler": return target.getExceptionHandler();
+        case "exchangepattern":
+        case "exchangePattern": return target.getExchangePattern();
+        case "executorservice":
+        case "executorService": return target.getExecutorService();
+        case "greedy": return target.isGreedy();
+        case "idempotent": return target.isIdempotent();
+        case "idempotentcachesize":
+        case "idempotentCacheSize": return target.getIdempotentCacheSize();
+        case "idempotentfile":
+        case "idempotentFile": return target.getIdempotentFile();
+        case "idempotentrepository":
+        case "idempotentRepository": return target.getIdempotentRepository();
+        case "idempotentttl":
+        case "idempotentTtl": return target.getIdempotentTtl();
+        case "initialdelay":
+        case "initialDelay": return target.getInitialDelay();
+        case "journaldirectory":
+        case "journalDirectory": return target.getJournalDirectory();
+        case "journalmaxbytes":
+        case "journalMaxBytes": return target.getJournalMaxBytes();
+        case "journalreasons":
+        case "journalReasons": return target.getJournalReasons();
+        case "journalsegmentsize":
+        case "journalSegmentSize": return target.getJournalSegmentSize();
+        case "lazystartproducer":
+        case "lazyStartProducer": return target.isLazyStartProducer();
+        case "mailstoreurl":
+        case "mailStoreUrl": return target.getMailStoreUrl();
+        case "maxarchiveentries":
+        case "maxArchiveEntries": return target.getMaxArchiveEntries();
+        case "maxattachmentbytes":
+        case "maxAttachmentBytes": return target.getMaxAttachmentBytes();
+        case "maxcompressionratio":
+        case "maxCompressionRatio": return target.getMaxCompressionRatio();
+        case "maxdecompressedbytes":
+        case "maxDecompressedBytes": return target.getMaxDecompressedBytes();
+        case "maxinflight":
+        case "maxInFlight": return target.getMaxInFlight();
+        case "maxmessagesperpoll":
+        case "maxMessagesPerPoll": return target.getMaxMessagesPerPoll();
+        case "maxrows":
+        case "maxRows": return target.getMaxRows();
+        case "meterregistry":
+        case "meterRegistry": return target.getMeterRegistry();
+        case "metricsenabled":
+        case "metricsEnabled": return target.isMetricsEnabled();
+        case "parallelattachments":
+        case "parallelAttachments": return target.isParallelAttachments();
+        case "parallelcsvchunksize":
+        case "parallelCsvChunkSize": return target.getParallelCsvChunkSize();
+        case "parallelcsvparallelism":
+        case "parallelCsvParallelism": return target.getParallelCsvParallelism();
+        case "parallelcsvthreshold":
+        case "parallelCsvThreshold": return target.getParallelCsvThreshold();
+        case "pollstrategy":
+        case "pollStrategy": return target.getPollStrategy();
+        case "ratelimit":
+        case "rateLimit": return target.getRateLimit();
+        case "ratelimitburst":
+        case "rateLimitBurst": return target.getRateLimitBurst();
+        case "ratelimitby":
+        case "rateLimitBy": return target.getRateLimitBy();
+        case "ratelimitmaxdelay":
+        case "rateLimitMaxDelay": return target.getRateLimitMaxDelay();
+        case "ratelimitmaxkeys":
+        case "rateLimitMaxKeys": return target.getRateLimitMaxKeys();
+        case "rejectwhensaturated":
+        case "rejectWhenSaturated": return target.isRejectWhenSaturated();
+        case "repeatcount":
+        case "repeatCount": return target.getRepeatCount();
+        case "rowdedup":
+        case "rowDedup": return target.isRowDedup();
+        case "rowdedupexpectedrows":
+        case "rowDedupExpectedRows": return target.getRowDedupExpectedRows();
+        case "rowdedupfile":
+        case "rowDedupFile": return target.getRowDedupFile();
+        case "rowdedupsaveinterval":
+        case "rowDedupSaveInterval": return target.getRowDedupSaveInterval();
+        case "runlogginglevel":
+        case "runLoggingLevel": return target.getRunLoggingLevel();
+        case "scheduledexecutorservice":
+        case "scheduledExecutorService": return target.getScheduledExecutorService();
+        case "scheduler": return target.getScheduler();
+        case "schedulerproperties":
+        case "schedulerProperties": return target.getSchedulerProperties();
+        case "sendemptymessagewhenidle":
+        case "sendEmptyMessageWhenIdle": return target.isSendEmptyMessageWhenIdle();
+        case "spooldirectory":
+        case "spoolDirectory": return target.getSpoolDirectory();
+        case "spoolthreshold":
+        case "spoolThreshold": return target.getSpoolThreshold();
+        case "startscheduler":
+        case "startScheduler": return target.isStartScheduler();
+        case "streambody":
+        case "streamBody": return target.isStreamBody();
+        case "streambodythreshold":
+        case "streamBodyThreshold": return target.getStreamBodyThreshold();
+        case "streamingxlsx":
+        case "streamingXlsx": return target.isStreamingXlsx();
+        case "timeunit":
+        case "timeUnit": return target.getTimeUnit();
+        case "usefixeddelay":
+        case "useFixedDelay": return target.isUseFixedDelay();
+        case "xlsxsheetparallelism":
+        case "xlsxSheetParallelism": return target.getXlsxSheetParallelism();
+        case "xlsxsheets":
+        case "xlsxSheets": return target.getXlsxSheets();
+        default: return null;
+        }
+    }
+
+    @Override
+    public Object getCollectionValueType(Object target, String name, boolean ignoreCase) {
+        switch (ignoreCase ? name.toLowerCase() : name) {
+        case "schedulerproperties":
+        case "schedulerProperties": return java.lang.Object.class;
+        default: return null;
+        }
+    }
+}
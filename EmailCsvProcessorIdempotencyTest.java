@@ -0,0 +1,214 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailCsvProcessorIdempotencyTest {
+
+    private static final String CSV = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+            + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n";
+
+    private DefaultCamelContext camelContext;
+    private ProducerTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        template = camelContext.createProducerTemplate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+    }
+
+    @Test
+    void testSecondCopyIsFlaggedAsDuplicate() {
+        camelContext.start();
+        String uri = "emailCsvProcessor:test?idempotent=true";
+
+        Exchange first = send(uri, CSV);
+        Exchange second = send(uri, CSV);
+        Exchange other = send(uri, CSV.replace("John Doe", "Mary Major"));
+
+        assertEquals(false, first.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+        assertNotNull(first.getIn().getBody(LeaveSubmission.class));
+        assertEquals(true, second.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+        assertNull(second.getIn().getBody());
+        assertEquals(first.getIn().getHeader(EmailCsvProcessorConstants.CONTENT_HASH),
+                second.getIn().getHeader(EmailCsvProcessorConstants.CONTENT_HASH));
+        assertEquals(false, other.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+    }
+
+    @Test
+    void testHashesSurviveRestartInFileRepository(@TempDir Path dir) {
+        String uri = "emailCsvProcessor:test?idempotent=true&idempotentFile=" + dir.resolve("hashes.dat");
+        camelContext.start();
+        assertEquals(false, send(uri, CSV).getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+        camelContext.stop();
+
+        DefaultCamelContext restarted = new DefaultCamelContext();
+        restarted.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        restarted.start();
+        try {
+            Exchange exchange = createExchange(restarted, CSV);
+            restarted.createProducerTemplate().send(uri, exchange);
+            assertEquals(true, exchange.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    @Test
+    void testFailedExchangeIsNotRemembered() throws Exception {
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:failing")
+                        .to("emailCsvProcessor:test?idempotent=true")
+                        .throwException(new IllegalStateException("downstream failure"));
+            }
+        });
+        camelContext.start();
+
+        Exchange failed = createExchange(camelContext, CSV);
+        template.send("direct:failing", failed);
+        assertNotNull(failed.getException());
+
+        Exchange retried = send("emailCsvProcessor:test?idempotent=true", CSV);
+        assertEquals(false, retried.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+    }
+
+    @Test
+    void testSmallDuplicateIsNotParsedAgain() {
+        camelContext.start();
+        String uri = "emailCsvProcessor:test?idempotent=true&rowDedup=true";
+
+        Exchange first = send(uri, CSV);
+        Exchange second = send(uri, CSV);
+
+        assertEquals(0, first.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE_ROWS));
+        assertEquals(true, second.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+        // recognized before its rows went through the row deduplicator
+        assertNull(second.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE_ROWS));
+        assertNull(second.getIn().getBody());
+    }
+
+    @Test
+    void testLargeDuplicateIsRecognizedWhileParsed() {
+        camelContext.start();
+        String uri = "emailCsvProcessor:test?idempotent=true";
+        StringBuilder csv = new StringBuilder(CSV);
+        for (int i = 2; csv.length() <= 1024 * 1024; i++) {
+            csv.append(i).append(",John Doe,Jane Roe,2024-01-02,2024-01-03,8\n");
+        }
+
+        Exchange first = send(uri, csv.toString());
+        Exchange second = send(uri, csv.toString());
+
+        assertEquals(false, first.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+        assertEquals(true, second.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+        assertEquals(first.getIn().getHeader(EmailCsvProcessorConstants.CONTENT_HASH),
+                second.getIn().getHeader(EmailCsvProcessorConstants.CONTENT_HASH));
+        assertNull(second.getIn().getBody());
+    }
+
+    @Test
+    void testBatchedCopyArrivingWhileTheFirstIsSentIsADuplicate() throws Exception {
+        String uri = "emailCsvProcessor:test?idempotent=true&batchSize=1&batchEndpoint=direct:batches";
+        List<Exchange> copies = new ArrayList<>();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:batches").process(exchange -> {
+                    if (copies.isEmpty()) {
+                        // the second copy arrives before the first has finished
+                        copies.add(send(uri, CSV));
+                    }
+                });
+            }
+        });
+        camelContext.start();
+
+        Exchange first = send(uri, CSV);
+
+        assertEquals(false, first.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+        assertEquals(true, copies.get(0).getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+    }
+
+    @Test
+    void testRejectedBatchedEmailIsNotRemembered() throws Exception {
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:batches").to("mock:batches");
+            }
+        });
+        camelContext.start();
+        String uri = "emailCsvProcessor:test?idempotent=true&batchSize=1&batchEndpoint=direct:batches";
+        String invalid = CSV + "2,Mary Major,,2024-01-04,2024-01-05,4\n";
+
+        Exchange rejected = send(uri, invalid);
+        Exchange retried = send(uri, invalid);
+
+        assertNotNull(rejected.getIn().getHeader("ErrorReason"));
+        assertEquals(false, retried.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+    }
+
+    @Test
+    void testCacheEvictsLeastRecentlyUsedAndExpiredHashes() {
+        AtomicLong now = new AtomicLong();
+        ContentHashCache cache = new ContentHashCache(2, 100, null, now::get);
+
+        assertTrue(cache.add("a"));
+        assertTrue(cache.add("b"));
+        assertFalse(cache.add("a"));
+        assertTrue(cache.add("c"));
+
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        now.set(100);
+        assertFalse(cache.contains("a"));
+        assertTrue(cache.add("a"));
+    }
+
+    private Exchange send(String uri, String csv) {
+        Exchange exchange = createExchange(camelContext, csv);
+        template.send(uri, exchange);
+        return exchange;
+    }
+
+    private static Exchange createExchange(DefaultCamelContext context, String csv) {
+        Exchange exchange = new DefaultExchange(context);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", "john.doe@example.com");
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(csv.getBytes(StandardCharsets.UTF_8), "text/csv");
+        dataSource.setName("leave.csv");
+        in.addAttachment("leave.csv", new DataHandler(dataSource));
+        exchange.setIn(in);
+        return exchange;
+    }
+}
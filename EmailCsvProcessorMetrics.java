@@ -0,0 +1,251 @@
+package org.component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation of the processor pipeline.
+ * <p>
+ * Meters are registered once per endpoint and looked up from fields while processing, so recording is a few
+ * atomic updates. When metrics are disabled the shared {@link #DISABLED} instance is used, which never reads
+ * the clock and never wraps a stream.
+ * <p>
+ * Published meters, all tagged with the endpoint key:
+ * <ul>
+ *     <li>{@code emailcsv.stage} timer per {@code stage} ({@code validate}, {@code throttle}, {@code parse},
+ *     {@code envelope}, {@code total}) and {@code type} ({@code CSV}, {@code XLSX}, {@code none}), {@code throttle}
+ *     being the time emails over the rate limit were held back</li>
+ *     <li>{@code emailcsv.rows.parsed} and {@code emailcsv.bytes.read} counters per {@code type}</li>
+ *     <li>{@code emailcsv.attachment.size} histogram per {@code type}</li>
+ *     <li>{@code emailcsv.errors} counter per {@code reason}</li>
+ * </ul>
+ */
+public class EmailCsvProcessorMetrics {
+
+    public static final String REASON_MISSING_EMAIL = "missing_email";
+    public static final String REASON_INVALID_EMAIL = "invalid_email";
+    public static final String REASON_MISSING_METADATA = "missing_metadata";
+    public static final String REASON_MISSING_ATTACHMENT = "missing_attachment";
+    public static final String REASON_HEADER_MISMATCH = "header_mismatch";
+    public static final String REASON_MISSING_VALUES = "missing_values";
+    public static final String REASON_INVALID_FILE = "invalid_file";
+    public static final String REASON_LIMIT_EXCEEDED = "limit_exceeded";
+    public static final String REASON_RATE_LIMITED = "rate_limited";
+    public static final String REASON_UNEXPECTED = "unexpected";
+
+    static final EmailCsvProcessorMetrics DISABLED = new EmailCsvProcessorMetrics();
+
+    private static final String NO_FILE_TYPE = "none";
+
+    private final MeterRegistry registry;
+    private final Tags tags;
+    private final Timer validateTimer;
+    private final Timer throttleTimer;
+    private final Timer envelopeTimer;
+    private final Timer totalTimer;
+    private final AttachmentMeters csvMeters;
+    private final AttachmentMeters xlsxMeters;
+    private final AttachmentMeters zipMeters;
+    private final AttachmentMeters gzipMeters;
+    private final Map<String, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    private EmailCsvProcessorMetrics() {
+        this.registry = null;
+        this.tags = null;
+        this.validateTimer = null;
+        this.throttleTimer = null;
+        this.envelopeTimer = null;
+        this.totalTimer = null;
+        this.csvMeters = null;
+        this.xlsxMeters = null;
+        this.zipMeters = null;
+        this.gzipMeters = null;
+    }
+
+    private EmailCsvProcessorMetrics(MeterRegistry registry, String endpointKey) {
+        this.registry = registry;
+        this.tags = Tags.of("endpoint", endpointKey);
+        this.validateTimer = stageTimer("validate", NO_FILE_TYPE);
+        this.throttleTimer = stageTimer("throttle", NO_FILE_TYPE);
+        this.envelopeTimer = stageTimer("envelope", NO_FILE_TYPE);
+        this.totalTimer = stageTimer("total", NO_FILE_TYPE);
+        this.csvMeters = new AttachmentMeters("CSV");
+        this.xlsxMeters = new AttachmentMeters("XLSX");
+        this.zipMeters = new AttachmentMeters("ZIP");
+        this.gzipMeters = new AttachmentMeters("GZIP");
+    }
+
+    /**
+     * Metrics for the endpoint, registered with {@link EmailCsvProcessorEndpoint#getMeterRegistry()}, the single
+     * {@link MeterRegistry} bound in the Camel registry (the Spring Boot one when running in Spring Boot), or the
+     * Micrometer global registry, in that order.
+     */
+    static EmailCsvProcessorMetrics create(EmailCsvProcessorEndpoint endpoint) {
+        if (!endpoint.isMetricsEnabled()) {
+            return DISABLED;
+        }
+        MeterRegistry registry = endpoint.getMeterRegistry();
+        if (registry == null) {
+            registry = endpoint.getCamelContext().getRegistry().findSingleByType(MeterRegistry.class);
+        }
+        if (registry == null) {
+            registry = Metrics.globalRegistry;
+        }
+        return new EmailCsvProcessorMetrics(registry, endpoint.getEndpointKey());
+    }
+
+    public boolean isEnabled() {
+        return registry != null;
+    }
+
+    /**
+     * Start time to pass to the {@code record} methods, 0 when disabled.
+     */
+    public long start() {
+        return registry != null ? System.nanoTime() : 0;
+    }
+
+    public void recordValidate(long start) {
+        record(validateTimer, start);
+    }
+
+    public void recordThrottle(long start) {
+        record(throttleTimer, start);
+    }
+
+    public void recordEnvelope(long start) {
+        record(envelopeTimer, start);
+    }
+
+    public void recordTotal(long start) {
+        record(totalTimer, start);
+    }
+
+    /**
+     * Records parsing one attachment, {@code in} being the stream returned by {@link #countBytes(InputStream)}. The
+     * bytes of a ZIP or gzip attachment are the compressed ones, its rows those of all the entries parsed.
+     */
+    public void recordParse(String fileType, long start, InputStream in, long rows) {
+        if (registry == null) {
+            return;
+        }
+        AttachmentMeters meters = switch (fileType) {
+            case "CSV" -> csvMeters;
+            case "ZIP" -> zipMeters;
+            case "GZIP" -> gzipMeters;
+            default -> xlsxMeters;
+        };
+        long bytes = in instanceof CountingInputStream ? ((CountingInputStream) in).count : 0;
+        record(meters.parseTimer, start);
+        meters.rows.increment(rows);
+        meters.bytes.increment(bytes);
+        meters.size.record(bytes);
+    }
+
+    public void recordError(String reason) {
+        if (registry == null) {
+            return;
+        }
+        errorCounters.computeIfAbsent(reason, r -> Counter.builder("emailcsv.errors")
+                .description("Emails rejected by the processor")
+                .tags(tags).tag("reason", r)
+                .register(registry)).increment();
+    }
+
+    /**
+     * Wraps the stream to count the bytes read from it, returns the stream itself when disabled.
+     */
+    public InputStream countBytes(InputStream in) {
+        return registry != null ? new CountingInputStream(in) : in;
+    }
+
+    private void record(Timer timer, long start) {
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer stageTimer(String stage, String fileType) {
+        return Timer.builder("emailcsv.stage")
+                .description("Time spent per processing stage")
+                .tags(tags).tag("stage", stage).tag("type", fileType)
+                .register(registry);
+    }
+
+    private final class AttachmentMeters {
+
+        private final Timer parseTimer;
+        private final Counter rows;
+        private final Counter bytes;
+        private final DistributionSummary size;
+
+        AttachmentMeters(String fileType) {
+            parseTimer = stageTimer("parse", fileType);
+            rows = Counter.builder("emailcsv.rows.parsed")
+                    .description("Leave rows parsed from attachments")
+                    .tags(tags).tag("type", fileType)
+                    .register(registry);
+            bytes = Counter.builder("emailcsv.bytes.read")
+                    .description("Attachment bytes read")
+                    .baseUnit("bytes")
+                    .tags(tags).tag("type", fileType)
+                    .register(registry);
+            size = DistributionSummary.builder("emailcsv.attachment.size")
+                    .description("Size of the parsed attachments")
+                    .baseUnit("bytes")
+                    .publishPercentileHistogram()
+                    .tags(tags).tag("type", fileType)
+                    .register(registry);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.component;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.Producer;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailCsvProcessorMetricsTest {
+
+    private static final String CSV = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+            + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n"
+            + "2,Mary Major,Jane Roe,2024-01-04,2024-01-05,4\n";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private DefaultCamelContext camelContext;
+    private Producer producer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.getRegistry().bind("registry", registry);
+        camelContext.start();
+        producer = camelContext.getEndpoint("emailCsvProcessor:test?metricsEnabled=true").createProducer();
+        producer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        producer.stop();
+        camelContext.stop();
+    }
+
+    @Test
+    void testRecordsStagesRowsAndBytes() throws Exception {
+        Exchange exchange = createExchange("john.doe@example.com", "leave.csv", CSV);
+        producer.process(exchange);
+
+        assertNotNull(exchange.getIn().getBody(LeaveSubmission.class));
+        assertEquals(2, registry.get("emailcsv.rows.parsed").tag("type", "CSV").counter().count());
+        assertEquals(CSV.length(), registry.get("emailcsv.bytes.read").tag("type", "CSV").counter().count());
+        assertEquals(1, registry.get("emailcsv.attachment.size").tag("type", "CSV").summary().count());
+        for (String stage : new String[]{"validate", "envelope", "total"}) {
+            assertEquals(1, registry.get("emailcsv.stage").tag("stage", stage).timer().count(), stage);
+        }
+        assertEquals(1, registry.get("emailcsv.stage").tag("stage", "parse").tag("type", "CSV").timer().count());
+        assertNull(registry.find("emailcsv.errors").counter());
+    }
+
+    @Test
+    void testCountsErrorsByReason() throws Exception {
+        producer.process(createExchange("not an email", "leave.csv", CSV));
+        producer.process(createExchange("john.doe@example.com", "leave.csv", "id,name\n1,John\n"));
+        producer.process(createExchange("john.doe@example.com", "leave.csv",
+                "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n1,John Doe,,2024-01-02,2024-01-03,8\n"));
+
+        assertEquals(1, registry.get("emailcsv.errors").tag("reason", EmailCsvProcessorMetrics.REASON_INVALID_EMAIL).counter().count());
+        assertEquals(1, registry.get("emailcsv.errors").tag("reason", EmailCsvProcessorMetrics.REASON_HEADER_MISMATCH).counter().count());
+        assertEquals(1, registry.get("emailcsv.errors").tag("reason", EmailCsvProcessorMetrics.REASON_MISSING_VALUES).counter().count());
+    }
+
+    @Test
+    void testCountsRowLimitAsLimitExceeded() throws Exception {
+        Producer limited = camelContext.getEndpoint("emailCsvProcessor:limited?metricsEnabled=true&maxRows=1").createProducer();
+        limited.start();
+        Exchange exchange = createExchange("john.doe@example.com", "leave.csv", CSV);
+        limited.process(exchange);
+        limited.stop();
+
+        assertNotNull(exchange.getIn().getHeader("ErrorReason"));
+        assertEquals(1, registry.get("emailcsv.errors").tag("reason", EmailCsvProcessorMetrics.REASON_LIMIT_EXCEEDED).counter().count());
+        assertNull(registry.find("emailcsv.errors").tag("reason", EmailCsvProcessorMetrics.REASON_INVALID_FILE).counter());
+    }
+
+    @Test
+    void testDisabledByDefault() throws Exception {
+        int meters = registry.getMeters().size();
+        Producer plain = camelContext.getEndpoint("emailCsvProcessor:plain").createProducer();
+        plain.start();
+        plain.process(createExchange("john.doe@example.com", "leave.csv", CSV));
+        plain.stop();
+
+        assertEquals(meters, registry.getMeters().size());
+    }
+
+    private Exchange createExchange(String from, String fileName, String content) throws Exception {
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", from);
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(content.getBytes(StandardCharsets.UTF_8), "text/csv");
+        dataSource.setName(fileName);
+        in.addAttachment(fileName, new DataHandler(dataSource));
+        exchange.setIn(in);
+        return exchange;
+    }
+}
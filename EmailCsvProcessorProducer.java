@@ -1,191 +1,929 @@
 package org.component;
 
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Endpoint;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
+import org.apache.camel.ProducerTemplate;
 import org.apache.camel.attachment.AttachmentMessage;
-import org.apache.camel.support.DefaultProducer;
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvValidationException;
+import org.apache.camel.spi.ThreadPoolProfile;
+import org.apache.camel.support.DefaultAsyncProducer;
+import org.apache.camel.support.SynchronizationAdapter;
 
 import jakarta.activation.DataHandler;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.InputStreamReader;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
 
-public class EmailCsvProcessorProducer extends DefaultProducer {
+public class EmailCsvProcessorProducer extends DefaultAsyncProducer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailCsvProcessorProducer.class);
+
+    /**
+     * Total attachment size up to which an idempotent email is hashed before parsing, see {@link #hashSmallAttachments}.
+     */
+    private static final long UP_FRONT_HASH_LIMIT = 1024 * 1024;
+
+    static final String[] EXPECTED_HEADERS = {"employee_id", "employee_name", "manager", "start_date", "end_date", "no_of_hours"};
+
+    private Charset charset;
+    private boolean useCsvTokenizer;
+    private Pattern xlsxSheets;
+    private Map<String, AttachmentParser> parsers;
+    private ProducerTemplate batchTemplate;
+    private Endpoint batchTarget;
+    private ExecutorService attachmentExecutor;
+    private ExecutorService sheetExecutor;
+    private ExecutorService csvChunkExecutor;
+    private boolean shutdownAttachmentExecutor;
+    private Semaphore attachmentSlots;
+    private EmailCsvProcessorMetrics metrics = EmailCsvProcessorMetrics.DISABLED;
+    private ContentHashCache contentHashes;
+    private ParallelCsvParser parallelCsv;
+    private LeaveAggregator aggregator;
+    private EmployeeDirectory employeeDirectory;
+    private SenderRateLimiter rateLimiter;
+    private boolean rateLimitByCompany;
+    private FailureJournal journal;
+    private Set<String> journalReasons;
+    private RowDeduplicator rowDeduplicator;
 
     public EmailCsvProcessorProducer(EmailCsvProcessorEndpoint endpoint) {
         super(endpoint);
     }
 
     @Override
-    public void process(Exchange exchange) throws Exception {
+    public EmailCsvProcessorEndpoint getEndpoint() {
+        return (EmailCsvProcessorEndpoint) super.getEndpoint();
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        charset = Charset.forName(getEndpoint().getCharset());
+        String csvParser = getEndpoint().getCsvParser();
+        if (!"fast".equals(csvParser) && !"opencsv".equals(csvParser)) {
+            throw new IllegalArgumentException("Unknown csvParser: " + csvParser + ", expected fast or opencsv");
+        }
+        // the tokenizer matches delimiters as single bytes, anything else has to go through OpenCSV
+        useCsvTokenizer = "fast".equals(csvParser) && LeaveCsvTokenizer.supports(charset);
+        xlsxSheets = getEndpoint().getXlsxSheets() != null
+                ? Pattern.compile("*".equals(getEndpoint().getXlsxSheets()) ? ".*" : getEndpoint().getXlsxSheets())
+                : null;
+        parsers = new ConcurrentHashMap<>();
+        metrics = EmailCsvProcessorMetrics.create(getEndpoint());
+        contentHashes = getEndpoint().isIdempotent() ? getEndpoint().getContentHashCache() : null;
+        employeeDirectory = getEndpoint().getEmployeeDirectoryFile() != null ? getEndpoint().getEmployeeDirectory() : null;
+        if (getEndpoint().getRateLimit() > 0) {
+            String rateLimitBy = getEndpoint().getRateLimitBy();
+            if (!"domain".equals(rateLimitBy) && !"company".equals(rateLimitBy)) {
+                throw new IllegalArgumentException("Unknown rateLimitBy: " + rateLimitBy + ", expected domain or company");
+            }
+            rateLimitByCompany = "company".equals(rateLimitBy);
+            rateLimiter = getEndpoint().getRateLimiter();
+        }
+        rowDeduplicator = getEndpoint().isRowDedup() ? getEndpoint().getRowDeduplicator() : null;
+        if (getEndpoint().getJournalDirectory() != null) {
+            journalReasons = new HashSet<>();
+            for (String reason : getEndpoint().getJournalReasons().split(",")) {
+                journalReasons.add(reason.trim());
+            }
+            journal = getEndpoint().getFailureJournal();
+        }
+        if (getEndpoint().getParallelCsvThreshold() > 0 && useCsvTokenizer) {
+            // a pool of its own, so the chunks of one large attachment cannot take the threads of the whole JVM
+            ThreadPoolProfile profile = new ThreadPoolProfile("EmailCsvProcessorCsvChunks");
+            profile.setPoolSize(getEndpoint().getParallelCsvParallelism());
+            profile.setMaxPoolSize(getEndpoint().getParallelCsvParallelism());
+            profile.setKeepAliveTime(0L);
+            profile.setAllowCoreThreadTimeOut(false);
+            profile.setMaxQueueSize(-1);
+            csvChunkExecutor = getEndpoint().getCamelContext().getExecutorServiceManager()
+                    .newThreadPool(this, "EmailCsvProcessorCsvChunks", profile);
+            parallelCsv = new ParallelCsvParser(csvChunkExecutor, getEndpoint().getParallelCsvChunkSize(), charset,
+                    getEndpoint().getMaxRows());
+        }
+        if (getEndpoint().getBatchSize() > 0) {
+            if (getEndpoint().getBatchEndpoint() == null) {
+                throw new IllegalArgumentException("batchEndpoint must be configured when batchSize is set");
+            }
+            batchTarget = getEndpoint().getCamelContext().getEndpoint(getEndpoint().getBatchEndpoint());
+            batchTemplate = getEndpoint().getCamelContext().createProducerTemplate();
+        }
+        if (getEndpoint().getAggregateEndpoint() != null) {
+            if (getEndpoint().getBatchSize() > 0) {
+                throw new IllegalArgumentException("batchSize and aggregateEndpoint cannot be used together");
+            }
+            aggregator = getEndpoint().getAggregator();
+        }
+        if (xlsxSheets != null && getEndpoint().isStreamingXlsx()) {
+            // the sheets are read from the zip, apart from the attachment pool whose threads wait for them
+            ThreadPoolProfile profile = new ThreadPoolProfile("EmailCsvProcessorXlsxSheets");
+            profile.setPoolSize(getEndpoint().getXlsxSheetParallelism());
+            profile.setMaxPoolSize(getEndpoint().getXlsxSheetParallelism());
+            profile.setKeepAliveTime(0L);
+            profile.setAllowCoreThreadTimeOut(false);
+            profile.setMaxQueueSize(-1);
+            sheetExecutor = getEndpoint().getCamelContext().getExecutorServiceManager()
+                    .newThreadPool(this, "EmailCsvProcessorXlsxSheets", profile);
+        }
+        if (getEndpoint().isParallelAttachments()) {
+            attachmentExecutor = getEndpoint().getExecutorService();
+            if (attachmentExecutor == null) {
+                // virtual threads when camel.threads.virtual.enabled is set on Java 21+, platform threads otherwise
+                attachmentExecutor = getEndpoint().getCamelContext().getExecutorServiceManager()
+                        .newFixedThreadPool(this, "EmailCsvProcessorAttachments", getEndpoint().getAttachmentParallelism());
+                shutdownAttachmentExecutor = true;
+            }
+            // a pool of platform threads is bounded by its size, a custom executor or a thread per virtual task is not
+            attachmentSlots = shutdownAttachmentExecutor && attachmentExecutor instanceof ThreadPoolExecutor
+                    ? null
+                    : new Semaphore(getEndpoint().getAttachmentParallelism());
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        if (batchTemplate != null) {
+            batchTemplate.stop();
+            batchTemplate = null;
+        }
+        if (shutdownAttachmentExecutor) {
+            getEndpoint().getCamelContext().getExecutorServiceManager().shutdown(attachmentExecutor);
+            shutdownAttachmentExecutor = false;
+        }
+        attachmentExecutor = null;
+        if (sheetExecutor != null) {
+            getEndpoint().getCamelContext().getExecutorServiceManager().shutdown(sheetExecutor);
+            sheetExecutor = null;
+        }
+        if (csvChunkExecutor != null) {
+            getEndpoint().getCamelContext().getExecutorServiceManager().shutdown(csvChunkExecutor);
+            csvChunkExecutor = null;
+        }
+        parallelCsv = null;
+        // shared with the other producers, stopped with the endpoint
+        aggregator = null;
+        employeeDirectory = null;
+        rateLimiter = null;
+        journal = null;
+        rowDeduplicator = null;
+        super.doStop();
+    }
+
+    /**
+     * An aggregated email completes once the bulk submissions carrying its records have been delivered, and fails
+     * with them, so its content hash and rows are forgotten and the email is journaled or left in the mailbox.
+     */
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        long start = metrics.start();
+        RowDeduplicator.Session rows = rowDeduplicator != null ? rowDeduplicator.newSession() : null;
+        CompletableFuture<Void> delivered;
+        try {
+            delivered = processEmail(exchange, start, rows);
+        } finally {
+            metrics.recordTotal(start);
+        }
+        if (rows != null) {
+            settleRows(exchange, rows);
+        }
+        if (journal != null && journalReasons.contains(FailureJournal.REASON_DOWNSTREAM)
+                && exchange.getIn().getHeader("ErrorReason") == null && !isReplayed(exchange)) {
+            journalOnFailure(exchange);
+        }
+
+        if (delivered == null) {
+            callback.done(true);
+            return true;
+        }
+        if (delivered.isDone()) {
+            // runs right away
+            delivered.whenComplete((result, failure) -> failIfUndelivered(exchange, failure));
+            callback.done(true);
+            return true;
+        }
+        delivered.whenComplete((result, failure) -> {
+            failIfUndelivered(exchange, failure);
+            callback.done(false);
+        });
+        return false;
+    }
+
+    private static void failIfUndelivered(Exchange exchange, Throwable failure) {
+        if (failure != null) {
+            exchange.setException(failure);
+        }
+    }
+
+    /**
+     * Forgets the rows of a failed email, here or further down the route, so they pass when it is sent again. The
+     * rows of an email that completes count as received from then on.
+     */
+    private static void settleRows(Exchange exchange, RowDeduplicator.Session rows) {
+        if (exchange.getIn().getHeader("ErrorReason") != null) {
+            rows.rollback();
+            return;
+        }
+        exchange.getExchangeExtension().addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onComplete(Exchange exchange) {
+                rows.commit();
+            }
+
+            @Override
+            public void onFailure(Exchange exchange) {
+                rows.rollback();
+            }
+        });
+    }
+
+    /**
+     * Journals the email when the exchange fails further down the route. The message is captured now, since the
+     * route may have replaced it with one without the attachments by then.
+     */
+    private void journalOnFailure(Exchange exchange) {
+        Message message = exchange.getIn();
+        AttachmentMessage attachmentMessage = exchange.getIn(AttachmentMessage.class);
+        exchange.getExchangeExtension().addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onFailure(Exchange exchange) {
+                journal(FailureJournal.REASON_DOWNSTREAM, message, attachmentMessage);
+            }
+        });
+    }
+
+    private void journal(String reason, Message message, AttachmentMessage attachmentMessage) {
+        try {
+            journal.append(reason, message.getHeaders(), attachmentMessage != null ? attachmentMessage.getAttachments() : Map.of());
+        } catch (Exception e) {
+            LOGGER.warn("Failed to journal the email from {} that failed with {}", message.getHeader("From"), reason, e);
+        }
+    }
+
+    /**
+     * An email replayed from the journal is still in it and stays there until a replay succeeds.
+     */
+    private static boolean isReplayed(Exchange exchange) {
+        return exchange.getIn().getHeader(EmailCsvProcessorConstants.JOURNAL_POSITION) != null;
+    }
+
+    /**
+     * Returns the delivery of the bulk submissions carrying the records of an aggregated email, null otherwise.
+     */
+    private CompletableFuture<Void> processEmail(Exchange exchange, long start, RowDeduplicator.Session rows) {
+        StreamedLeaveSubmission streamed = null;
+        String claimedHash = null;
         try {
             Message mailMessage = exchange.getIn();
             if (mailMessage == null) {
-                setExchangeError(exchange, "No email found in the exchange!");
-                return;
+                setExchangeError(exchange, EmailCsvProcessorMetrics.REASON_MISSING_EMAIL, "No email found in the exchange!");
+                return null;
             }
 
             String senderEmail = (String) mailMessage.getHeader("From");
             if (!isValidEmail(senderEmail)) {
-                setExchangeError(exchange, "Invalid or missing email address!");
-                return;
+                setExchangeError(exchange, EmailCsvProcessorMetrics.REASON_INVALID_EMAIL, "Invalid or missing email address!");
+                return null;
             }
 
             String subject = (String) mailMessage.getHeader("Subject");
             Date receivedDate = (Date) mailMessage.getHeader("CamelMailMessageReceivedDate");
 
             if (senderEmail == null || subject == null || receivedDate == null) {
-                setExchangeError(exchange, "Required email metadata (sender, subject, or received date) is missing!");
-                return;
+                setExchangeError(exchange, EmailCsvProcessorMetrics.REASON_MISSING_METADATA,
+                        "Required email metadata (sender, subject, or received date) is missing!");
+                return null;
             }
 
             String senderName = parseSenderName(senderEmail);
             String companyName = parseCompanyName(subject);
+            if (rateLimiter != null && !admit(exchange, senderEmail, companyName)) {
+                return null;
+            }
 
             String createOn = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(receivedDate);
 
-            List<Map<String, Object>> leaveDetails = new ArrayList<>();
-            boolean validFileFound = false;
-
-            if (mailMessage instanceof AttachmentMessage) {
-                AttachmentMessage attachmentMessage = (AttachmentMessage) mailMessage;
-                Map<String, DataHandler> attachments = attachmentMessage.getAttachments();
-
-                for (Map.Entry<String, DataHandler> attachmentEntry : attachments.entrySet()) {
-                    DataHandler dh = attachmentEntry.getValue();
-                    String fileName = dh.getName();
+            List<LeaveDetail> leaveDetails = new ArrayList<>();
+            LeaveDetailBatcher<LeaveDetail> batcher = null;
+            Consumer<LeaveDetail> sink = leaveDetails::add;
+            if (getEndpoint().getBatchSize() > 0) {
+                batcher = new LeaveDetailBatcher<>(batchTemplate, batchTarget, exchange, getEndpoint().getBatchSize(),
+                        batchRows -> buildJsonResponse(senderName, senderEmail, companyName, createOn, batchRows));
+                sink = batcher;
+            } else if (getEndpoint().isStreamBody() && aggregator == null) {
+                streamed = new StreamedLeaveSubmission(senderName, senderEmail, companyName, createOn,
+                        getEndpoint().getStreamBodyThreshold(), getEndpoint().getSpoolDirectory());
+                sink = streamed;
+            }
+            if (getEndpoint().getMaxRows() > 0) {
+                sink = limitRows(sink);
+            }
+            if (employeeDirectory != null) {
+                sink = employeeDirectory.enrich(sink);
+            }
+            if (rows != null) {
+                // outermost, the parsers look for it to drop duplicates before building them
+                sink = rows.wrap(sink);
+            }
+            List<DataHandler> parsableAttachments = new ArrayList<>();
+            // camel-mail keeps the attachments next to its MailMessage, they are only reachable through the adapter
+            AttachmentMessage attachmentMessage = exchange.getIn(AttachmentMessage.class);
+            if (attachmentMessage != null) {
+                for (DataHandler dh : attachmentMessage.getAttachments().values()) {
+                    if (fileTypeOf(dh.getName()) != null) {
+                        parsableAttachments.add(dh);
+                    }
+                }
+            }
+            boolean validFileFound = !parsableAttachments.isEmpty();
+            metrics.recordValidate(start);
 
-                    if (fileName.toLowerCase().endsWith(".csv")) {
-                        validFileFound = true;
-                        try (InputStreamReader reader = new InputStreamReader(dh.getInputStream())) {
-                            leaveDetails.addAll(parseCsvToLeaveDetails(reader));
-                        } catch (RuntimeException e) {
-                            setExchangeError(exchange, "Please attach a valid CSV file: " + e.getMessage());
-                            return;
-                        }
-                    } else if (fileName.toLowerCase().endsWith(".xlsx")) {
-                        validFileFound = true;
-                        try (InputStream inputStream = dh.getInputStream()) {
-                            leaveDetails.addAll(parseXlsxToLeaveDetails(inputStream));
-                        } catch (RuntimeException e) {
-                            setExchangeError(exchange, "Please attach a valid XLSX file: " + e.getMessage());
-                            return;
+            String contentHash = null;
+            MessageDigest[] digests = null;
+            if (contentHashes != null && validFileFound) {
+                if (batcher != null) {
+                    // rows go downstream while parsing, so the hash is claimed before the first batch, or two copies
+                    // arriving together would both be sent
+                    contentHash = hashAttachments(parsableAttachments);
+                    if (!recordContentHash(exchange, contentHash)) {
+                        markDuplicate(exchange, contentHash);
+                        return null;
+                    }
+                    claimedHash = contentHash;
+                } else {
+                    contentHash = hashSmallAttachments(parsableAttachments);
+                    if (contentHash == null) {
+                        // hashed while parsing, so large attachments are read only once
+                        digests = new MessageDigest[parsableAttachments.size()];
+                        for (int i = 0; i < digests.length; i++) {
+                            digests[i] = newDigest();
                         }
+                    } else if (contentHashes.contains(contentHash)) {
+                        markDuplicate(exchange, contentHash);
+                        return null;
                     }
                 }
             }
 
+            AttachmentFailure parseFailure;
+            if (attachmentExecutor != null && parsableAttachments.size() > 1) {
+                parseFailure = parseAttachmentsInParallel(parsableAttachments, digests, sink);
+            } else {
+                parseFailure = parseAttachments(parsableAttachments, digests, sink);
+            }
+            if (parseFailure != null) {
+                String parseError = parseFailure.message();
+                if (parseFailure.cause() instanceof InvalidRowException invalidRow) {
+                    exchange.getIn().setHeader(EmailCsvProcessorConstants.ERROR_ROW, invalidRow.getRowNumber());
+                }
+                setExchangeError(exchange, parseErrorReason(parseFailure.cause()), parseError);
+                return null;
+            }
+
             if (!validFileFound) {
-                setExchangeError(exchange, "Please attach a CSV or XLSX file");
-                return;
+                setExchangeError(exchange, EmailCsvProcessorMetrics.REASON_MISSING_ATTACHMENT, "Please attach a CSV or XLSX file");
+                return null;
             }
 
-            if (leaveDetails.isEmpty()) {
-                setExchangeError(exchange, "File format is correct but values are missing");
-                return;
+            int rowCount = batcher != null ? batcher.getRowCount() : streamed != null ? streamed.getRowCount() : leaveDetails.size();
+            if (rows != null) {
+                exchange.getIn().setHeader(EmailCsvProcessorConstants.DUPLICATE_ROWS, rows.getDuplicates());
+                if (rowCount == 0 && rows.getDuplicates() > 0) {
+                    // every row had been received before, there is nothing left to send
+                    exchange.getIn().setHeader(EmailCsvProcessorConstants.ROW_COUNT, 0);
+                    exchange.getIn().setBody(null);
+                    return null;
+                }
+            }
+            if (rowCount == 0) {
+                setExchangeError(exchange, EmailCsvProcessorMetrics.REASON_MISSING_VALUES, "File format is correct but values are missing");
+                return null;
             }
 
-            Map<String, Object> jsonResponse = buildJsonResponse(senderName, senderEmail, companyName, createOn, leaveDetails);
+            long envelopeStart = metrics.start();
+            if (batcher != null) {
+                // every row has already gone downstream, the original exchange only carries the totals
+                exchange.getIn().setHeader(EmailCsvProcessorConstants.BATCH_SIZE, batcher.complete());
+                exchange.getIn().setHeader(EmailCsvProcessorConstants.ROW_COUNT, rowCount);
+                exchange.getIn().setBody(null);
+                claimedHash = null;
+                metrics.recordEnvelope(envelopeStart);
+                return null;
+            }
+
+            if (digests != null) {
+                contentHash = contentHashOf(digests);
+            }
+            if (contentHash != null && !recordContentHash(exchange, contentHash)) {
+                if (rows != null) {
+                    // only recognized once parsed, its rows must not count as received
+                    rows.rollback();
+                }
+                markDuplicate(exchange, contentHash);
+                return null;
+            }
+
+            if (aggregator != null) {
+                // the records go downstream with those of other emails, the original exchange only carries the totals
+                CompletableFuture<Void> delivered = aggregator.add(
+                        new BulkLeaveSubmission.Requester(senderName, senderEmail, companyName, createOn), leaveDetails);
+                exchange.getIn().setHeader(EmailCsvProcessorConstants.ROW_COUNT, rowCount);
+                exchange.getIn().setHeader(EmailCsvProcessorConstants.AGGREGATED, true);
+                exchange.getIn().setBody(null);
+                metrics.recordEnvelope(envelopeStart);
+                return delivered;
+            }
+
+            if (streamed != null) {
+                // the rows have already been written, only the end of the submission is left
+                exchange.getIn().setHeader(EmailCsvProcessorConstants.ROW_COUNT, rowCount);
+                exchange.getIn().setHeader(Exchange.CONTENT_TYPE, "application/json");
+                exchange.getIn().setBody(streamed.complete(exchange));
+                metrics.recordEnvelope(envelopeStart);
+                return null;
+            }
+
+            LeaveSubmission jsonResponse = buildJsonResponse(senderName, senderEmail, companyName, createOn, leaveDetails);
 
             exchange.getIn().setBody(jsonResponse);
+            metrics.recordEnvelope(envelopeStart);
         } catch (Exception e) {
-            setExchangeError(exchange, "An unexpected error occurred: " + e.getMessage());
+            setExchangeError(exchange, EmailCsvProcessorMetrics.REASON_UNEXPECTED, "An unexpected error occurred: " + e.getMessage());
+        } finally {
+            if (claimedHash != null) {
+                // the email was rejected, a corrected copy must not be taken for a duplicate
+                contentHashes.remove(claimedHash);
+            }
+            if (streamed != null) {
+                // discards the body of an email that failed, a completed body is left to the exchange
+                streamed.close();
+            }
         }
+        return null;
     }
 
-    private void setExchangeError(Exchange exchange, String errorMessage) {
-        exchange.setProperty(Exchange.EXCEPTION_CAUGHT, errorMessage);
-        exchange.getIn().setHeader("ErrorReason", errorMessage);
+    /**
+     * Takes a permit for the sender domain or company, holding the email back for up to {@code rateLimitMaxDelay}.
+     * Fails the exchange and returns false when the sender is over its limit, before any attachment is read. The
+     * exchange is then flagged {@link EmailCsvProcessorConstants#RETRYABLE}, the email is to be delivered again.
+     */
+    private boolean admit(Exchange exchange, String senderEmail, String companyName) {
+        String key = rateLimitByCompany ? companyName : senderEmail.substring(senderEmail.indexOf('@') + 1).toLowerCase(Locale.ROOT);
+        long wait = rateLimiter.reserve(key, TimeUnit.MILLISECONDS.toNanos(getEndpoint().getRateLimitMaxDelay()));
+        if (wait < 0) {
+            long retryAfter = (rateLimiter.retryAfter(key) + 999_999) / 1_000_000;
+            exchange.getIn().setHeader(EmailCsvProcessorConstants.RETRY_AFTER, retryAfter);
+            exchange.getIn().setHeader(EmailCsvProcessorConstants.RETRYABLE, true);
+            setExchangeError(exchange, EmailCsvProcessorMetrics.REASON_RATE_LIMITED,
+                    "Too many emails from " + key + ", please retry in " + retryAfter + " ms");
+            return false;
+        }
+        if (wait > 0) {
+            long start = metrics.start();
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.getIn().setHeader(EmailCsvProcessorConstants.RETRYABLE, true);
+                setExchangeError(exchange, EmailCsvProcessorMetrics.REASON_RATE_LIMITED, "Interrupted while waiting for the rate limit of " + key);
+                return false;
+            }
+            metrics.recordThrottle(start);
+        }
+        return true;
+    }
+
+    /**
+     * Remembers the content hash of a processed email, returns false when it had already been processed. The hash is
+     * forgotten again if the exchange fails further down the route, so a redelivery is not taken for a duplicate.
+     */
+    private boolean recordContentHash(Exchange exchange, String contentHash) {
+        exchange.getIn().setHeader(EmailCsvProcessorConstants.CONTENT_HASH, contentHash);
+        exchange.getIn().setHeader(EmailCsvProcessorConstants.DUPLICATE, false);
+        if (!contentHashes.add(contentHash)) {
+            return false;
+        }
+        exchange.getExchangeExtension().addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onFailure(Exchange exchange) {
+                contentHashes.remove(contentHash);
+            }
+        });
+        return true;
+    }
+
+    private void markDuplicate(Exchange exchange, String contentHash) {
+        exchange.getIn().setHeader(EmailCsvProcessorConstants.CONTENT_HASH, contentHash);
+        exchange.getIn().setHeader(EmailCsvProcessorConstants.DUPLICATE, true);
         exchange.getIn().setBody(null);
     }
 
-    private List<Map<String, Object>> parseCsvToLeaveDetails(InputStreamReader reader) throws Exception {
-        CSVReader csvReader = new CSVReader(reader);
-        List<Map<String, Object>> leaveDetails = new ArrayList<>();
+    /**
+     * Hashes the attachments before they are parsed when they add up to no more than {@link #UP_FRONT_HASH_LIMIT}
+     * bytes, so a duplicate is recognized without being parsed. Returns null for larger attachments, which are
+     * hashed while they are parsed instead of being read twice.
+     */
+    private String hashSmallAttachments(List<DataHandler> attachments) throws Exception {
+        MessageDigest[] digests = new MessageDigest[attachments.size()];
+        byte[] buffer = new byte[8192];
+        long remaining = UP_FRONT_HASH_LIMIT;
+        for (int i = 0; i < digests.length; i++) {
+            digests[i] = newDigest();
+            try (InputStream inputStream = new DigestInputStream(attachments.get(i).getInputStream(), digests[i])) {
+                int read;
+                while ((read = inputStream.read(buffer)) >= 0) {
+                    remaining -= read;
+                    if (remaining < 0) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return contentHashOf(digests);
+    }
 
+    private String hashAttachments(List<DataHandler> attachments) throws Exception {
+        MessageDigest[] digests = new MessageDigest[attachments.size()];
+        for (int i = 0; i < digests.length; i++) {
+            digests[i] = newDigest();
+            try (InputStream inputStream = new DigestInputStream(attachments.get(i).getInputStream(), digests[i])) {
+                inputStream.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+        return contentHashOf(digests);
+    }
+
+    /**
+     * Hex SHA-256 of a single attachment, or of the attachment hashes in order when there are several.
+     */
+    private static String contentHashOf(MessageDigest[] digests) {
+        if (digests.length == 1) {
+            return HexFormat.of().formatHex(digests[0].digest());
+        }
+        MessageDigest combined = newDigest();
+        for (MessageDigest digest : digests) {
+            combined.update(digest.digest());
+        }
+        return HexFormat.of().formatHex(combined.digest());
+    }
+
+    private static MessageDigest newDigest() {
         try {
-            String[] headers = csvReader.readNext();
-            String[] expectedHeaders = {"employee_id", "employee_name", "manager", "start_date", "end_date", "no_of_hours"};
-            if (!Arrays.equals(headers, expectedHeaders)) {
-                throw new RuntimeException("Invalid CSV header format!");
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Error metric tag for a failed attachment, {@code invalid_file} for errors the parsers do not classify, such
+     * as a corrupt workbook or archive.
+     */
+    private static String parseErrorReason(RuntimeException failure) {
+        return failure instanceof InvalidAttachmentException invalid ? invalid.getReason() : EmailCsvProcessorMetrics.REASON_INVALID_FILE;
+    }
+
+    private void setExchangeError(Exchange exchange, String reason, String errorMessage) {
+        metrics.recordError(reason);
+        if (journal != null && journalReasons.contains(reason) && !isReplayed(exchange)) {
+            journal(reason, exchange.getIn(), exchange.getIn(AttachmentMessage.class));
+        }
+        exchange.setProperty(Exchange.EXCEPTION_CAUGHT, errorMessage);
+        exchange.getIn().setHeader("ErrorReason", errorMessage);
+        exchange.getIn().setBody(null);
+    }
+
+    /**
+     * Parses the attachments one after another. Returns the failure of the first attachment that fails, or null.
+     */
+    private AttachmentFailure parseAttachments(List<DataHandler> attachments, MessageDigest[] digests, Consumer<LeaveDetail> sink) throws Exception {
+        for (int i = 0; i < attachments.size(); i++) {
+            DataHandler dh = attachments.get(i);
+            String fileType = fileTypeOf(dh.getName());
+            try {
+                parseAttachment(fileType, dh, digests != null ? digests[i] : null, sink);
+            } catch (LeaveDetailBatcher.DeliveryException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                return new AttachmentFailure(fileType, e);
             }
+        }
+        return null;
+    }
 
-            String[] row;
-            while ((row = csvReader.readNext()) != null) {
-                if (row.length != headers.length) {
-                    throw new RuntimeException("CSV file format is correct but values are missing");
+    /**
+     * Parses the attachments concurrently on the attachment executor and hands the rows to the sink in
+     * attachment order. The first attachment to fail cancels every attachment after it, and the error of the
+     * first failing attachment in attachment order is returned, exactly as the sequential loop would.
+     */
+    private AttachmentFailure parseAttachmentsInParallel(List<DataHandler> attachments, MessageDigest[] digests, Consumer<LeaveDetail> sink) throws Exception {
+        int count = attachments.size();
+        List<FutureTask<List<LeaveDetail>>> tasks = new ArrayList<>(count);
+        AtomicInteger firstFailure = new AtomicInteger(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            DataHandler dh = attachments.get(i);
+            MessageDigest digest = digests != null ? digests[i] : null;
+            tasks.add(new FutureTask<>(() -> {
+                if (index > firstFailure.get()) {
+                    return Collections.emptyList();
                 }
-
-                for (String value : row) {
-                    if (value == null || value.trim().isEmpty()) {
-                        throw new RuntimeException("CSV file format is correct but values are missing");
+                if (attachmentSlots != null) {
+                    attachmentSlots.acquire();
+                }
+                try {
+                    List<LeaveDetail> rows = new ArrayList<>();
+                    Consumer<LeaveDetail> attachmentSink = getEndpoint().getMaxRows() > 0 ? limitRows(rows::add) : rows::add;
+                    parseAttachment(fileTypeOf(dh.getName()), dh, digest, RowDeduplicator.sameSession(sink, attachmentSink));
+                    return rows;
+                } catch (Exception e) {
+                    firstFailure.accumulateAndGet(index, Math::min);
+                    cancelFrom(tasks, index + 1);
+                    throw e;
+                } finally {
+                    if (attachmentSlots != null) {
+                        attachmentSlots.release();
                     }
                 }
+            }));
+        }
+        for (FutureTask<List<LeaveDetail>> task : tasks) {
+            attachmentExecutor.execute(task);
+        }
 
-                leaveDetails.add(createLeaveDetail(row));
+        try {
+            for (int i = 0; i < count; i++) {
+                List<LeaveDetail> rows;
+                try {
+                    rows = tasks.get(i).get();
+                } catch (ExecutionException e) {
+                    cancelFrom(tasks, i + 1);
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        return new AttachmentFailure(fileTypeOf(attachments.get(i).getName()), (RuntimeException) cause);
+                    }
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw e;
+                }
+                try {
+                    rows.forEach(sink);
+                } catch (LimitExceededException e) {
+                    cancelFrom(tasks, i + 1);
+                    return new AttachmentFailure(fileTypeOf(attachments.get(i).getName()), e);
+                }
             }
-        } catch (CsvValidationException e) {
-            throw new RuntimeException("Error processing CSV file!", e);
-        } finally {
-            csvReader.close();
+        } catch (InterruptedException e) {
+            cancelFrom(tasks, 0);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        return null;
+    }
+
+    private static void cancelFrom(List<? extends Future<?>> tasks, int fromIndex) {
+        for (int i = fromIndex; i < tasks.size(); i++) {
+            tasks.get(i).cancel(true);
         }
-        return leaveDetails;
     }
 
-    private List<Map<String, Object>> parseXlsxToLeaveDetails(InputStream inputStream) throws Exception {
-        List<Map<String, Object>> leaveDetails = new ArrayList<>();
-        try (Workbook workbook = new XSSFWorkbook(inputStream)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            Iterator<Row> rowIterator = sheet.iterator();
-            if (!rowIterator.hasNext()) {
-                throw new RuntimeException("Invalid XLSX header format!");
+    private void parseAttachment(String fileType, DataHandler dh, MessageDigest digest, Consumer<LeaveDetail> sink) throws Exception {
+        if ("GZIP".equals(fileType) && !isGzippedCsv(dh.getName())) {
+            throw new RuntimeException("Unsupported compressed file " + dh.getName() + ", only gzipped CSV files are accepted");
+        }
+        if (metrics.isEnabled()) {
+            parseAttachmentWithMetrics(fileType, dh, digest, sink);
+            return;
+        }
+        try (InputStream attachment = dh.getInputStream()) {
+            InputStream inputStream = openAttachment(attachment, digest);
+            parseAttachment(fileType, inputStream, sink);
+            finishDigest(inputStream, digest);
+        }
+    }
+
+    private void parseAttachmentWithMetrics(String fileType, DataHandler dh, MessageDigest digest, Consumer<LeaveDetail> sink) throws Exception {
+        long start = metrics.start();
+        long[] rows = new long[1];
+        try (InputStream attachment = dh.getInputStream()) {
+            InputStream inputStream = metrics.countBytes(openAttachment(attachment, digest));
+            try {
+                parseAttachment(fileType, inputStream, row -> {
+                    rows[0]++;
+                    sink.accept(row);
+                });
+                finishDigest(inputStream, digest);
+            } finally {
+                metrics.recordParse(fileType, start, inputStream, rows[0]);
             }
+        }
+    }
+
+    private InputStream openAttachment(InputStream attachment, MessageDigest digest) {
+        long maxBytes = getEndpoint().getMaxAttachmentBytes();
+        InputStream inputStream = maxBytes > 0 ? new LimitedInputStream(attachment, maxBytes) : attachment;
+        return digest != null ? digesting(inputStream, digest) : inputStream;
+    }
 
-            Row headerRow = rowIterator.next();
-            String[] expectedHeaders = {"employee_id", "employee_name", "manager", "start_date", "end_date", "no_of_hours"};
-            String[] headers = new String[expectedHeaders.length];
-            for (int i = 0; i < headers.length; i++) {
-                headers[i] = headerRow.getCell(i).getStringCellValue();
+    /**
+     * Digests the attachment while it is parsed. Closing is left to the caller, since the parsers close their
+     * stream and the digest still has to see whatever they left unread.
+     */
+    private static InputStream digesting(InputStream inputStream, MessageDigest digest) {
+        return new DigestInputStream(inputStream, digest) {
+            @Override
+            public void close() {
             }
-            if (!Arrays.equals(headers, expectedHeaders)) {
-                throw new RuntimeException("Invalid XLSX header format!");
+        };
+    }
+
+    /**
+     * Reads whatever the parser left unread, such as trailing blank lines, so the digest covers the whole attachment.
+     */
+    private static void finishDigest(InputStream inputStream, MessageDigest digest) throws Exception {
+        if (digest != null) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private void parseAttachment(String fileType, InputStream inputStream, Consumer<LeaveDetail> sink) throws Exception {
+        if ("ZIP".equals(fileType) || "GZIP".equals(fileType)) {
+            parseArchive(fileType, inputStream, sink);
+            return;
+        }
+        long spoolThreshold = getEndpoint().getSpoolThreshold();
+        if (parallelCsv != null && "CSV".equals(fileType)) {
+            // chunks are read from the file, so large CSVs have to be spooled to be parsed in parallel
+            long parallelThreshold = getEndpoint().getParallelCsvThreshold();
+            spoolThreshold = spoolThreshold > 0 ? Math.min(spoolThreshold, parallelThreshold) : parallelThreshold;
+        }
+        if (spoolThreshold > 0) {
+            String suffix = "CSV".equals(fileType) ? ".csv" : ".xlsx";
+            try (SpooledAttachment attachment = SpooledAttachment.spool(inputStream, spoolThreshold, getEndpoint().getSpoolDirectory(), suffix)) {
+                if (attachment.isSpooled()) {
+                    parseSpooledAttachment(fileType, attachment.getFile(), sink);
+                } else {
+                    parseAttachmentStream(fileType, attachment.openStream(), sink);
+                }
             }
+            return;
+        }
+        parseAttachmentStream(fileType, inputStream, sink);
+    }
 
-            while (rowIterator.hasNext()) {
-                Row row = rowIterator.next();
-                String[] rowData = new String[expectedHeaders.length];
-                for (int i = 0; i < rowData.length; i++) {
-                    Cell cell = row.getCell(i);
-                    if (cell == null || cell.getCellType() == CellType.BLANK) {
-                        throw new RuntimeException("XLSX file format is correct but values are missing");
+    /**
+     * Decompresses a ZIP or gzip attachment while it is read and parses the CSV and XLSX entries on the way, so the
+     * archive is never held in full; an entry only goes to disk when it passes the spool threshold like any other
+     * attachment. A gzip attachment holds a single CSV, see {@link #isGzippedCsv}. Other entries, and the resource
+     * forks macOS adds to the archives it creates, are skipped.
+     */
+    private void parseArchive(String fileType, InputStream inputStream, Consumer<LeaveDetail> sink) throws Exception {
+        ArchiveInputStream archive = new ArchiveInputStream(inputStream, getEndpoint());
+        try {
+            if ("GZIP".equals(fileType)) {
+                try (GZIPInputStream gzip = new GZIPInputStream(archive, 8192)) {
+                    parseArchiveEntry("CSV", archive.entry(gzip), sink);
+                }
+                return;
+            }
+            int maxEntries = getEndpoint().getMaxArchiveEntries();
+            int entries = 0;
+            boolean parsed = false;
+            try (ZipInputStream zip = new ZipInputStream(archive)) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (maxEntries > 0 && ++entries > maxEntries) {
+                        throw new LimitExceededException("Archive exceeds the maximum of " + maxEntries + " entries");
+                    }
+                    String entryType = entry.isDirectory() || isResourceFork(entry.getName()) ? null : fileTypeOf(entry.getName());
+                    if ("CSV".equals(entryType) || "XLSX".equals(entryType)) {
+                        parseArchiveEntry(entryType, archive.entry(zip), sink);
+                        parsed = true;
+                    } else {
+                        // read through the limits, getNextEntry would inflate the rest of the entry without counting it
+                        archive.entry(zip).transferTo(OutputStream.nullOutputStream());
                     }
-                    rowData[i] = cell.toString();
                 }
-                leaveDetails.add(createLeaveDetail(rowData));
             }
+            if (!parsed) {
+                throw new RuntimeException("The archive contains no CSV or XLSX file");
+            }
+        } catch (ZipException | EOFException e) {
+            throw new RuntimeException("Error reading " + fileType + " archive!", e);
         }
-        return leaveDetails;
     }
 
-    private Map<String, Object> createLeaveDetail(String[] row) {
-        Map<String, Object> leaveDetail = new HashMap<>();
-        leaveDetail.put("_id", Integer.parseInt(row[0]));
-        leaveDetail.put("manager", row[2]);
-        leaveDetail.put("start_date", row[3] + "T00:00:00");
-        leaveDetail.put("end_date", row[4] + "T00:00:00");
-        leaveDetail.put("display_name", row[1]);
-        leaveDetail.put("first_name", getFirstName(row[1]));
-        leaveDetail.put("last_name", getLastName(row[1]));
-        leaveDetail.put("name", row[1]);
-        leaveDetail.put("email", "example@example.com");
-        leaveDetail.put("no_of_hours", Integer.parseInt(row[5]));
-        return leaveDetail;
+    /**
+     * Parses an entry and reads whatever the parser left unread, so the limits see all of it.
+     */
+    private void parseArchiveEntry(String fileType, InputStream entry, Consumer<LeaveDetail> sink) throws Exception {
+        parseAttachment(fileType, entry, sink);
+        entry.transferTo(OutputStream.nullOutputStream());
+    }
+
+    private static boolean isResourceFork(String entryName) {
+        return entryName.startsWith("__MACOSX/") || entryName.substring(entryName.lastIndexOf('/') + 1).startsWith("._");
+    }
+
+    private void parseAttachmentStream(String fileType, InputStream inputStream, Consumer<LeaveDetail> sink) throws Exception {
+        parserFor(fileType).parse(inputStream, sink);
+    }
+
+    /**
+     * Parses an attachment spooled to disk without reading it back onto the heap: the tokenizer maps the CSV file
+     * and both XLSX parsers open the zip from the file itself.
+     */
+    private void parseSpooledAttachment(String fileType, Path file, Consumer<LeaveDetail> sink) throws Exception {
+        parserFor(fileType).parse(file, sink);
+    }
+
+    /**
+     * The parser of a CSV or XLSX attachment, created on the first attachment of its type so the libraries of the
+     * formats an instance never receives are not loaded.
+     */
+    private AttachmentParser parserFor(String fileType) {
+        return parsers.computeIfAbsent(fileType, this::newParser);
+    }
+
+    private AttachmentParser newParser(String fileType) {
+        return switch (fileType) {
+            case "CSV" -> useCsvTokenizer
+                    ? new CsvAttachmentParser(charset, parallelCsv, getEndpoint().getParallelCsvThreshold())
+                    : new OpenCsvAttachmentParser(charset);
+            case "XLSX" -> new XlsxAttachmentParser(getEndpoint().isStreamingXlsx(), xlsxSheets, sheetExecutor);
+            default -> throw new IllegalArgumentException("No parser for file type " + fileType);
+        };
+    }
+
+    /**
+     * Rejects the email once the sink has been handed more than {@code maxRows} rows.
+     */
+    private Consumer<LeaveDetail> limitRows(Consumer<LeaveDetail> sink) {
+        int maxRows = getEndpoint().getMaxRows();
+        int[] rows = new int[1];
+        return row -> {
+            if (++rows[0] > maxRows) {
+                throw new LimitExceededException("Attachment exceeds the maximum of " + maxRows + " rows");
+            }
+            sink.accept(row);
+        };
+    }
+
+    private static String fileTypeOf(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        String lowerCaseName = fileName.toLowerCase();
+        if (lowerCaseName.endsWith(".csv")) {
+            return "CSV";
+        }
+        if (lowerCaseName.endsWith(".xlsx")) {
+            return "XLSX";
+        }
+        if (lowerCaseName.endsWith(".zip")) {
+            return "ZIP";
+        }
+        if (lowerCaseName.endsWith(".gz")) {
+            return "GZIP";
+        }
+        return null;
+    }
+
+    /**
+     * A gzip attachment holds a single CSV: {@code leave.csv.gz}, or {@code leave.gz} without any other extension.
+     */
+    private static boolean isGzippedCsv(String fileName) {
+        String innerName = fileName.substring(0, fileName.length() - ".gz".length()).toLowerCase();
+        return innerName.endsWith(".csv") || innerName.substring(innerName.lastIndexOf('/') + 1).indexOf('.') < 0;
     }
 
     private boolean isValidEmail(String email) {
@@ -209,39 +947,219 @@ public class EmailCsvProcessorProducer extends DefaultProducer {
         return subject;
     }
 
-    private String getFirstName(String fullName) {
-        return fullName.split(" ")[0];
+    private LeaveSubmission buildJsonResponse(String senderName, String senderEmail, String companyName, String createOn, List<LeaveDetail> leaveDetails) {
+        return new LeaveSubmission(senderName, senderEmail, companyName, createOn, leaveDetails);
+    }
+
+    /**
+     * An attachment that cannot be accepted, {@code reason} being the tag of its {@code emailcsv.errors} metric.
+     */
+    static class InvalidAttachmentException extends RuntimeException {
+
+        private final String reason;
+
+        InvalidAttachmentException(String reason, String message) {
+            this(reason, message, null);
+        }
+
+        InvalidAttachmentException(String reason, String message, Throwable cause) {
+            super(message, cause);
+            this.reason = reason;
+        }
+
+        String getReason() {
+            return reason;
+        }
+    }
+
+    /**
+     * A configured limit on rows or attachment size was passed, reported like any other invalid attachment.
+     */
+    static final class LimitExceededException extends InvalidAttachmentException {
+
+        LimitExceededException(String message) {
+            super(EmailCsvProcessorMetrics.REASON_LIMIT_EXCEEDED, message);
+        }
     }
 
-    private String getLastName(String fullName) {
-        String[] names = fullName.split(" ");
-        return names.length > 1 ? names[names.length - 1] : "";
+    /**
+     * A row of an attachment failed validation, {@code rowNumber} being its one based number in the file with the
+     * header as row 1 (the spreadsheet row number for XLSX).
+     */
+    static final class InvalidRowException extends InvalidAttachmentException {
+
+        private final long rowNumber;
+
+        InvalidRowException(String reason, String message, long rowNumber, Throwable cause) {
+            super(reason, message, cause);
+            this.rowNumber = rowNumber;
+        }
+
+        long getRowNumber() {
+            return rowNumber;
+        }
+    }
+
+    /**
+     * The first attachment of an email that could not be parsed.
+     */
+    private record AttachmentFailure(String fileType, RuntimeException cause) {
+
+        String message() {
+            return "Please attach a valid " + fileType + " file: " + cause.getMessage();
+        }
+    }
+
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private final long maxBytes;
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+            this.remaining = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                consumed(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            consumed(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void consumed(long n) {
+            remaining -= n;
+            if (remaining < 0) {
+                throw new LimitExceededException("Attachment exceeds the maximum of " + maxBytes + " bytes");
+            }
+        }
     }
 
-    private Map<String, Object> buildJsonResponse(String senderName, String senderEmail, String companyName, String createOn, List<Map<String, Object>> leaveDetails) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("requester_name", senderName);
-        data.put("requester_email", senderEmail);
-        data.put("requesterCompany", companyName);
-        data.put("createOn", createOn);
-        data.put("leave_details", leaveDetails);
-        data.put("_formio_formId", "123123123131dafwefw21e1eac");
-        data.put("_formio_submissionId", "");
-        data.put("submit", true);
+    /**
+     * A ZIP or gzip attachment, counting the compressed bytes read from it and the bytes its entries decompress to
+     * against the limits of the endpoint.
+     */
+    private static final class ArchiveInputStream extends FilterInputStream {
+
+        // below this many decompressed bytes the compression ratio is not checked
+        private static final long RATIO_GRACE_BYTES = 1024 * 1024;
 
-        Map<String, Object> metadata = new HashMap<>();
-        metadata.put("timezone", "UTC");
-        metadata.put("browserName", "Chrome");
-        metadata.put("userAgent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/237.84.2.178 Safari/537.36");
+        private final long maxDecompressedBytes;
+        private final int maxCompressionRatio;
+        private long compressedBytes;
+        private long decompressedBytes;
 
-        Map<String, Object> jsonResponse = new HashMap<>();
-        jsonResponse.put("data", data);
-        jsonResponse.put("metadata", metadata);
-        jsonResponse.put("state", "submitted");
-        jsonResponse.put("_vnote", "");
-        jsonResponse.put("action", "CREATE");
-        jsonResponse.put("uploadedFiles", Collections.emptyList());
+        ArchiveInputStream(InputStream in, EmailCsvProcessorEndpoint endpoint) {
+            super(in);
+            this.maxDecompressedBytes = endpoint.getMaxDecompressedBytes();
+            this.maxCompressionRatio = endpoint.getMaxCompressionRatio();
+        }
+
+        /**
+         * The decompressed stream of an entry, counted against the limits. Closing it leaves the archive open,
+         * since the parsers close their stream and the next entry is read from the same one.
+         */
+        InputStream entry(InputStream decompressed) {
+            return new FilterInputStream(decompressed) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        decompressed(1);
+                    }
+                    return b;
+                }
 
-        return jsonResponse;
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        decompressed(n);
+                    }
+                    return n;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    long skipped = super.skip(n);
+                    decompressed(skipped);
+                    return skipped;
+                }
+
+                @Override
+                public boolean markSupported() {
+                    return false;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                compressedBytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                compressedBytes += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            compressedBytes += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void decompressed(long n) {
+            decompressedBytes += n;
+            if (maxDecompressedBytes > 0 && decompressedBytes > maxDecompressedBytes) {
+                throw new LimitExceededException("Archive exceeds the maximum of " + maxDecompressedBytes + " decompressed bytes");
+            }
+            if (maxCompressionRatio > 0 && decompressedBytes > RATIO_GRACE_BYTES
+                    && decompressedBytes > compressedBytes * maxCompressionRatio) {
+                throw new LimitExceededException("Archive exceeds the maximum compression ratio of " + maxCompressionRatio);
+            }
+        }
     }
 }
@@ -0,0 +1,128 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a cold start: creating the Camel context, starting the component and processing the first email with a
+ * CSV or XLSX attachment. Every measurement runs in a JVM of its own, so loading and initializing the component,
+ * Camel and the parser of the attachment's format is all part of it.
+ * <p>
+ * Run with {@code mvn -Pjmh test -Djmh.includes=EmailCsvProcessorStartupBenchmark}.
+ * <p>
+ * {@link #main} processes one email per format named on the command line and prints how long after the JVM started
+ * each was done, JVM startup included. It is the training run of the cds profile, and running it on that profile's
+ * class path with and without {@code -XX:SharedArchiveFile=target/email-csv-processor.jsa} shows what the archive
+ * saves; the JMH forks run from the class directories, which the JVM cannot share classes from.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class EmailCsvProcessorStartupBenchmark {
+
+    private static final String CSV = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+            + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n"
+            + "2,Mary Major,Jane Roe,2024-01-02,2024-01-03,4\n";
+
+    @State(Scope.Benchmark)
+    public static class Attachment {
+
+        @Param({"CSV", "XLSX"})
+        public String format;
+
+        private byte[] content;
+        private DefaultCamelContext camelContext;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            // the workbook is written without POI, which must not be loaded before the measurement
+            content = content(format);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (camelContext != null) {
+                camelContext.stop();
+            }
+        }
+    }
+
+    @Benchmark
+    public Exchange firstExchange(Attachment attachment) throws Exception {
+        attachment.camelContext = new DefaultCamelContext();
+        return process(attachment.camelContext, attachment.format, attachment.content);
+    }
+
+    /**
+     * Processes one email per format in {@code args}, CSV and XLSX by default, and prints when each was done.
+     */
+    public static void main(String[] args) throws Exception {
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        try {
+            for (String format : args.length > 0 ? args : new String[]{"CSV", "XLSX"}) {
+                long start = System.nanoTime();
+                process(camelContext, format, content(format));
+                System.out.printf("%s email processed in %d ms, %d ms after the JVM started%n", format,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), ManagementFactory.getRuntimeMXBean().getUptime());
+            }
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    private static byte[] content(String format) throws Exception {
+        return switch (format) {
+            case "CSV" -> CSV.getBytes(StandardCharsets.UTF_8);
+            case "XLSX" -> AttachmentParserTest.inlineStringWorkbook(CSV);
+            default -> throw new IllegalArgumentException("Unknown format: " + format + ", expected CSV or XLSX");
+        };
+    }
+
+    private static Exchange process(DefaultCamelContext camelContext, String format, byte[] content) throws Exception {
+        if (!camelContext.isStarted()) {
+            camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+            camelContext.start();
+        }
+        String fileName = "CSV".equals(format) ? "leave.csv" : "leave.xlsx";
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", "john.doe@example.com");
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(content, "application/octet-stream");
+        dataSource.setName(fileName);
+        in.addAttachment(fileName, new DataHandler(dataSource));
+        exchange.setIn(in);
+
+        camelContext.createProducerTemplate().send("emailCsvProcessor:startup", exchange);
+        if (exchange.getIn().getHeader("ErrorReason") != null) {
+            throw new IllegalStateException(format + " email failed: " + exchange.getIn().getHeader("ErrorReason"));
+        }
+        return exchange;
+    }
+}
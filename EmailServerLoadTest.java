@@ -0,0 +1,265 @@
+package org.component;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.activation.DataHandler;
+import jakarta.mail.Message;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mail.MailMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.model.RouteDefinition;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End to end load test of the mail to JSON path: emails with CSV or XLSX attachments are sent over SMTP to a local
+ * GreenMail server, read back over IMAP by a Camel route into {@code emailCsvProcessor}, and timed from the start
+ * of the SMTP send until the parsed {@link LeaveSubmission} leaves the processor.
+ * <p>
+ * Tagged {@code load} and excluded from the normal build, run it with {@code mvn -Pload test}. The load is set with
+ * system properties:
+ * <ul>
+ *     <li>{@code load.emails}: number of emails, 1000 by default</li>
+ *     <li>{@code load.rate}: emails sent per second, 200 by default, 0 to send as fast as SMTP accepts them</li>
+ *     <li>{@code load.rows}: leave rows per attachment, 50 by default</li>
+ *     <li>{@code load.format}: {@code csv}, {@code xlsx} or {@code mixed} (default), alternating the two</li>
+ *     <li>{@code load.source}: {@code camel-mail} (default) for a camel-mail IMAP route, or {@code consumer} for
+ *     the component's own IMAP consumer</li>
+ *     <li>{@code load.consumers}: threads processing the polled emails, 1 by default</li>
+ *     <li>{@code load.timeout}: seconds to wait for the last email, 600 by default</li>
+ * </ul>
+ * Throughput and the p50, p99 and p999 latencies are printed at the end. Every email must come out parsed and
+ * complete, so the run also fails if the path loses or corrupts emails under load.
+ */
+@Tag("load")
+class EmailServerLoadTest {
+
+    private static final String USER = "leave";
+    private static final String PASSWORD = "secret";
+    private static final String ADDRESS = "leave@example.com";
+    // the email number travels in the subject, which becomes the requester company
+    private static final String SUBJECT_PREFIX = "Load ";
+
+    private final int emails = Integer.getInteger("load.emails", 1000);
+    private final int rate = Integer.getInteger("load.rate", 200);
+    private final int rows = Integer.getInteger("load.rows", 50);
+    private final String format = System.getProperty("load.format", "mixed");
+    private final String source = System.getProperty("load.source", "camel-mail");
+    private final int consumers = Integer.getInteger("load.consumers", 1);
+    private final long timeout = Long.getLong("load.timeout", 600);
+
+    private GreenMail greenMail;
+    private DefaultCamelContext camelContext;
+
+    private AtomicLongArray sentAt;
+    private AtomicLongArray parsedAt;
+    private CountDownLatch remaining;
+    private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(ServerSetup.dynamicPort(ServerSetupTest.SMTP_IMAP));
+        greenMail.start();
+        greenMail.setUser(ADDRESS, USER, PASSWORD);
+
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+        greenMail.stop();
+    }
+
+    @Test
+    void testMailToJsonThroughput() throws Exception {
+        sentAt = new AtomicLongArray(emails);
+        parsedAt = new AtomicLongArray(emails);
+        remaining = new CountDownLatch(emails);
+        startRoute();
+
+        byte[] csv = csv(rows);
+        byte[] xlsx = xlsx(rows);
+        Session session = greenMail.getSmtp().createSession();
+        Transport transport = session.getTransport();
+        // one SMTP connection for the whole run, connecting per email costs more than sending it
+        transport.connect();
+        long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < emails; i++) {
+            // paced against the schedule rather than the previous send, so a slow send does not lower the rate
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean asXlsx = "xlsx".equals(format) || ("mixed".equals(format) && i % 2 == 1);
+            MimeMessage email = createEmail(session, i, asXlsx ? "leave.xlsx" : "leave.csv", asXlsx ? xlsx : csv);
+            sentAt.set(i, System.nanoTime());
+            transport.sendMessage(email, email.getAllRecipients());
+        }
+        long sent = System.nanoTime();
+        transport.close();
+
+        boolean completed = remaining.await(timeout, TimeUnit.SECONDS);
+        long end = System.nanoTime();
+
+        assertTrue(failures.isEmpty(), () -> failures.size() + " emails failed, first: " + failures.peek());
+        assertTrue(completed, () -> remaining.getCount() + " of " + emails + " emails not processed within " + timeout + "s");
+        report(start, sent, end);
+    }
+
+    private void startRoute() throws Exception {
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                int imapPort = greenMail.getImap().getPort();
+                RouteDefinition route;
+                if ("consumer".equals(source)) {
+                    route = from("emailCsvProcessor:inbox?mailStoreUrl=imap://" + USER + ":" + PASSWORD + "@localhost:" + imapPort
+                            + "/INBOX&delay=20&maxMessagesPerPoll=100&concurrentConsumers=" + consumers);
+                } else {
+                    route = from("imap://localhost:" + imapPort + "?username=" + USER + "&password=" + PASSWORD
+                            + "&delete=true&closeFolder=false&delay=20&maxMessagesPerPoll=100");
+                    if (consumers > 1) {
+                        route.threads(consumers);
+                    }
+                    route.process(EmailServerLoadTest::setReceivedDate)
+                            .to("emailCsvProcessor:load");
+                }
+                route.process(EmailServerLoadTest.this::recordParsed);
+            }
+        });
+        camelContext.start();
+    }
+
+    /**
+     * camel-mail does not map the received date, which the processor requires, unlike the component's own consumer.
+     */
+    private static void setReceivedDate(Exchange exchange) throws Exception {
+        Message message = exchange.getIn(MailMessage.class).getMessage();
+        Date receivedDate = message.getReceivedDate() != null ? message.getReceivedDate() : message.getSentDate();
+        exchange.getIn().setHeader("CamelMailMessageReceivedDate", receivedDate);
+    }
+
+    private void recordParsed(Exchange exchange) {
+        long now = System.nanoTime();
+        Object errorReason = exchange.getIn().getHeader("ErrorReason");
+        LeaveSubmission submission = exchange.getIn().getBody(LeaveSubmission.class);
+        if (errorReason != null || submission == null) {
+            failures.add(errorReason != null ? errorReason.toString() : "no leave submission");
+            remaining.countDown();
+            return;
+        }
+        int id = Integer.parseInt(submission.requesterCompany().substring(SUBJECT_PREFIX.length()));
+        if (submission.leaveDetails().size() != rows) {
+            failures.add("email " + id + " has " + submission.leaveDetails().size() + " of " + rows + " rows");
+        } else if (!parsedAt.compareAndSet(id, 0, now)) {
+            failures.add("email " + id + " processed twice");
+        }
+        remaining.countDown();
+    }
+
+    private void report(long start, long sent, long end) {
+        long[] latencies = new long[emails];
+        for (int i = 0; i < emails; i++) {
+            latencies[i] = parsedAt.get(i) - sentAt.get(i);
+        }
+        Arrays.sort(latencies);
+        double seconds = (end - start) / 1e9;
+        System.out.printf("%d emails (%s, %d rows, %s, %d consumers) sent at %.1f/s, processed at %.1f/s (%.0f rows/s)%n",
+                emails, format, rows, source, consumers, emails / ((sent - start) / 1e9), emails / seconds, emails * (double) rows / seconds);
+        System.out.printf("latency ms: p50 %.1f, p99 %.1f, p999 %.1f, max %.1f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999), latencies[emails - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static MimeMessage createEmail(Session session, int id, String fileName, byte[] content) throws Exception {
+        MimeMessage email = new MimeMessage(session);
+        email.setFrom(new InternetAddress("john.doe@example.com"));
+        email.setRecipient(Message.RecipientType.TO, new InternetAddress(ADDRESS));
+        email.setSubject(SUBJECT_PREFIX + id);
+        email.setSentDate(new Date());
+
+        MimeBodyPart text = new MimeBodyPart();
+        text.setText("Leave for this month");
+        MimeBodyPart attachment = new MimeBodyPart();
+        attachment.setDataHandler(new DataHandler(new ByteArrayDataSource(content, "application/octet-stream")));
+        attachment.setFileName(fileName);
+
+        MimeMultipart multipart = new MimeMultipart();
+        multipart.addBodyPart(text);
+        multipart.addBodyPart(attachment);
+        email.setContent(multipart);
+        email.saveChanges();
+        return email;
+    }
+
+    private static byte[] csv(int rows) {
+        StringBuilder csv = new StringBuilder("employee_id,employee_name,manager,start_date,end_date,no_of_hours\n");
+        for (int i = 0; i < rows; i++) {
+            LocalDate start = LocalDate.of(2024, 1, 1).plusDays(i % 365);
+            csv.append(1000 + i).append(",Employee ").append(i).append(" Doe,Manager ").append(i % 10).append(" Roe,")
+                    .append(start).append(',').append(start.plusDays(1 + i % 5)).append(',').append(8 * (1 + i % 5)).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] xlsx(int rows) throws Exception {
+        SXSSFWorkbook workbook = new SXSSFWorkbook();
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet();
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < EmailCsvProcessorProducer.EXPECTED_HEADERS.length; i++) {
+                header.createCell(i).setCellValue(EmailCsvProcessorProducer.EXPECTED_HEADERS[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                LocalDate start = LocalDate.of(2024, 1, 1).plusDays(i % 365);
+                Row row = sheet.createRow(i + 1);
+                row.createCell(0).setCellValue(String.valueOf(1000 + i));
+                row.createCell(1).setCellValue("Employee " + i + " Doe");
+                row.createCell(2).setCellValue("Manager " + i % 10 + " Roe");
+                row.createCell(3).setCellValue(start.toString());
+                row.createCell(4).setCellValue(start.plusDays(1 + i % 5).toString());
+                row.createCell(5).setCellValue(String.valueOf(8 * (1 + i % 5)));
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        } finally {
+            workbook.dispose();
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package org.component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import org.apache.camel.CamelContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The HR directory snapshot used to fill in the email, first and last name and manager of every parsed leave row
+ * by {@code employee_id}.
+ * <p>
+ * The snapshot is a CSV file with a header row, or a JSON array of objects when the file name ends with
+ * {@code .json}, with the fields {@code employee_id}, {@code email}, {@code first_name}, {@code last_name} and
+ * {@code manager}. Only {@code employee_id} is required; empty fields leave the value parsed from the attachment.
+ * <p>
+ * Employees are kept in an open addressing table of {@code int} ids pointing into one UTF-8 byte array holding
+ * the text of every employee, so a million employees take a few arrays instead of a million map entries and
+ * their strings. The file is checked for changes every {@code reloadInterval} milliseconds and a changed file is
+ * loaded into a new snapshot that replaces the old one in one volatile write, so a row is enriched either from the
+ * old or the new directory, never a mix. A file that fails to load is logged and the previous snapshot kept.
+ */
+public class EmployeeDirectory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeDirectory.class);
+    private static final JsonFactory JSON = new JsonFactory();
+
+    static final String EMPLOYEE_ID = "employee_id";
+    static final String[] FIELD_NAMES = {"email", "first_name", "last_name", "manager"};
+    private static final int EMAIL = 0;
+    private static final int FIRST_NAME = 1;
+    private static final int LAST_NAME = 2;
+    private static final int MANAGER = 3;
+    private static final int FIELDS = FIELD_NAMES.length;
+
+    private final CamelContext camelContext;
+    private final Path file;
+    private final long reloadInterval;
+    private volatile Snapshot snapshot = new Snapshot.Builder().build();
+    private FileTime loadedModified;
+    private long loadedSize = -1;
+    private ScheduledExecutorService scheduler;
+
+    public EmployeeDirectory(CamelContext camelContext, Path file, long reloadInterval) {
+        this.camelContext = camelContext;
+        this.file = file;
+        this.reloadInterval = reloadInterval;
+    }
+
+    /**
+     * One employee of the directory, fields missing from the snapshot are null.
+     */
+    public record Employee(int employeeId, String email, String firstName, String lastName, String manager) {
+    }
+
+    /**
+     * Loads the snapshot, failing when it cannot be read, and starts watching it for changes.
+     */
+    public void start() {
+        try {
+            reload();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load the employee directory " + file, e);
+        }
+        if (reloadInterval > 0) {
+            scheduler = camelContext.getExecutorServiceManager().newSingleThreadScheduledExecutor(this, "EmailCsvProcessorEmployeeDirectory");
+            scheduler.scheduleWithFixedDelay(this::reloadIfChanged, reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            camelContext.getExecutorServiceManager().shutdown(scheduler);
+            scheduler = null;
+        }
+    }
+
+    public int size() {
+        return snapshot.size;
+    }
+
+    /**
+     * The employee with the given id, null when the directory does not know it.
+     */
+    public Employee find(int employeeId) {
+        Snapshot current = snapshot;
+        int entry = current.indexOf(employeeId);
+        if (entry < 0) {
+            return null;
+        }
+        return new Employee(employeeId, current.field(entry, EMAIL, null), current.field(entry, FIRST_NAME, null),
+                current.field(entry, LAST_NAME, null), current.field(entry, MANAGER, null));
+    }
+
+    /**
+     * The row with the email, names and manager of the directory, the row itself when the employee is unknown.
+     */
+    public LeaveDetail enrich(LeaveDetail leaveDetail) {
+        Snapshot current = snapshot;
+        int entry = current.indexOf(leaveDetail.employeeId());
+        if (entry < 0) {
+            return leaveDetail;
+        }
+        return new LeaveDetail(leaveDetail.employeeId(), leaveDetail.displayName(),
+                current.field(entry, FIRST_NAME, leaveDetail.firstName()), current.field(entry, LAST_NAME, leaveDetail.lastName()),
+                current.field(entry, MANAGER, leaveDetail.manager()), leaveDetail.startDate(), leaveDetail.endDate(),
+                current.field(entry, EMAIL, leaveDetail.email()), leaveDetail.noOfHours(), leaveDetail.sheet());
+    }
+
+    /**
+     * Enriches every row on its way to {@code sink}.
+     */
+    public Consumer<LeaveDetail> enrich(Consumer<LeaveDetail> sink) {
+        return row -> sink.accept(enrich(row));
+    }
+
+    /**
+     * Loads the file again if its modification time or size changed since it was last loaded.
+     */
+    boolean reloadIfChanged() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attributes.lastModifiedTime().equals(loadedModified) && attributes.size() == loadedSize) {
+                return false;
+            }
+            reload();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to reload the employee directory {}, keeping the {} employees loaded before", file, snapshot.size, e);
+            return false;
+        }
+    }
+
+    void reload() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        // remembered before reading, so a file that fails to load is not read again until it changes
+        loadedModified = attributes.lastModifiedTime();
+        loadedSize = attributes.size();
+
+        Snapshot.Builder builder = new Snapshot.Builder();
+        try (InputStream in = Files.newInputStream(file)) {
+            if (file.getFileName().toString().toLowerCase().endsWith(".json")) {
+                readJson(in, builder);
+            } else {
+                readCsv(in, builder);
+            }
+        }
+        snapshot = builder.build();
+        LOGGER.info("Loaded {} employees from {}", snapshot.size, file);
+    }
+
+    private void readCsv(InputStream in, Snapshot.Builder builder) throws IOException {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String[] header = reader.readNext();
+            if (header == null) {
+                return;
+            }
+            int idColumn = -1;
+            int[] columns = new int[FIELDS];
+            Arrays.fill(columns, -1);
+            for (int column = 0; column < header.length; column++) {
+                String name = header[column].replace("\uFEFF", "").trim();
+                if (EMPLOYEE_ID.equals(name)) {
+                    idColumn = column;
+                }
+                int field = fieldIndex(name);
+                if (field >= 0) {
+                    columns[field] = column;
+                }
+            }
+            if (idColumn < 0) {
+                throw new IOException("Employee directory header has no " + EMPLOYEE_ID + " column");
+            }
+
+            String[] values = new String[FIELDS];
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                if (row.length == 1 && row[0].isBlank()) {
+                    continue;
+                }
+                if (idColumn >= row.length) {
+                    throw new IOException("Employee directory row " + reader.getLinesRead() + " has no " + EMPLOYEE_ID);
+                }
+                int employeeId;
+                try {
+                    employeeId = LeaveCells.parseInt(row[idColumn], 0, row[idColumn].length());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Employee directory row " + reader.getLinesRead() + ": " + e.getMessage(), e);
+                }
+                for (int field = 0; field < FIELDS; field++) {
+                    int column = columns[field];
+                    values[field] = column >= 0 && column < row.length ? row[column] : null;
+                }
+                builder.add(employeeId, values);
+            }
+        } catch (CsvValidationException e) {
+            throw new IOException("Invalid employee directory: " + e.getMessage(), e);
+        }
+    }
+
+    private void readJson(InputStream in, Snapshot.Builder builder) throws IOException {
+        try (JsonParser parser = JSON.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Employee directory must be a JSON array of employees");
+            }
+            String[] values = new String[FIELDS];
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                Arrays.fill(values, null);
+                boolean hasId = false;
+                int employeeId = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    if (EMPLOYEE_ID.equals(name)) {
+                        employeeId = employeeId(parser);
+                        hasId = true;
+                        continue;
+                    }
+                    int field = fieldIndex(name);
+                    if (field >= 0) {
+                        values[field] = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (!hasId) {
+                    throw new IOException("Employee directory has an employee without " + EMPLOYEE_ID
+                            + " at " + parser.currentLocation().getLineNr() + ":" + parser.currentLocation().getColumnNr());
+                }
+                builder.add(employeeId, values);
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new IOException("Employee directory must be a JSON array of employees");
+            }
+        }
+    }
+
+    private static int employeeId(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        String text = parser.getValueAsString();
+        try {
+            if (text != null) {
+                return LeaveCells.parseInt(text, 0, text.length());
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below with the location
+        }
+        throw new IOException("Employee directory has an invalid " + EMPLOYEE_ID + " " + parser.getText()
+                + " at " + parser.currentLocation().getLineNr() + ":" + parser.currentLocation().getColumnNr());
+    }
+
+    private static int fieldIndex(String name) {
+        for (int field = 0; field < FIELDS; field++) {
+            if (FIELD_NAMES[field].equals(name)) {
+                return field;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * An immutable directory: entry {@code e} has the id {@code ids[e]} and its fields stored one after the other in
+     * {@code text}, field {@code f} spanning {@code offsets[e * FIELDS + f]} to {@code offsets[e * FIELDS + f + 1]}.
+     * {@code slots} is a linear probing table of entry indexes plus one, zero marking a free slot.
+     */
+    private static final class Snapshot {
+
+        private final int[] slots;
+        private final int[] ids;
+        private final int[] offsets;
+        private final byte[] text;
+        private final int size;
+
+        private Snapshot(int[] slots, int[] ids, int[] offsets, byte[] text, int size) {
+            this.slots = slots;
+            this.ids = ids;
+            this.offsets = offsets;
+            this.text = text;
+            this.size = size;
+        }
+
+        int indexOf(int employeeId) {
+            int mask = slots.length - 1;
+            for (int slot = hash(employeeId) & mask; ; slot = (slot + 1) & mask) {
+                int entry = slots[slot] - 1;
+                if (entry < 0 || ids[entry] == employeeId) {
+                    return entry;
+                }
+            }
+        }
+
+        /**
+         * The field of the entry, {@code fallback} when it is empty.
+         */
+        String field(int entry, int field, String fallback) {
+            int start = offsets[entry * FIELDS + field];
+            int end = offsets[entry * FIELDS + field + 1];
+            return start == end ? fallback : new String(text, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        private static int hash(int employeeId) {
+            // ids are often sequential, spread them so neighbours do not form long probe runs
+            int h = employeeId * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        static final class Builder {
+
+            private int[] ids = new int[16];
+            private int[] offsets = new int[16 * FIELDS + 1];
+            private byte[] text = new byte[1024];
+            private int count;
+            private int length;
+
+            void add(int employeeId, String[] values) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2 * FIELDS + 1);
+                }
+                ids[count] = employeeId;
+                for (int field = 0; field < FIELDS; field++) {
+                    String value = values[field];
+                    if (value != null && !value.isEmpty()) {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        if (length + bytes.length > text.length) {
+                            text = Arrays.copyOf(text, Math.max(text.length * 2, length + bytes.length));
+                        }
+                        System.arraycopy(bytes, 0, text, length, bytes.length);
+                        length += bytes.length;
+                    }
+                    offsets[count * FIELDS + field + 1] = length;
+                }
+                count++;
+            }
+
+            Snapshot build() {
+                // at most half full, so probe runs stay short
+                int capacity = Integer.highestOneBit(Math.max(count, 8) * 2 - 1) << 1;
+                int[] slots = new int[capacity];
+                int mask = capacity - 1;
+                int size = 0;
+                for (int entry = 0; entry < count; entry++) {
+                    int slot = hash(ids[entry]) & mask;
+                    while (slots[slot] != 0 && ids[slots[slot] - 1] != ids[entry]) {
+                        slot = (slot + 1) & mask;
+                    }
+                    if (slots[slot] == 0) {
+                        size++;
+                    }
+                    // a later row for the same id replaces the earlier one
+                    slots[slot] = entry + 1;
+                }
+                return new Snapshot(slots, Arrays.copyOf(ids, count), Arrays.copyOf(offsets, count * FIELDS + 1),
+                        Arrays.copyOf(text, length), size);
+            }
+        }
+    }
+}
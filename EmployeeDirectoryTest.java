@@ -0,0 +1,152 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeDirectoryTest {
+
+    @TempDir
+    Path dir;
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    void setUp() {
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+    }
+
+    @Test
+    void testLoadsCsvAndJsonSnapshots() throws Exception {
+        Path csv = write("employees.csv", "\uFEFFmanager,employee_id,first_name,last_name,email\n"
+                + "Jane Roe,1,John,Doe,john.doe@example.com\n"
+                + ",2,Mary,Major,\n");
+        Path json = write("employees.json", "[{\"employee_id\": 1, \"email\": \"john.doe@example.com\", \"first_name\": \"John\","
+                + " \"last_name\": \"Doe\", \"manager\": \"Jane Roe\", \"department\": {\"name\": \"HR\"}},"
+                + " {\"employee_id\": \"2\", \"first_name\": \"Mary\", \"last_name\": \"Major\"}]");
+
+        for (Path file : new Path[]{csv, json}) {
+            EmployeeDirectory directory = start(file);
+            assertEquals(2, directory.size(), file.toString());
+            assertEquals(new EmployeeDirectory.Employee(1, "john.doe@example.com", "John", "Doe", "Jane Roe"), directory.find(1));
+            assertEquals(new EmployeeDirectory.Employee(2, null, "Mary", "Major", null), directory.find(2));
+            assertNull(directory.find(3));
+            directory.stop();
+        }
+    }
+
+    @Test
+    void testEnrichKeepsParsedValuesTheDirectoryLacks() throws Exception {
+        EmployeeDirectory directory = start(write("employees.csv", "employee_id,email,first_name,last_name\n"
+                + "7,mary.major@example.com,Mary,Major\n"));
+        LeaveDetail parsed = LeaveDetail.of(7, "M. Major", "Jane Roe", LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 3), 8);
+
+        LeaveDetail enriched = directory.enrich(parsed);
+
+        assertEquals(new LeaveDetail(7, "M. Major", "Mary", "Major", "Jane Roe", parsed.startDate(), parsed.endDate(),
+                "mary.major@example.com", 8, null), enriched);
+        LeaveDetail unknown = LeaveDetail.of(8, "John Doe", "Jane Roe", parsed.startDate(), parsed.endDate(), 8);
+        assertSame(unknown, directory.enrich(unknown));
+    }
+
+    @Test
+    void testFindsEveryIdOfALargeDirectory() throws Exception {
+        StringBuilder csv = new StringBuilder("employee_id,email\n");
+        int[] specialIds = {0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        for (int id : specialIds) {
+            csv.append(id).append(",special").append(id).append("@example.com\n");
+        }
+        for (int id = 1; id <= 100_000; id++) {
+            csv.append(id * 16).append(",e").append(id).append("@example.com\n");
+        }
+        // a later row replaces an earlier one
+        csv.append("16,replaced@example.com\n");
+        EmployeeDirectory directory = start(write("employees.csv", csv.toString()));
+
+        assertEquals(100_004, directory.size());
+        for (int id : specialIds) {
+            assertEquals("special" + id + "@example.com", directory.find(id).email());
+        }
+        for (int id = 2; id <= 100_000; id++) {
+            assertEquals("e" + id + "@example.com", directory.find(id * 16).email());
+            assertNull(directory.find(id * 16 + 1));
+        }
+        assertEquals("replaced@example.com", directory.find(16).email());
+    }
+
+    @Test
+    void testReloadSwapsSnapshotAndKeepsTheOldOneOnFailure() throws Exception {
+        Path file = write("employees.csv", "employee_id,email\n1,old@example.com\n");
+        EmployeeDirectory directory = start(file);
+        assertFalse(directory.reloadIfChanged());
+
+        write("employees.csv", "employee_id,email\n1,new@example.com\n2,second@example.com\n");
+        assertTrue(directory.reloadIfChanged());
+        assertEquals("new@example.com", directory.find(1).email());
+        assertEquals(2, directory.size());
+
+        write("employees.csv", "email\nbroken@example.com\n");
+        assertFalse(directory.reloadIfChanged());
+        assertEquals("new@example.com", directory.find(1).email());
+        // not retried until the file changes again
+        assertFalse(directory.reloadIfChanged());
+    }
+
+    @Test
+    void testEndpointEnrichesParsedRows() throws Exception {
+        Path file = write("employees.json", "[{\"employee_id\": 1, \"email\": \"john.doe@example.com\", \"manager\": \"Boss\"}]");
+        String csv = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+                + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n"
+                + "2,Mary Major,Jane Roe,2024-01-02,2024-01-03,4\n";
+
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", "john.doe@example.com");
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(csv.getBytes(StandardCharsets.UTF_8), "text/csv");
+        dataSource.setName("leave.csv");
+        in.addAttachment("leave.csv", new DataHandler(dataSource));
+        exchange.setIn(in);
+        camelContext.createProducerTemplate().send("emailCsvProcessor:test?employeeDirectoryFile=" + file, exchange);
+
+        LeaveSubmission submission = exchange.getIn().getBody(LeaveSubmission.class);
+        assertEquals("john.doe@example.com", submission.leaveDetails().get(0).email());
+        assertEquals("Boss", submission.leaveDetails().get(0).manager());
+        assertEquals(LeaveDetail.DEFAULT_EMAIL, submission.leaveDetails().get(1).email());
+        assertEquals("Jane Roe", submission.leaveDetails().get(1).manager());
+    }
+
+    private EmployeeDirectory start(Path file) {
+        EmployeeDirectory directory = new EmployeeDirectory(camelContext, file, 0);
+        directory.start();
+        return directory;
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(dir.resolve(name), content);
+    }
+}
@@ -0,0 +1,586 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.DataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.support.DefaultExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Keeps the emails that failed, headers and raw attachment bytes, in segment files on local disk, so they can be
+ * run through the processor again once whatever made them fail has been fixed.
+ * <p>
+ * Every segment is a file of {@code segmentSize} bytes mapped into memory and filled with records one after
+ * another; a record larger than a segment gets a segment of its own. A record is a length, a CRC32C of its
+ * payload, a status byte and the payload, written payload first and length last and forced to disk before
+ * {@link #append} returns. On start every segment is read back up to its first record that is missing or fails
+ * its CRC, which is where a crash in the middle of a write leaves off, and appending continues there.
+ * <p>
+ * Records are never moved or rewritten: acknowledging a record only flips its status byte, which the CRC does
+ * not cover. A segment in which every record has been acknowledged is deleted, so the journal only takes the
+ * disk space of the emails still waiting to be replayed. That space is capped at {@code maxBytes}: once the
+ * segments on disk leave no room for a record, {@link #append} refuses it until a replay frees a segment. A deleted
+ * segment keeps its space until its mapping is garbage collected, which waits for the attachments replayed from it,
+ * so it is counted until then.
+ * <p>
+ * The attachments are measured first and then copied from their streams straight into the mapped segment, only
+ * the headers are encoded on the heap.
+ */
+public class FailureJournal {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FailureJournal.class);
+
+    /** Reason of an email that was processed but failed further down the route. */
+    public static final String REASON_DOWNSTREAM = "downstream";
+
+    private static final String SUFFIX = ".journal";
+    // length, CRC and status
+    private static final int RECORD_HEADER = 9;
+    private static final int STATUS_OFFSET = 8;
+    private static final byte PENDING = 1;
+    private static final byte ACKNOWLEDGED = 2;
+
+    private static final byte STRING = 0;
+    private static final byte LONG = 1;
+    private static final byte INTEGER = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte DATE = 4;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxBytes;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    // deleted segments whose mapping, and with it their disk space, has not been released yet
+    private final Set<Retired> retired = new HashSet<>();
+    private final ReferenceQueue<MappedByteBuffer> unmapped = new ReferenceQueue<>();
+    private Segment active;
+    private long diskBytes;
+
+    public FailureJournal(Path directory, int segmentSize) {
+        this(directory, segmentSize, Long.MAX_VALUE);
+    }
+
+    public FailureJournal(Path directory, int segmentSize, long maxBytes) {
+        if (segmentSize <= RECORD_HEADER) {
+            throw new IllegalArgumentException("journalSegmentSize must be larger than " + RECORD_HEADER);
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("journalMaxBytes must be positive");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * An email read back from the journal. The attachments read straight from the mapped segment.
+     */
+    public record Entry(long position, long journaledAt, String reason, Map<String, Object> headers, Map<String, DataHandler> attachments) {
+    }
+
+    /**
+     * Reads back the segments in the directory, creating it when missing, and deletes the ones without a pending
+     * record.
+     */
+    public synchronized void start() {
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(directory)) {
+                files = list.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+            }
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Segment segment = Segment.open(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+                segments.put(segment.sequence, segment);
+                diskBytes += segment.buffer.capacity();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the failure journal in " + directory, e);
+        }
+        active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment != active) {
+                deleteIfAcknowledged(segment);
+            }
+        }
+    }
+
+    public synchronized void stop() {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+        segments.clear();
+        retired.clear();
+        active = null;
+        diskBytes = 0;
+    }
+
+    /**
+     * Writes an email to the journal and returns its position. Headers set by the processor itself and header
+     * values other than strings, numbers, booleans and dates are left out.
+     *
+     * @throws IOException when the record does not fit in {@code maxBytes}, or cannot be written
+     */
+    public long append(String reason, Map<String, Object> headers, Map<String, DataHandler> attachments) throws IOException {
+        byte[] prefix = encodeHeaders(reason, headers, attachments.size());
+        List<byte[]> descriptions = new ArrayList<>(attachments.size());
+        List<DataHandler> contents = new ArrayList<>(attachments.size());
+        List<Long> lengths = new ArrayList<>(attachments.size());
+        long payloadLength = prefix.length;
+        for (Map.Entry<String, DataHandler> attachment : attachments.entrySet()) {
+            byte[] description = encodeAttachment(attachment.getKey(), attachment.getValue());
+            long length = lengthOf(attachment.getValue());
+            descriptions.add(description);
+            contents.add(attachment.getValue());
+            lengths.add(length);
+            payloadLength += description.length + 4 + length;
+        }
+        if (payloadLength > Integer.MAX_VALUE - RECORD_HEADER) {
+            throw new IOException("The email is too large for the failure journal, its record would take " + payloadLength + " bytes");
+        }
+
+        synchronized (this) {
+            reclaim();
+            int recordSize = RECORD_HEADER + (int) payloadLength;
+            if (active == null || active.writeOffset + recordSize > active.buffer.capacity()) {
+                int size = Math.max(segmentSize, recordSize);
+                if (diskBytes + size > maxBytes) {
+                    throw new IOException("The failure journal in " + directory + " is full, " + diskBytes + " of "
+                            + maxBytes + " bytes are taken by emails waiting to be replayed");
+                }
+                roll(size);
+            }
+            MappedByteBuffer buffer = active.buffer;
+            int offset = active.writeOffset;
+            // a write that fails half way leaves the length unset, so the record is overwritten by the next one
+            ByteBuffer payload = buffer.slice(offset + RECORD_HEADER, (int) payloadLength);
+            payload.put(prefix);
+            for (int i = 0; i < descriptions.size(); i++) {
+                payload.put(descriptions.get(i));
+                payload.putInt(lengths.get(i).intValue());
+                copy(contents.get(i), lengths.get(i).intValue(), payload);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(payload.flip());
+            buffer.put(offset + STATUS_OFFSET, PENDING);
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            buffer.putInt(offset, (int) payloadLength);
+            buffer.force(offset, recordSize);
+            active.writeOffset += recordSize;
+            active.pending++;
+            return position(active.sequence, offset);
+        }
+    }
+
+    /**
+     * Marks the record as replayed, deleting its segment once every record in it is. Returns false when the record
+     * had been acknowledged before or its segment is gone.
+     */
+    public synchronized boolean acknowledge(long position) {
+        Segment segment = segments.get(position >>> 32);
+        int offset = (int) position;
+        if (segment == null || segment.buffer.get(offset + STATUS_OFFSET) != PENDING) {
+            return false;
+        }
+        segment.buffer.put(offset + STATUS_OFFSET, ACKNOWLEDGED);
+        segment.buffer.force(offset + STATUS_OFFSET, 1);
+        segment.pending--;
+        if (segment != active) {
+            deleteIfAcknowledged(segment);
+        }
+        return true;
+    }
+
+    /**
+     * Hands every pending record, oldest first, to {@code handler} and acknowledges the ones it returns true for.
+     * Records appended while replaying are not part of this replay. Returns the number of acknowledged records.
+     */
+    public int replay(Predicate<Entry> handler) {
+        List<Long> positions = new ArrayList<>();
+        List<ByteBuffer> buffers = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : segments.values()) {
+                for (int offset = 0; offset < segment.writeOffset; offset += RECORD_HEADER + segment.buffer.getInt(offset)) {
+                    if (segment.buffer.get(offset + STATUS_OFFSET) == PENDING) {
+                        positions.add(position(segment.sequence, offset));
+                        buffers.add(segment.buffer.slice(offset + RECORD_HEADER, segment.buffer.getInt(offset)));
+                    }
+                }
+            }
+        }
+        int acknowledged = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            if (handler.test(decode(positions.get(i), buffers.get(i))) && acknowledge(positions.get(i))) {
+                acknowledged++;
+            }
+        }
+        return acknowledged;
+    }
+
+    /**
+     * Sends every pending email to {@code endpointUri}, the route that normally receives the emails, and
+     * acknowledges the ones that come back without an exception or {@code ErrorReason}. The exchanges carry the
+     * {@link EmailCsvProcessorConstants#JOURNAL_POSITION} header, which keeps the processor from journaling an
+     * email that fails again a second time. Returns the number of acknowledged emails.
+     */
+    public int replay(ProducerTemplate template, String endpointUri) {
+        return replay(entry -> {
+            Exchange exchange = new DefaultExchange(template.getCamelContext());
+            AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+            in.setHeaders(new LinkedHashMap<>(entry.headers()));
+            in.setHeader(EmailCsvProcessorConstants.JOURNAL_POSITION, entry.position());
+            entry.attachments().forEach(in::addAttachment);
+            exchange.setIn(in);
+            template.send(endpointUri, exchange);
+            return exchange.getException() == null && exchange.getMessage().getHeader("ErrorReason") == null;
+        });
+    }
+
+    /**
+     * Number of records not acknowledged yet.
+     */
+    public synchronized int pendingCount() {
+        int pending = 0;
+        for (Segment segment : segments.values()) {
+            pending += segment.pending;
+        }
+        return pending;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Bytes taken on disk by the segment files, counting deleted segments until their mapping is released.
+     */
+    public synchronized long diskBytes() {
+        reclaim();
+        return diskBytes;
+    }
+
+    private void roll(int size) throws IOException {
+        long sequence = active != null ? active.sequence + 1 : 1;
+        Segment previous = active;
+        active = Segment.create(sequence, directory.resolve(String.format("%019d", sequence) + SUFFIX), size);
+        segments.put(sequence, active);
+        diskBytes += size;
+        if (previous != null) {
+            deleteIfAcknowledged(previous);
+        }
+    }
+
+    private void deleteIfAcknowledged(Segment segment) {
+        if (segment.pending > 0) {
+            return;
+        }
+        segments.remove(segment.sequence);
+        // the file is gone from the directory, but its blocks stay taken until the buffer is unmapped
+        retired.add(new Retired(segment.buffer, unmapped));
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete the replayed journal segment {}", segment.file, e);
+        }
+    }
+
+    /**
+     * Gives back the space of the deleted segments that have been unmapped since the last call.
+     */
+    private void reclaim() {
+        Reference<? extends MappedByteBuffer> reference;
+        while ((reference = unmapped.poll()) != null) {
+            if (retired.remove(reference)) {
+                diskBytes -= ((Retired) reference).size;
+            }
+        }
+    }
+
+    private static long position(long sequence, int offset) {
+        return sequence << 32 | offset;
+    }
+
+    private static byte[] encodeHeaders(String reason, Map<String, Object> headers, int attachmentCount) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(System.currentTimeMillis());
+        writeString(out, reason);
+        List<Map.Entry<String, Object>> journaled = new ArrayList<>();
+        for (Map.Entry<String, Object> header : headers.entrySet()) {
+            // the processor's own headers describe the failed attempt, not the email
+            if (!header.getKey().startsWith("EmailCsv") && !"ErrorReason".equals(header.getKey()) && typeOf(header.getValue()) >= 0) {
+                journaled.add(header);
+            }
+        }
+        out.writeInt(journaled.size());
+        for (Map.Entry<String, Object> header : journaled) {
+            writeString(out, header.getKey());
+            Object value = header.getValue();
+            byte type = typeOf(value);
+            out.writeByte(type);
+            switch (type) {
+                case LONG -> out.writeLong((Long) value);
+                case INTEGER -> out.writeInt((Integer) value);
+                case BOOLEAN -> out.writeBoolean((Boolean) value);
+                case DATE -> out.writeLong(((Date) value).getTime());
+                default -> writeString(out, (String) value);
+            }
+        }
+        out.writeInt(attachmentCount);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The key, name and content type of an attachment, which come before its length and content.
+     */
+    private static byte[] encodeAttachment(String key, DataHandler attachment) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, key);
+        writeString(out, attachment.getName());
+        writeString(out, attachment.getContentType());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the attachment once to measure it, without holding on to its bytes.
+     */
+    private static long lengthOf(DataHandler attachment) throws IOException {
+        if (attachment.getDataSource() instanceof BufferDataSource journaled) {
+            return journaled.content().remaining();
+        }
+        try (InputStream inputStream = attachment.getInputStream()) {
+            return inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void copy(DataHandler attachment, int length, ByteBuffer target) throws IOException {
+        byte[] chunk = new byte[(int) Math.min(length, 64 * 1024) + 1];
+        int copied = 0;
+        try (InputStream inputStream = attachment.getInputStream()) {
+            int n;
+            while ((n = inputStream.read(chunk)) > 0) {
+                if (copied + n > length) {
+                    break;
+                }
+                target.put(chunk, 0, n);
+                copied += n;
+            }
+        }
+        if (copied != length) {
+            throw new IOException("The attachment " + attachment.getName() + " changed while it was journaled");
+        }
+    }
+
+    private static byte typeOf(Object value) {
+        if (value instanceof String) {
+            return STRING;
+        }
+        if (value instanceof Long) {
+            return LONG;
+        }
+        if (value instanceof Integer) {
+            return INTEGER;
+        }
+        if (value instanceof Boolean) {
+            return BOOLEAN;
+        }
+        if (value instanceof Date) {
+            return DATE;
+        }
+        return -1;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Entry decode(long position, ByteBuffer payload) {
+        long journaledAt = payload.getLong();
+        String reason = readString(payload);
+        int headerCount = payload.getInt();
+        Map<String, Object> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            String name = readString(payload);
+            Object value = switch (payload.get()) {
+                case LONG -> payload.getLong();
+                case INTEGER -> payload.getInt();
+                case BOOLEAN -> payload.get() != 0;
+                case DATE -> new Date(payload.getLong());
+                default -> readString(payload);
+            };
+            headers.put(name, value);
+        }
+        int attachmentCount = payload.getInt();
+        Map<String, DataHandler> attachments = new LinkedHashMap<>();
+        for (int i = 0; i < attachmentCount; i++) {
+            String key = readString(payload);
+            String name = readString(payload);
+            String contentType = readString(payload);
+            int length = payload.getInt();
+            attachments.put(key, new DataHandler(new BufferDataSource(name, contentType, payload.slice(payload.position(), length))));
+            payload.position(payload.position() + length);
+        }
+        return new Entry(position, journaledAt, reason, headers, attachments);
+    }
+
+    private static String readString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Retired extends PhantomReference<MappedByteBuffer> {
+
+        final int size;
+
+        Retired(MappedByteBuffer buffer, ReferenceQueue<MappedByteBuffer> queue) {
+            super(buffer, queue);
+            this.size = buffer.capacity();
+        }
+    }
+
+    private static final class Segment {
+
+        final long sequence;
+        final Path file;
+        final MappedByteBuffer buffer;
+        int writeOffset;
+        int pending;
+
+        private Segment(long sequence, Path file, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        static Segment create(long sequence, Path file, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Segment(sequence, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+
+        /**
+         * Maps an existing segment and counts its pending records, stopping at the first record that was not
+         * completely written.
+         */
+        static Segment open(long sequence, Path file) throws IOException {
+            Segment segment;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                segment = new Segment(sequence, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+            }
+            MappedByteBuffer buffer = segment.buffer;
+            CRC32C crc = new CRC32C();
+            int offset = 0;
+            while (offset + RECORD_HEADER <= buffer.capacity()) {
+                int length = buffer.getInt(offset);
+                if (length <= 0 || length > buffer.capacity() - offset - RECORD_HEADER) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.slice(offset + RECORD_HEADER, length));
+                byte status = buffer.get(offset + STATUS_OFFSET);
+                if ((int) crc.getValue() != buffer.getInt(offset + 4) || (status != PENDING && status != ACKNOWLEDGED)) {
+                    LOGGER.warn("Journal segment {} ends in an incomplete record at offset {}, ignoring the rest", file, offset);
+                    break;
+                }
+                if (status == PENDING) {
+                    segment.pending++;
+                }
+                offset += RECORD_HEADER + length;
+            }
+            segment.writeOffset = offset;
+            return segment;
+        }
+    }
+
+    /**
+     * An attachment read from the mapped segment without copying it onto the heap.
+     */
+    private record BufferDataSource(String name, String contentType, ByteBuffer content) implements DataSource {
+
+        @Override
+        public InputStream getInputStream() {
+            ByteBuffer buffer = content.duplicate();
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (!buffer.hasRemaining()) {
+                        return len == 0 ? 0 : -1;
+                    }
+                    int n = Math.min(len, buffer.remaining());
+                    buffer.get(b, off, n);
+                    return n;
+                }
+
+                @Override
+                public int available() {
+                    return buffer.remaining();
+                }
+            };
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            throw new IOException("Journaled attachments are read only");
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType != null ? contentType : "application/octet-stream";
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailureJournalTest {
+
+    private static final String CSV = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+            + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testReplaysRecordsAfterRestart() throws Exception {
+        Date received = new Date(1_700_000_000_000L);
+        Map<String, Object> headers = new LinkedHashMap<>();
+        headers.put("From", "john.doe@example.com");
+        headers.put("CamelMailMessageReceivedDate", received);
+        headers.put("Size", 42L);
+        headers.put("Attempt", 3);
+        headers.put("Flagged", true);
+        headers.put("ErrorReason", "left out");
+        headers.put(EmailCsvProcessorConstants.ROW_COUNT, 1);
+        headers.put("Unsupported", new Object());
+
+        FailureJournal journal = new FailureJournal(dir, 1024 * 1024);
+        journal.start();
+        long first = journal.append("unexpected", headers, Map.of("leave.csv", attachment("leave.csv", CSV)));
+        journal.append("downstream", Map.of("From", "mary.major@example.com"), Map.of());
+        journal.stop();
+
+        journal = new FailureJournal(dir, 1024 * 1024);
+        journal.start();
+        assertEquals(2, journal.pendingCount());
+        List<FailureJournal.Entry> entries = new ArrayList<>();
+        assertEquals(1, journal.replay(entry -> {
+            entries.add(entry);
+            return entry.position() == first;
+        }));
+
+        FailureJournal.Entry entry = entries.get(0);
+        assertEquals("unexpected", entry.reason());
+        assertEquals(Map.of("From", "john.doe@example.com", "CamelMailMessageReceivedDate", received, "Size", 42L, "Attempt", 3,
+                "Flagged", true), entry.headers());
+        DataHandler replayed = entry.attachments().get("leave.csv");
+        assertEquals("leave.csv", replayed.getName());
+        try (InputStream inputStream = replayed.getInputStream()) {
+            assertEquals(CSV, new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals("downstream", entries.get(1).reason());
+        assertEquals(1, journal.pendingCount());
+        assertFalse(journal.acknowledge(first));
+    }
+
+    @Test
+    void testIgnoresIncompleteRecordAndAppendsAfterTheLastComplete() throws Exception {
+        FailureJournal journal = new FailureJournal(dir, 4096);
+        journal.start();
+        journal.append("unexpected", Map.of("From", "first@example.com"), Map.of());
+        long second = journal.append("unexpected", Map.of("From", "second@example.com"), Map.of());
+        journal.stop();
+        // a crash in the middle of writing the second record
+        try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'x', 'x'}), (int) second + 20);
+        }
+
+        journal = new FailureJournal(dir, 4096);
+        journal.start();
+        assertEquals(1, journal.pendingCount());
+        journal.append("unexpected", Map.of("From", "third@example.com"), Map.of());
+        journal.stop();
+
+        journal = new FailureJournal(dir, 4096);
+        journal.start();
+        List<Object> senders = new ArrayList<>();
+        journal.replay(entry -> senders.add(entry.headers().get("From")));
+        assertEquals(List.of("first@example.com", "third@example.com"), senders);
+        assertEquals(0, journal.pendingCount());
+    }
+
+    @Test
+    void testDeletesSegmentsOnceEveryRecordIsAcknowledged() throws Exception {
+        FailureJournal journal = new FailureJournal(dir, 256);
+        journal.start();
+        List<Long> positions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            positions.add(journal.append("unexpected", Map.of("From", "sender" + i + "@example.com"), Map.of()));
+        }
+        // larger than a segment, written to one of its own
+        positions.add(journal.append("unexpected", Map.of(), Map.of("big.csv", attachment("big.csv", CSV.repeat(10)))));
+        int segments = journal.segmentCount();
+        assertTrue(segments > 3);
+
+        for (int i = 0; i < positions.size() - 1; i += 2) {
+            journal.acknowledge(positions.get(i));
+        }
+        assertEquals(segments, journal.segmentCount());
+        for (int i = 1; i < positions.size() - 1; i += 2) {
+            journal.acknowledge(positions.get(i));
+        }
+        assertEquals(1, journal.segmentCount());
+        assertEquals(1, journal.pendingCount());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testRefusesRecordsOnceTheSegmentsReachTheMaxBytes() throws Exception {
+        FailureJournal journal = new FailureJournal(dir, 256, 512);
+        journal.start();
+        List<Long> positions = new ArrayList<>();
+        IOException full = null;
+        while (full == null) {
+            try {
+                positions.add(journal.append("unexpected", Map.of("From", "sender@example.com"), Map.of()));
+            } catch (IOException e) {
+                full = e;
+            }
+        }
+        assertTrue(full.getMessage().contains("is full"), full.getMessage());
+        assertEquals(2, journal.segmentCount());
+        assertEquals(512, journal.diskBytes());
+        // larger than what is left, even in a segment of its own
+        assertThrows(IOException.class, () -> journal.append("unexpected", Map.of(), Map.of("big.csv", attachment("big.csv", CSV.repeat(10)))));
+
+        // replaying the first segment makes room again, once its mapping is released
+        for (long position : positions) {
+            if (position >>> 32 == 1) {
+                journal.acknowledge(position);
+            }
+        }
+        awaitDiskBytes(journal, 256);
+        journal.append("unexpected", Map.of("From", "sender@example.com"), Map.of());
+        assertEquals(512, journal.diskBytes());
+    }
+
+    @Test
+    void testCountsDeletedSegmentsWhileTheirAttachmentsAreReplayed() throws Exception {
+        FailureJournal journal = new FailureJournal(dir, 256, 512);
+        journal.start();
+        journal.append("unexpected", Map.of(), Map.of("leave.csv", attachment("leave.csv", CSV)));
+        journal.append("unexpected", Map.of(), Map.of("leave.csv", attachment("leave.csv", CSV)));
+        assertEquals(2, journal.segmentCount());
+
+        List<DataHandler> held = new ArrayList<>();
+        assertEquals(2, journal.replay(entry -> held.add(entry.attachments().get("leave.csv"))));
+        assertEquals(1, journal.segmentCount());
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            assertEquals(512, journal.diskBytes());
+        }
+        // the next segment does not fit while the deleted one is still mapped
+        assertThrows(IOException.class, () -> journal.append("unexpected", Map.of(), Map.of("leave.csv", attachment("leave.csv", CSV))));
+        assertEquals(CSV, read(held.get(0)));
+
+        held.clear();
+        awaitDiskBytes(journal, 256);
+        journal.append("unexpected", Map.of(), Map.of("leave.csv", attachment("leave.csv", CSV)));
+    }
+
+    @Test
+    void testDropsRecordWhoseAttachmentChangesWhileItIsWritten() throws Exception {
+        FailureJournal journal = new FailureJournal(dir, 4096);
+        journal.start();
+        AtomicBoolean measured = new AtomicBoolean();
+        DataHandler growing = new DataHandler(new ByteArrayDataSource(CSV.getBytes(StandardCharsets.UTF_8), "text/csv") {
+            @Override
+            public InputStream getInputStream() {
+                // longer on the second read, which copies it into the segment
+                String content = measured.getAndSet(true) ? CSV + CSV : CSV;
+                return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        assertThrows(IOException.class, () -> journal.append("unexpected", Map.of(), Map.of("leave.csv", growing)));
+        journal.append("unexpected", Map.of("From", "next@example.com"), Map.of("leave.csv", attachment("leave.csv", CSV)));
+        journal.stop();
+
+        FailureJournal reopened = new FailureJournal(dir, 4096);
+        reopened.start();
+        List<Object> senders = new ArrayList<>();
+        reopened.replay(entry -> senders.add(entry.headers().get("From")));
+        assertEquals(List.of("next@example.com"), senders);
+    }
+
+    @Test
+    void testDoesNotJournalRateLimitedEmailsByDefault() throws Exception {
+        String uri = "emailCsvProcessor:test?journalDirectory=" + dir + "&rateLimit=1&rateLimitBurst=1";
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:leave").to(uri);
+            }
+        });
+        camelContext.start();
+        try {
+            ProducerTemplate template = camelContext.createProducerTemplate();
+            assertNull(send(template, "john.doe@example.com", "leave.csv").getIn().getHeader("ErrorReason"));
+            assertNotNull(send(template, "john.doe@example.com", "leave.csv").getIn().getHeader(EmailCsvProcessorConstants.RETRY_AFTER));
+
+            assertEquals(0, camelContext.getEndpoint(uri, EmailCsvProcessorEndpoint.class).getFailureJournal().pendingCount());
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    @Test
+    void testJournalsFailedEmailsAndReplaysThemThroughTheRoute() throws Exception {
+        AtomicBoolean downstreamDown = new AtomicBoolean(true);
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:leave")
+                        .to("emailCsvProcessor:test?journalDirectory=" + dir + "&journalReasons=unexpected,rate_limited,downstream&rateLimit=2&rateLimitBurst=1")
+                        .process(exchange -> {
+                            if (downstreamDown.get() && exchange.getIn().getHeader("ErrorReason") == null) {
+                                throw new IllegalStateException("Leave API unavailable");
+                            }
+                        });
+            }
+        });
+        camelContext.start();
+        try {
+            ProducerTemplate template = camelContext.createProducerTemplate();
+            assertNotNull(send(template, "john.doe@example.com", "leave.csv").getException());
+            // not journaled, replaying would fail the same way
+            assertNotNull(send(template, "mary.major@other.example", "leave.txt").getIn().getHeader("ErrorReason"));
+            assertNotNull(send(template, "john.doe@example.com", "leave.csv").getIn().getHeader("ErrorReason"));
+
+            EmailCsvProcessorEndpoint endpoint = camelContext.getEndpoint("emailCsvProcessor:test?journalDirectory=" + dir
+                    + "&journalReasons=unexpected,rate_limited,downstream&rateLimit=2&rateLimitBurst=1", EmailCsvProcessorEndpoint.class);
+            FailureJournal journal = endpoint.getFailureJournal();
+            assertEquals(2, journal.pendingCount());
+            List<String> reasons = new ArrayList<>();
+            journal.replay(entry -> reasons.add(entry.reason()) && false);
+            assertEquals(List.of(FailureJournal.REASON_DOWNSTREAM, EmailCsvProcessorMetrics.REASON_RATE_LIMITED), reasons);
+
+            // the API is still down and the second email is over the limit again: both stay journaled, once
+            Thread.sleep(600);
+            assertEquals(0, journal.replay(template, "direct:leave"));
+            assertEquals(2, journal.pendingCount());
+
+            Thread.sleep(600);
+            downstreamDown.set(false);
+            assertEquals(1, journal.replay(template, "direct:leave"));
+            assertEquals(1, journal.pendingCount());
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    private Path onlySegment() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+
+    private static String read(DataHandler attachment) throws IOException {
+        try (InputStream inputStream = attachment.getInputStream()) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void awaitDiskBytes(FailureJournal journal, long expected) throws InterruptedException {
+        for (int i = 0; i < 100 && journal.diskBytes() != expected; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertEquals(expected, journal.diskBytes());
+    }
+
+    private static DataHandler attachment(String name, String content) {
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(content.getBytes(StandardCharsets.UTF_8), "text/csv");
+        dataSource.setName(name);
+        return new DataHandler(dataSource);
+    }
+
+    private static Exchange send(ProducerTemplate template, String from, String fileName) {
+        Exchange exchange = new DefaultExchange(template.getCamelContext());
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", from);
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        in.addAttachment(fileName, attachment(fileName, CSV));
+        exchange.setIn(in);
+        return template.send("direct:leave", exchange);
+    }
+}
@@ -0,0 +1,265 @@
+package org.component;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Collects the leave records of many emails into {@link BulkLeaveSubmission}s, so the downstream API gets one
+ * request per few thousand records instead of one per email.
+ * <p>
+ * A submission is sent once it holds {@code maxRecords} records, once its estimated JSON size reaches
+ * {@code maxBytes}, or {@code windowMillis} after its first record, whichever comes first. The records of one
+ * email may be split over two submissions, every record carries its requester anyway.
+ * <p>
+ * Route threads add without taking a lock: the open submission is a fixed size array in which a thread reserves
+ * slots with one atomic add and then fills them. The thread whose reservation reaches the last slot, or the one
+ * that seals the submission because of its size or age, swaps in the next submission with a CAS, waits for the
+ * threads still filling their reserved slots and sends it. Every other thread simply moves on to the next one.
+ * <p>
+ * Sending happens on the thread that completed the submission, the route thread or the window timer. Every add
+ * returns the delivery of the submissions carrying its records, which fails with the first of them that fails, so
+ * the email behind it is only done once its records are.
+ * <p>
+ * {@link #stop()} lets a running window check and every add that has already started deliver their records before
+ * it sends the last submission, adds arriving after that are rejected.
+ */
+public class LeaveAggregator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeaveAggregator.class);
+
+    static final String COMPLETED_BY_RECORDS = "records";
+    static final String COMPLETED_BY_BYTES = "bytes";
+    static final String COMPLETED_BY_TIME = "time";
+    static final String COMPLETED_BY_STOP = "stop";
+
+    // far above any slot index, and far enough below Long.MAX_VALUE for late reservations not to overflow
+    private static final long SEALED = Long.MAX_VALUE / 2;
+
+    private final CamelContext camelContext;
+    private final String endpointUri;
+    private final int maxRecords;
+    private final long maxBytes;
+    private final long windowNanos;
+    private final AtomicReference<Bucket> current;
+    private final AtomicInteger adding = new AtomicInteger();
+
+    private volatile boolean stopping;
+    private ProducerTemplate template;
+    private Endpoint target;
+    private ScheduledExecutorService scheduler;
+
+    public LeaveAggregator(CamelContext camelContext, String endpointUri, int maxRecords, long maxBytes, long windowMillis) {
+        if (maxRecords <= 0 || maxBytes <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("aggregateMaxRecords, aggregateMaxBytes and aggregateWindow must be positive");
+        }
+        this.camelContext = camelContext;
+        this.endpointUri = endpointUri;
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.current = new AtomicReference<>(new Bucket(maxRecords));
+    }
+
+    /**
+     * Adds the leave records of one email, sending the submission right away when they complete it. Returns the
+     * delivery of every submission the records went into.
+     *
+     * @throws IllegalStateException when the aggregator is stopping
+     */
+    public CompletableFuture<Void> add(BulkLeaveSubmission.Requester requester, List<LeaveDetail> leaveDetails) {
+        // built before any slot is reserved, so nothing can fail while other threads wait for the slots to fill
+        BulkLeaveSubmission.Entry[] entries = new BulkLeaveSubmission.Entry[leaveDetails.size()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new BulkLeaveSubmission.Entry(requester, leaveDetails.get(i));
+        }
+
+        Delivery delivery = new Delivery();
+
+        // counted before stopping is read, so stop() either waits for this add or this add sees it is stopping
+        adding.incrementAndGet();
+        try {
+            if (stopping) {
+                throw new IllegalStateException("The leave aggregator for " + endpointUri + " is stopping");
+            }
+            reserve(entries, delivery);
+        } finally {
+            adding.decrementAndGet();
+        }
+        delivery.sent(null);
+        return delivery.future;
+    }
+
+    private void reserve(BulkLeaveSubmission.Entry[] entries, Delivery delivery) {
+        int offset = 0;
+        while (offset < entries.length) {
+            Bucket bucket = current.get();
+            int wanted = entries.length - offset;
+            long start = bucket.reserved.getAndAdd(wanted);
+            if (start >= maxRecords) {
+                // completed by another thread, which may not have swapped in the next bucket yet
+                replace(bucket);
+                continue;
+            }
+            if (start == 0) {
+                bucket.openedAt = System.nanoTime();
+                bucket.opened = true;
+            }
+
+            int taken = (int) Math.min(wanted, maxRecords - start);
+            // counted before the slots are filled, so the bucket cannot be sent before it is
+            delivery.parts.incrementAndGet();
+            long bytes = 0;
+            for (int i = 0; i < taken; i++) {
+                bucket.entries[(int) start + i] = entries[offset + i];
+                bucket.deliveries[(int) start + i] = delivery;
+                bytes += entries[offset + i].estimatedSize();
+            }
+            offset += taken;
+            long totalBytes = bucket.bytes.addAndGet(bytes);
+            // publishes the entries to the thread that sends the bucket
+            bucket.filled.addAndGet(taken);
+
+            if (start + wanted >= maxRecords) {
+                // this reservation reached the last slot, exactly one thread gets here per bucket
+                send(bucket, maxRecords, COMPLETED_BY_RECORDS);
+            } else if (totalBytes >= maxBytes) {
+                seal(bucket, COMPLETED_BY_BYTES);
+            }
+        }
+    }
+
+    public void start() {
+        stopping = false;
+        target = camelContext.getEndpoint(endpointUri);
+        template = camelContext.createProducerTemplate();
+        long tick = Math.max(1, TimeUnit.NANOSECONDS.toMillis(windowNanos) / 10);
+        scheduler = camelContext.getExecutorServiceManager().newSingleThreadScheduledExecutor(this, "EmailCsvProcessorAggregator");
+        scheduler.scheduleWithFixedDelay(this::checkWindow, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends whatever has been collected so far.
+     */
+    public void stop() {
+        stopping = true;
+        if (scheduler != null) {
+            // waits for a window check that is still sending, it needs the template
+            camelContext.getExecutorServiceManager().shutdownGraceful(scheduler);
+            scheduler = null;
+        }
+        while (adding.get() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        seal(current.get(), COMPLETED_BY_STOP);
+        if (template != null) {
+            template.stop();
+            template = null;
+        }
+    }
+
+    private void checkWindow() {
+        Bucket bucket = current.get();
+        if (bucket.opened && System.nanoTime() - bucket.openedAt >= windowNanos) {
+            seal(bucket, COMPLETED_BY_TIME);
+        }
+    }
+
+    /**
+     * Closes the bucket to further reservations and sends it, unless it has already been completed.
+     */
+    private void seal(Bucket bucket, String completedBy) {
+        long reserved = bucket.reserved.getAndSet(SEALED);
+        if (reserved < maxRecords) {
+            send(bucket, (int) reserved, completedBy);
+        }
+    }
+
+    private void replace(Bucket bucket) {
+        if (current.get() == bucket) {
+            current.compareAndSet(bucket, new Bucket(maxRecords));
+        }
+    }
+
+    private void send(Bucket bucket, int count, String completedBy) {
+        replace(bucket);
+        if (count == 0) {
+            return;
+        }
+        // the slots are reserved, wait for the threads still copying their records in
+        while (bucket.filled.get() < count) {
+            Thread.onSpinWait();
+        }
+
+        List<BulkLeaveSubmission.Entry> records = Arrays.asList(bucket.entries).subList(0, count);
+        Exchange result = template.send(target, exchange -> {
+            exchange.getIn().setHeader(EmailCsvProcessorConstants.ROW_COUNT, count);
+            exchange.getIn().setHeader(EmailCsvProcessorConstants.AGGREGATE_COMPLETED_BY, completedBy);
+            exchange.getIn().setBody(new BulkLeaveSubmission(records));
+        });
+        Exception failure = result.getException();
+        if (failure != null) {
+            LOGGER.warn("Failed to deliver bulk leave submission of {} records to {}", count, endpointUri, failure);
+        }
+        // the records of one add are next to each other in a bucket
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || bucket.deliveries[i] != bucket.deliveries[i - 1]) {
+                bucket.deliveries[i].sent(failure);
+            }
+        }
+    }
+
+    /**
+     * The delivery of the records of one add, spread over one or more submissions. Held by the add itself until it
+     * has reserved all its slots, so it cannot complete while there are records left to place.
+     */
+    private static final class Delivery {
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final AtomicInteger parts = new AtomicInteger(1);
+        private volatile Exception failure;
+
+        void sent(Exception failure) {
+            if (failure != null && this.failure == null) {
+                this.failure = failure;
+            }
+            if (parts.decrementAndGet() == 0) {
+                if (this.failure != null) {
+                    future.completeExceptionally(this.failure);
+                } else {
+                    future.complete(null);
+                }
+            }
+        }
+    }
+
+    private static final class Bucket {
+
+        private final BulkLeaveSubmission.Entry[] entries;
+        private final Delivery[] deliveries;
+        private final AtomicLong reserved = new AtomicLong();
+        private final AtomicInteger filled = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private long openedAt;
+        // written after openedAt, so a timer that sees it also sees when the bucket was opened
+        private volatile boolean opened;
+
+        Bucket(int maxRecords) {
+            entries = new BulkLeaveSubmission.Entry[maxRecords];
+            deliveries = new Delivery[maxRecords];
+        }
+    }
+}
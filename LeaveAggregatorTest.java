@@ -0,0 +1,280 @@
+package org.component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaveAggregatorTest {
+
+    private static final BulkLeaveSubmission.Requester JOHN =
+            new BulkLeaveSubmission.Requester("john.doe", "john.doe@example.com", "Company X", "2024-01-01 10:00:00");
+    private static final BulkLeaveSubmission.Requester MARY =
+            new BulkLeaveSubmission.Requester("mary.major", "mary.major@example.com", "Company Y", "2024-01-01 11:00:00");
+
+    private DefaultCamelContext camelContext;
+    private final BlockingQueue<Exchange> received = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:bulk").process(received::add);
+            }
+        });
+        camelContext.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+    }
+
+    @Test
+    void testFlushesByRecordCountKeepingEachRequester() throws Exception {
+        LeaveAggregator aggregator = start(3, Long.MAX_VALUE, 60_000);
+        aggregator.add(JOHN, leaveDetails(1, 2));
+        assertTrue(received.isEmpty());
+        aggregator.add(MARY, leaveDetails(3, 2));
+
+        Exchange full = received.poll();
+        assertNotNull(full);
+        assertEquals(3, full.getIn().getHeader(EmailCsvProcessorConstants.ROW_COUNT));
+        assertEquals(LeaveAggregator.COMPLETED_BY_RECORDS, full.getIn().getHeader(EmailCsvProcessorConstants.AGGREGATE_COMPLETED_BY));
+        List<BulkLeaveSubmission.Entry> records = full.getIn().getBody(BulkLeaveSubmission.class).records();
+        assertEquals(List.of(JOHN, JOHN, MARY), records.stream().map(BulkLeaveSubmission.Entry::requester).toList());
+        assertEquals(List.of(1, 2, 3), records.stream().map(entry -> entry.leaveDetail().employeeId()).toList());
+
+        // the rest of Mary's email waits for the next submission
+        aggregator.stop();
+        Exchange rest = received.poll();
+        assertEquals(LeaveAggregator.COMPLETED_BY_STOP, rest.getIn().getHeader(EmailCsvProcessorConstants.AGGREGATE_COMPLETED_BY));
+        assertEquals(MARY, rest.getIn().getBody(BulkLeaveSubmission.class).records().get(0).requester());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void testFlushesBySize() {
+        LeaveAggregator aggregator = start(1000, 1000, 60_000);
+        aggregator.add(JOHN, leaveDetails(1, 2));
+        assertTrue(received.isEmpty());
+        aggregator.add(MARY, leaveDetails(3, 2));
+
+        Exchange exchange = received.poll();
+        assertNotNull(exchange);
+        assertEquals(LeaveAggregator.COMPLETED_BY_BYTES, exchange.getIn().getHeader(EmailCsvProcessorConstants.AGGREGATE_COMPLETED_BY));
+        assertEquals(4, exchange.getIn().getBody(BulkLeaveSubmission.class).records().size());
+        aggregator.stop();
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void testFlushesAfterWindow() throws Exception {
+        LeaveAggregator aggregator = start(1000, Long.MAX_VALUE, 50);
+        aggregator.add(JOHN, leaveDetails(1, 1));
+
+        Exchange exchange = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(exchange);
+        assertEquals(LeaveAggregator.COMPLETED_BY_TIME, exchange.getIn().getHeader(EmailCsvProcessorConstants.AGGREGATE_COMPLETED_BY));
+        assertEquals(1, exchange.getIn().getBody(BulkLeaveSubmission.class).records().size());
+        aggregator.stop();
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void testConcurrentAddsDeliverEveryRecordOnce() throws Exception {
+        int threads = 8;
+        int emails = 500;
+        int rowsPerEmail = 3;
+        LeaveAggregator aggregator = start(64, 16 * 1024, 5);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    go.await();
+                    for (int e = 0; e < emails; e++) {
+                        aggregator.add(JOHN, leaveDetails((thread * emails + e) * rowsPerEmail, rowsPerEmail));
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        aggregator.stop();
+
+        Set<Integer> ids = new HashSet<>();
+        for (Exchange exchange : received) {
+            List<BulkLeaveSubmission.Entry> records = exchange.getIn().getBody(BulkLeaveSubmission.class).records();
+            assertTrue(records.size() <= 64);
+            assertEquals(records.size(), exchange.getIn().getHeader(EmailCsvProcessorConstants.ROW_COUNT));
+            for (BulkLeaveSubmission.Entry entry : records) {
+                assertTrue(ids.add(entry.leaveDetail().employeeId()), "delivered twice: " + entry.leaveDetail().employeeId());
+            }
+        }
+        assertEquals(threads * emails * rowsPerEmail, ids.size());
+    }
+
+    @Test
+    void testStopWaitsForTheWindowSendAndRejectsLaterAdds() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:slow").process(exchange -> {
+                    sending.countDown();
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                }).process(received::add);
+            }
+        });
+        LeaveAggregator aggregator = new LeaveAggregator(camelContext, "direct:slow", 1000, Long.MAX_VALUE, 20);
+        aggregator.start();
+        aggregator.add(JOHN, leaveDetails(1, 2));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // the window timer is still sending when the aggregator is stopped
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(aggregator::stop);
+        assertThrows(TimeoutException.class, () -> stopped.get(200, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalStateException.class, () -> aggregator.add(MARY, leaveDetails(3, 1)));
+
+        release.countDown();
+        stopped.get(5, TimeUnit.SECONDS);
+        Exchange exchange = received.poll();
+        assertNotNull(exchange);
+        assertNull(exchange.getException());
+        assertEquals(LeaveAggregator.COMPLETED_BY_TIME, exchange.getIn().getHeader(EmailCsvProcessorConstants.AGGREGATE_COMPLETED_BY));
+        assertEquals(2, exchange.getIn().getBody(BulkLeaveSubmission.class).records().size());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void testEndpointHandsRecordsToTheAggregator() throws Exception {
+        String uri = "emailCsvProcessor:test?aggregateEndpoint=direct:bulk&aggregateMaxRecords=2";
+        String csv = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+                + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n";
+
+        // an aggregated email is done once its records have been delivered
+        CompletableFuture<Exchange> pending = camelContext.createProducerTemplate().asyncSend(uri, createExchange(csv));
+        assertThrows(TimeoutException.class, () -> pending.get(200, TimeUnit.MILLISECONDS));
+        assertTrue(received.isEmpty());
+        send(uri, csv);
+
+        Exchange first = pending.get(5, TimeUnit.SECONDS);
+        assertNull(first.getException());
+        assertEquals(true, first.getIn().getHeader(EmailCsvProcessorConstants.AGGREGATED));
+        assertEquals(1, first.getIn().getHeader(EmailCsvProcessorConstants.ROW_COUNT));
+        assertNull(first.getIn().getBody());
+        Exchange bulk = received.poll();
+        assertNotNull(bulk);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsBytes(bulk.getIn().getBody()));
+        assertEquals(LeaveSubmission.FORM_ID, json.get("_formio_formId").asText());
+        assertEquals(2, json.get("records").size());
+        JsonNode record = json.get("records").get(0);
+        assertEquals("john.doe@example.com", record.get("requester_email").asText());
+        assertEquals("Company X", record.get("requesterCompany").asText());
+        assertEquals("2024-01-02T00:00:00", record.get("leave_detail").get("start_date").asText());
+    }
+
+    @Test
+    void testFailedSubmissionFailsTheEmailsItCarries() throws Exception {
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:failing").throwException(new IllegalStateException("bulk API down"));
+            }
+        });
+        String csv = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+                + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n";
+        String failing = "emailCsvProcessor:failing?aggregateEndpoint=direct:failing&aggregateMaxRecords=1&idempotent=true&rowDedup=true";
+
+        Exchange failed = send(failing, csv);
+        assertEquals("bulk API down", failed.getException().getMessage());
+
+        // neither the content hash nor the rows of the failed email are remembered
+        Exchange retried = send(failing.replace("direct:failing", "direct:bulk").replace(":failing?", ":retried?"), csv);
+        assertNull(retried.getException());
+        assertEquals(false, retried.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE));
+        assertEquals(0, retried.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE_ROWS));
+        assertEquals(1, received.poll().getIn().getBody(BulkLeaveSubmission.class).records().size());
+    }
+
+    @Test
+    void testBatchingAndAggregationAreExclusive() {
+        Exchange exchange = new DefaultExchange(camelContext);
+        assertThrows(Exception.class, () -> camelContext.createProducerTemplate()
+                .send("emailCsvProcessor:test?aggregateEndpoint=direct:bulk&batchSize=10&batchEndpoint=direct:bulk", exchange));
+    }
+
+    private LeaveAggregator start(int maxRecords, long maxBytes, long windowMillis) {
+        LeaveAggregator aggregator = new LeaveAggregator(camelContext, "direct:bulk", maxRecords, maxBytes, windowMillis);
+        aggregator.start();
+        return aggregator;
+    }
+
+    private static List<LeaveDetail> leaveDetails(int firstId, int count) {
+        List<LeaveDetail> leaveDetails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            leaveDetails.add(LeaveDetail.of(firstId + i, "Jane Q Roe", "Boss", LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 3), 8));
+        }
+        return leaveDetails;
+    }
+
+    private Exchange send(String uri, String csv) {
+        Exchange exchange = createExchange(csv);
+        camelContext.createProducerTemplate().send(uri, exchange);
+        return exchange;
+    }
+
+    private Exchange createExchange(String csv) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", "john.doe@example.com");
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(csv.getBytes(StandardCharsets.UTF_8), "text/csv");
+        dataSource.setName("leave.csv");
+        in.addAttachment("leave.csv", new DataHandler(dataSource));
+        exchange.setIn(in);
+        return exchange;
+    }
+}
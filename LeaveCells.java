@@ -0,0 +1,193 @@
+package org.component;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Typed decoding of the leave sheet columns.
+ * <p>
+ * {@code employee_id} and {@code no_of_hours} are integers, {@code start_date} and {@code end_date} are ISO
+ * dates ({@code yyyy-MM-dd}), the other columns are text. Text values are decoded straight from the characters
+ * or bytes they were read into, spreadsheet cells by their cell type: numbers are read as doubles that must be
+ * whole, and a number in a date column is the spreadsheet date serial, whatever format the cell displays it
+ * with. Invalid values fail with {@link NumberFormatException} or {@link DateTimeException}.
+ */
+final class LeaveCells {
+
+    static final int EMPLOYEE_ID = 0;
+    static final int EMPLOYEE_NAME = 1;
+    static final int MANAGER = 2;
+    static final int START_DATE = 3;
+    static final int END_DATE = 4;
+    static final int NO_OF_HOURS = 5;
+
+    private LeaveCells() {
+    }
+
+    /**
+     * Parses {@code value[start, end)} with the same rules as {@link Integer#parseInt(String)}.
+     */
+    static int parseInt(CharSequence value, int start, int end) {
+        int i = start;
+        if (i == end) {
+            throw invalidNumber(value, start, end);
+        }
+        boolean negative = false;
+        char first = value.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                throw invalidNumber(value, start, end);
+            }
+        }
+
+        // accumulate negatively so Integer.MIN_VALUE does not overflow
+        int bound = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int multmin = bound / 10;
+        int result = 0;
+        for (; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multmin) {
+                throw invalidNumber(value, start, end);
+            }
+            result *= 10;
+            if (result < bound + digit) {
+                throw invalidNumber(value, start, end);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * The whole number held by a numeric cell, rejecting fractions such as {@code 7.5}.
+     */
+    static int toInt(double value) {
+        int result = (int) value;
+        if (result != value) {
+            throw new NumberFormatException("For input string: \"" + NumberToTextConverter.toText(value) + "\"");
+        }
+        return result;
+    }
+
+    /**
+     * Parses an ISO date, {@code yyyy-MM-dd}, from {@code value[start, end)}.
+     */
+    static LocalDate parseDate(CharSequence value, int start, int end) {
+        if (end - start != 10 || value.charAt(start + 4) != '-' || value.charAt(start + 7) != '-') {
+            throw invalidDate(value.subSequence(start, end));
+        }
+        int year = digits(value, start, 4);
+        int month = digits(value, start + 5, 2);
+        int day = digits(value, start + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            throw invalidDate(value.subSequence(start, end));
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Parses an ISO date, {@code yyyy-MM-dd}, from ASCII bytes.
+     */
+    static LocalDate parseDate(byte[] bytes, int start, int end) {
+        if (end - start != 10 || bytes[start + 4] != '-' || bytes[start + 7] != '-') {
+            throw invalidDate(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+        }
+        int year = digits(bytes, start, 4);
+        int month = digits(bytes, start + 5, 2);
+        int day = digits(bytes, start + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            throw invalidDate(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * The date of a spreadsheet date serial in the 1900 date system, ignoring the time of day.
+     */
+    static LocalDate excelDate(double serial) {
+        if (!DateUtil.isValidExcelDate(serial)) {
+            throw new DateTimeException("Invalid date serial: " + NumberToTextConverter.toText(serial));
+        }
+        return DateUtil.getLocalDateTime(serial).toLocalDate();
+    }
+
+    static int intValue(Cell cell) {
+        return switch (valueType(cell)) {
+            case NUMERIC -> toInt(cell.getNumericCellValue());
+            case STRING -> {
+                String value = cell.getStringCellValue();
+                yield parseInt(value, 0, value.length());
+            }
+            default -> throw new NumberFormatException("For input string: \"" + cell + "\"");
+        };
+    }
+
+    static LocalDate dateValue(Cell cell) {
+        return switch (valueType(cell)) {
+            case NUMERIC -> excelDate(cell.getNumericCellValue());
+            case STRING -> {
+                String value = cell.getStringCellValue();
+                yield parseDate(value, 0, value.length());
+            }
+            default -> throw invalidDate(cell.toString());
+        };
+    }
+
+    static String stringValue(Cell cell) {
+        return switch (valueType(cell)) {
+            case NUMERIC -> NumberToTextConverter.toText(cell.getNumericCellValue());
+            case BOOLEAN -> cell.getBooleanCellValue() ? "TRUE" : "FALSE";
+            default -> cell.getStringCellValue();
+        };
+    }
+
+    /**
+     * The type of the value, the cached result for formula cells.
+     */
+    static CellType valueType(Cell cell) {
+        CellType type = cell.getCellType();
+        return type == CellType.FORMULA ? cell.getCachedFormulaResultType() : type;
+    }
+
+    /**
+     * The number written with {@code length} decimal digits from {@code start}, -1 if any is not a digit.
+     */
+    private static int digits(CharSequence value, int start, int length) {
+        int result = 0;
+        for (int i = start; i < start + length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static int digits(byte[] bytes, int start, int length) {
+        int result = 0;
+        for (int i = start; i < start + length; i++) {
+            byte b = bytes[i];
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            result = result * 10 + (b - '0');
+        }
+        return result;
+    }
+
+    private static NumberFormatException invalidNumber(CharSequence value, int start, int end) {
+        return new NumberFormatException("For input string: \"" + value.subSequence(start, end) + "\"");
+    }
+
+    private static DateTimeException invalidDate(CharSequence value) {
+        return new DateTimeException("Invalid date: \"" + value + "\", expected yyyy-MM-dd");
+    }
+}
@@ -0,0 +1,155 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaveCellsTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 2);
+    private static final LocalDate END = LocalDate.of(2024, 1, 3);
+
+    @Test
+    void testParsesIsoDatesFromCharsAndBytes() {
+        assertEquals(START, LeaveCells.parseDate("x2024-01-02x", 1, 11));
+        assertEquals(START, LeaveCells.parseDate("2024-01-02".getBytes(StandardCharsets.US_ASCII), 0, 10));
+
+        for (String invalid : new String[]{"02/01/2024", "2024-1-2", "2024-01-0x", "2024-02-30", ""}) {
+            assertThrows(DateTimeException.class, () -> LeaveCells.parseDate(invalid, 0, invalid.length()), invalid);
+            byte[] bytes = invalid.getBytes(StandardCharsets.US_ASCII);
+            assertThrows(DateTimeException.class, () -> LeaveCells.parseDate(bytes, 0, bytes.length), invalid);
+        }
+    }
+
+    @Test
+    void testIntParsingMatchesIntegerParseInt() {
+        for (String value : new String[]{"0", "42", "-7", "+3", "2147483647", "-2147483648"}) {
+            assertEquals(Integer.parseInt(value), LeaveCells.parseInt(value, 0, value.length()), value);
+        }
+        for (String value : new String[]{"", "-", "2147483648", "1.0", " 5"}) {
+            assertThrows(NumberFormatException.class, () -> LeaveCells.parseInt(value, 0, value.length()), value);
+        }
+        assertEquals(123, LeaveCells.toInt(123.0));
+        assertThrows(NumberFormatException.class, () -> LeaveCells.toInt(7.5));
+    }
+
+    @Test
+    void testStreamingParserReadsTypedCells() throws Exception {
+        List<LeaveDetail> rows = new ArrayList<>();
+        new StreamingXlsxParser().parse(new ByteArrayInputStream(typedWorkbook()), rows::add);
+
+        assertEquals(List.of(LeaveDetail.of(123, "John Doe", "Jane Roe", START, END, 8),
+                LeaveDetail.of(124, "Mary Major", "Jane Roe", START, END, 4)), rows);
+    }
+
+    @Test
+    void testBothXlsxParsersAndCsvAgree() throws Exception {
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+        try {
+            byte[] xlsx = typedWorkbook();
+            byte[] csv = ("employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+                    + "123,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n"
+                    + "124,Mary Major,Jane Roe,2024-01-02,2024-01-03,4\n").getBytes(StandardCharsets.UTF_8);
+
+            List<LeaveDetail> streaming = leaveDetails(camelContext, "emailCsvProcessor:sax", "leave.xlsx", xlsx);
+            assertEquals(streaming, leaveDetails(camelContext, "emailCsvProcessor:dom?streamingXlsx=false", "leave.xlsx", xlsx));
+            assertEquals(streaming, leaveDetails(camelContext, "emailCsvProcessor:csv", "leave.csv", csv));
+            assertEquals(streaming, leaveDetails(camelContext, "emailCsvProcessor:opencsv?csvParser=opencsv", "leave.csv", csv));
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    @Test
+    void testInvalidDateReportsRow() throws Exception {
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+        try {
+            byte[] csv = ("employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+                    + "123,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n"
+                    + "124,Mary Major,Jane Roe,02/01/2024,2024-01-03,4\n").getBytes(StandardCharsets.UTF_8);
+
+            Exchange exchange = process(camelContext, "emailCsvProcessor:csv", "leave.csv", csv);
+
+            assertEquals("Please attach a valid CSV file: Invalid date: \"02/01/2024\", expected yyyy-MM-dd", exchange.getIn().getHeader("ErrorReason"));
+            assertEquals(3L, exchange.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW));
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    /**
+     * Ids and hours as numeric cells, dates as date formatted cells, the way spreadsheet applications save them.
+     */
+    private static byte[] typedWorkbook() throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd.mm.yyyy"));
+            Sheet sheet = workbook.createSheet();
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < EmailCsvProcessorProducer.EXPECTED_HEADERS.length; i++) {
+                header.createCell(i).setCellValue(EmailCsvProcessorProducer.EXPECTED_HEADERS[i]);
+            }
+            addRow(sheet, 1, 123, "John Doe", dateStyle, 8);
+            addRow(sheet, 2, 124, "Mary Major", dateStyle, 4);
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static void addRow(Sheet sheet, int index, int employeeId, String name, CellStyle dateStyle, int hours) {
+        Row row = sheet.createRow(index);
+        row.createCell(0).setCellValue(employeeId);
+        row.createCell(1).setCellValue(name);
+        row.createCell(2).setCellValue("Jane Roe");
+        row.createCell(3).setCellValue(START);
+        row.getCell(3).setCellStyle(dateStyle);
+        row.createCell(4).setCellValue(END);
+        row.getCell(4).setCellStyle(dateStyle);
+        row.createCell(5).setCellValue(hours);
+    }
+
+    private static List<LeaveDetail> leaveDetails(DefaultCamelContext camelContext, String uri, String fileName, byte[] content) {
+        Exchange exchange = process(camelContext, uri, fileName, content);
+        assertNull(exchange.getIn().getHeader("ErrorReason"), uri);
+        return exchange.getIn().getBody(LeaveSubmission.class).leaveDetails();
+    }
+
+    private static Exchange process(DefaultCamelContext camelContext, String uri, String fileName, byte[] content) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", "john.doe@example.com");
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(content, "application/octet-stream");
+        dataSource.setName(fileName);
+        in.addAttachment(fileName, new DataHandler(dataSource));
+        exchange.setIn(in);
+
+        camelContext.createProducerTemplate().send(uri, exchange);
+        return exchange;
+    }
+}
@@ -0,0 +1,350 @@
+package org.component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * RFC 4180 tokenizer for the fixed six column leave sheet, working directly on the raw bytes of the attachment.
+ * <p>
+ * Every record is unquoted into one reusable byte array and only the columns that are actually needed are
+ * decoded into Strings with the configured charset. Integer columns are parsed straight from the bytes.
+ * The read buffer, the field buffer and the offset arrays are reused for every record, so a row costs
+ * nothing beyond the values handed to the caller.
+ * <p>
+ * Attachments spooled to disk are tokenized in place on a memory mapped {@link FileChannel}, one region at a
+ * time: the records are scanned in the mapped buffer itself, so the file content stays in the page cache and
+ * only the fields of the current record are copied to the heap.
+ * <p>
+ * The charset must be ASCII compatible (see {@link #supports(Charset)}), because delimiters, quotes and line
+ * breaks are matched as single bytes.
+ */
+public class LeaveCsvTokenizer implements Closeable {
+
+    static final int COLUMNS = EmailCsvProcessorProducer.EXPECTED_HEADERS.length;
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_REGION_SIZE = 64L * 1024 * 1024;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final InputStream in;
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private final long regionSize;
+    private long mappedUpTo;
+    private final Charset charset;
+    private final byte[] readBuffer;
+    // the read buffer wrapped, or the mapped region of the file
+    private ByteBuffer window;
+    private int pos;
+    private int limit;
+
+    private byte[] fields = new byte[256];
+    private int used;
+    private final int[] fieldStart = new int[COLUMNS];
+    private final int[] fieldEnd = new int[COLUMNS];
+    private int fieldCount;
+    private long recordNumber;
+
+    public LeaveCsvTokenizer(InputStream in, Charset charset) {
+        this(in, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    LeaveCsvTokenizer(InputStream in, Charset charset, int bufferSize) {
+        this(in, null, 0, -1, 0, charset, bufferSize);
+    }
+
+    /**
+     * Reads the whole file behind the channel through memory mapped regions, the channel is closed with the tokenizer.
+     */
+    public LeaveCsvTokenizer(FileChannel channel, Charset charset) {
+        this(channel, charset, DEFAULT_REGION_SIZE);
+    }
+
+    LeaveCsvTokenizer(FileChannel channel, Charset charset, long regionSize) {
+        this(null, channel, 0, -1, regionSize, charset, 0);
+    }
+
+    /**
+     * Reads the bytes from {@code start} up to {@code end} of the file, which must be a range of whole records.
+     * Record numbers count from the start of the range.
+     */
+    public LeaveCsvTokenizer(FileChannel channel, long start, long end, Charset charset) {
+        this(null, channel, start, end, DEFAULT_REGION_SIZE, charset, 0);
+    }
+
+    private LeaveCsvTokenizer(InputStream in, FileChannel channel, long start, long end, long regionSize, Charset charset, int bufferSize) {
+        this.in = in;
+        this.channel = channel;
+        this.start = start;
+        this.end = end;
+        this.mappedUpTo = start;
+        this.regionSize = regionSize;
+        this.charset = charset;
+        this.readBuffer = in != null ? new byte[bufferSize] : null;
+        this.window = in != null ? ByteBuffer.wrap(readBuffer) : null;
+    }
+
+    /**
+     * Whether delimiters and line breaks are encoded as single ASCII bytes in the given charset,
+     * which is what this tokenizer relies on.
+     */
+    public static boolean supports(Charset charset) {
+        return Arrays.equals(",\"\r\n".getBytes(charset), new byte[]{',', '"', '\r', '\n'});
+    }
+
+    /**
+     * Reads the next record. Returns false at the end of the input.
+     */
+    public boolean nextRecord() throws IOException {
+        if (pos == limit && !fill()) {
+            return false;
+        }
+        if (recordNumber == 0 && start == 0 && StandardCharsets.UTF_8.equals(charset)) {
+            skipBom();
+        }
+
+        used = 0;
+        fieldCount = 0;
+        boolean endOfRecord;
+        do {
+            int start = used;
+            endOfRecord = readField();
+            if (fieldCount < COLUMNS) {
+                fieldStart[fieldCount] = start;
+                fieldEnd[fieldCount] = used;
+            }
+            fieldCount++;
+        } while (!endOfRecord);
+
+        recordNumber++;
+        return true;
+    }
+
+    /**
+     * Number of fields in the current record, including any beyond the six known columns.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * One based number of the current record, the header being record 1.
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Whether the column is empty or only holds whitespace, the byte equivalent of {@code value.trim().isEmpty()}.
+     */
+    public boolean isBlank(int column) {
+        for (int i = fieldStart[column]; i < fieldEnd[column]; i++) {
+            if ((fields[i] & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the column with an ASCII value without decoding it.
+     */
+    public boolean fieldEquals(int column, String expected) {
+        int start = fieldStart[column];
+        if (fieldEnd[column] - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (fields[start + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getString(int column) {
+        return new String(fields, fieldStart[column], fieldEnd[column] - fieldStart[column], charset);
+    }
+
+    /**
+     * Parses the column with the same rules as {@link Integer#parseInt(String)}, without creating a String
+     * unless the value is invalid.
+     */
+    public int getInt(int column) {
+        int i = fieldStart[column];
+        int end = fieldEnd[column];
+        if (i == end) {
+            throw invalidNumber(column);
+        }
+
+        boolean negative = false;
+        byte first = fields[i];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                throw invalidNumber(column);
+            }
+        }
+
+        // accumulate negatively so Integer.MIN_VALUE does not overflow
+        int bound = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int multmin = bound / 10;
+        int result = 0;
+        for (; i < end; i++) {
+            int digit = fields[i] - '0';
+            if (digit < 0 || digit > 9 || result < multmin) {
+                throw invalidNumber(column);
+            }
+            result *= 10;
+            if (result < bound + digit) {
+                throw invalidNumber(column);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses the column as an ISO date, {@code yyyy-MM-dd}, straight from the bytes.
+     */
+    public LocalDate getDate(int column) {
+        return LeaveCells.parseDate(fields, fieldStart[column], fieldEnd[column]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        } else {
+            in.close();
+        }
+    }
+
+    private NumberFormatException invalidNumber(int column) {
+        return new NumberFormatException("For input string: \"" + getString(column) + "\"");
+    }
+
+    /**
+     * Reads one field into the field buffer. Returns true when the field ended the record.
+     */
+    private boolean readField() throws IOException {
+        if (pos == limit && !fill()) {
+            return true;
+        }
+
+        if (window.get(pos) == '"') {
+            pos++;
+            readQuoted();
+        }
+
+        while (true) {
+            if (pos == limit && !fill()) {
+                return true;
+            }
+            int runStart = pos;
+            while (pos < limit) {
+                byte b = window.get(pos);
+                if (b == ',' || b == '\n' || b == '\r') {
+                    break;
+                }
+                pos++;
+            }
+            append(runStart, pos - runStart);
+            if (pos == limit) {
+                continue;
+            }
+
+            byte b = window.get(pos++);
+            if (b == ',') {
+                return false;
+            }
+            if (b == '\r' && (pos < limit || fill()) && window.get(pos) == '\n') {
+                pos++;
+            }
+            return true;
+        }
+    }
+
+    private void readQuoted() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                throw new RuntimeException("Error processing CSV file!");
+            }
+            int runStart = pos;
+            while (pos < limit && window.get(pos) != '"') {
+                pos++;
+            }
+            append(runStart, pos - runStart);
+            if (pos == limit) {
+                continue;
+            }
+
+            pos++;
+            if ((pos < limit || fill()) && window.get(pos) == '"') {
+                // escaped quote
+                append(pos, 1);
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void append(int from, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (used + length > fields.length) {
+            fields = Arrays.copyOf(fields, Math.max(fields.length * 2, used + length));
+        }
+        window.get(from, fields, used, length);
+        used += length;
+    }
+
+    private void skipBom() throws IOException {
+        if (limit - pos < UTF8_BOM.length) {
+            return;
+        }
+        if (window.get(pos) == UTF8_BOM[0] && window.get(pos + 1) == UTF8_BOM[1] && window.get(pos + 2) == UTF8_BOM[2]) {
+            pos += UTF8_BOM.length;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (channel != null) {
+            return fillFromChannel();
+        }
+        int n;
+        do {
+            n = in.read(readBuffer, 0, readBuffer.length);
+        } while (n == 0);
+        pos = 0;
+        limit = Math.max(n, 0);
+        return n > 0;
+    }
+
+    /**
+     * Maps the next region, a field running over its end is continued from the start of the next one.
+     */
+    private boolean fillFromChannel() throws IOException {
+        long size = end >= 0 ? end : channel.size();
+        if (mappedUpTo >= size) {
+            pos = 0;
+            limit = 0;
+            return false;
+        }
+        long length = Math.min(regionSize, size - mappedUpTo);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, mappedUpTo, length);
+        mappedUpTo += length;
+        pos = 0;
+        limit = (int) length;
+        return true;
+    }
+}
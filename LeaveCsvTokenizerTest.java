@@ -0,0 +1,130 @@
+package org.component;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaveCsvTokenizerTest {
+
+    private LeaveCsvTokenizer tokenizer(String csv, int bufferSize) {
+        return new LeaveCsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, bufferSize);
+    }
+
+    @Test
+    void testReadsPlainRecords() throws Exception {
+        LeaveCsvTokenizer tokenizer = tokenizer("employee_id,employee_name\n42,John Doe\r\n-7,Jane\n", 64);
+
+        assertTrue(tokenizer.nextRecord());
+        assertTrue(tokenizer.fieldEquals(0, "employee_id"));
+        assertEquals(2, tokenizer.getFieldCount());
+
+        assertTrue(tokenizer.nextRecord());
+        assertEquals(42, tokenizer.getInt(0));
+        assertEquals("John Doe", tokenizer.getString(1));
+
+        assertTrue(tokenizer.nextRecord());
+        assertEquals(-7, tokenizer.getInt(0));
+        assertEquals("Jane", tokenizer.getString(1));
+        assertEquals(3, tokenizer.getRecordNumber());
+
+        assertFalse(tokenizer.nextRecord());
+    }
+
+    @Test
+    void testQuotedFieldsAcrossBufferBoundaries() throws Exception {
+        // a tiny buffer forces every quote, escape and line break to straddle a refill
+        LeaveCsvTokenizer tokenizer = tokenizer("\"1\",\"Doe, \"\"JD\"\" John\",\"line\r\nbreak\",\"\"\r\n", 3);
+
+        assertTrue(tokenizer.nextRecord());
+        assertEquals(4, tokenizer.getFieldCount());
+        assertEquals(1, tokenizer.getInt(0));
+        assertEquals("Doe, \"JD\" John", tokenizer.getString(1));
+        assertEquals("line\r\nbreak", tokenizer.getString(2));
+        assertTrue(tokenizer.isBlank(3));
+        assertFalse(tokenizer.nextRecord());
+    }
+
+    @Test
+    void testLastRecordWithoutLineBreakAndEmptyLines() throws Exception {
+        LeaveCsvTokenizer tokenizer = tokenizer("a,b\n\nc,", 8);
+
+        assertTrue(tokenizer.nextRecord());
+        assertEquals(2, tokenizer.getFieldCount());
+        assertTrue(tokenizer.nextRecord());
+        assertEquals(1, tokenizer.getFieldCount());
+        assertTrue(tokenizer.isBlank(0));
+        assertTrue(tokenizer.nextRecord());
+        assertEquals(2, tokenizer.getFieldCount());
+        assertEquals("c", tokenizer.getString(0));
+        assertTrue(tokenizer.isBlank(1));
+        assertFalse(tokenizer.nextRecord());
+    }
+
+    @Test
+    void testIntParsingMatchesIntegerParseInt() throws Exception {
+        LeaveCsvTokenizer tokenizer = tokenizer("2147483647,-2147483648,2147483648,1.0, 5,+3\n", 64);
+        assertTrue(tokenizer.nextRecord());
+
+        assertEquals(Integer.MAX_VALUE, tokenizer.getInt(0));
+        assertEquals(Integer.MIN_VALUE, tokenizer.getInt(1));
+        NumberFormatException overflow = assertThrows(NumberFormatException.class, () -> tokenizer.getInt(2));
+        assertEquals("For input string: \"2147483648\"", overflow.getMessage());
+        assertThrows(NumberFormatException.class, () -> tokenizer.getInt(3));
+        assertThrows(NumberFormatException.class, () -> tokenizer.getInt(4));
+        assertEquals(3, tokenizer.getInt(5));
+    }
+
+    @Test
+    void testDecodesWithConfiguredCharsetAndSkipsBom() throws Exception {
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        byte[] body = "employee_id,Zoë Müller\n".getBytes(StandardCharsets.UTF_8);
+        byte[] csv = new byte[bom.length + body.length];
+        System.arraycopy(bom, 0, csv, 0, bom.length);
+        System.arraycopy(body, 0, csv, bom.length, body.length);
+
+        LeaveCsvTokenizer tokenizer = new LeaveCsvTokenizer(new ByteArrayInputStream(csv), StandardCharsets.UTF_8);
+        assertTrue(tokenizer.nextRecord());
+        assertTrue(tokenizer.fieldEquals(0, "employee_id"));
+        assertEquals("Zoë Müller", tokenizer.getString(1));
+    }
+
+    @Test
+    void testUnterminatedQuoteFails() throws Exception {
+        LeaveCsvTokenizer tokenizer = tokenizer("1,\"open\n", 64);
+        RuntimeException e = assertThrows(RuntimeException.class, tokenizer::nextRecord);
+        assertEquals("Error processing CSV file!", e.getMessage());
+    }
+
+    @Test
+    void testReadsMappedFileAcrossRegions(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(dir.resolve("leave.csv"), "employee_id,employee_name\n1,\"Doe, John\"\n2,Jane\n");
+
+        // regions smaller than a record, so fields and quotes run over the end of the mapped buffer
+        try (LeaveCsvTokenizer tokenizer = new LeaveCsvTokenizer(FileChannel.open(file), StandardCharsets.UTF_8, 5)) {
+            assertTrue(tokenizer.nextRecord());
+            assertEquals("employee_name", tokenizer.getString(1));
+            assertTrue(tokenizer.nextRecord());
+            assertEquals(1, tokenizer.getInt(0));
+            assertEquals("Doe, John", tokenizer.getString(1));
+            assertTrue(tokenizer.nextRecord());
+            assertEquals(2, tokenizer.getInt(0));
+            assertEquals("Jane", tokenizer.getString(1));
+            assertFalse(tokenizer.nextRecord());
+        }
+    }
+
+    @Test
+    void testSupportsOnlyAsciiCompatibleCharsets() {
+        assertTrue(LeaveCsvTokenizer.supports(StandardCharsets.UTF_8));
+        assertTrue(LeaveCsvTokenizer.supports(Charset.forName("windows-1252")));
+        assertFalse(LeaveCsvTokenizer.supports(StandardCharsets.UTF_16));
+    }
+}
@@ -0,0 +1,141 @@
+package org.component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * One parsed leave row.
+ * <p>
+ * Serialized by {@link Serializer}, which writes the same field names the form expects straight to the
+ * {@link JsonGenerator} instead of going through bean introspection. {@code sheet} is the workbook sheet the row
+ * was read from when several sheets are parsed, {@code null} otherwise, and only written when set.
+ */
+@JsonSerialize(using = LeaveDetail.Serializer.class)
+public record LeaveDetail(int employeeId, String displayName, String firstName, String lastName, String manager,
+                          LocalDate startDate, LocalDate endDate, String email, int noOfHours, String sheet) {
+
+    static final String DEFAULT_EMAIL = "example@example.com";
+    static final String TIME_SUFFIX = "T00:00:00";
+    private static final int ISO_DATE_LENGTH = 10;
+
+    /**
+     * Creates a leave detail from the columns of the sheet, splitting the employee name only once.
+     */
+    public static LeaveDetail of(int employeeId, String employeeName, String manager, LocalDate startDate, LocalDate endDate, int noOfHours) {
+        return of(employeeId, employeeName, manager, startDate, endDate, noOfHours, null);
+    }
+
+    /**
+     * Same as {@link #of(int, String, String, LocalDate, LocalDate, int)} for a row read from the named sheet.
+     */
+    public static LeaveDetail of(int employeeId, String employeeName, String manager, LocalDate startDate, LocalDate endDate, int noOfHours,
+                                 String sheet) {
+        return new LeaveDetail(employeeId, employeeName, firstName(employeeName), lastName(employeeName), manager,
+                startDate, endDate, DEFAULT_EMAIL, noOfHours, sheet);
+    }
+
+    /**
+     * Same result as {@code fullName.split(" ")[0]}.
+     */
+    static String firstName(String fullName) {
+        int space = fullName.indexOf(' ');
+        return space < 0 ? fullName : fullName.substring(0, space);
+    }
+
+    /**
+     * Same result as taking the last element of {@code fullName.split(" ")} when there is more than one.
+     */
+    static String lastName(String fullName) {
+        int end = fullName.length();
+        while (end > 0 && fullName.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int space = fullName.lastIndexOf(' ', end - 1);
+        return space < 0 ? "" : fullName.substring(space + 1, end);
+    }
+
+    public static class Serializer extends StdSerializer<LeaveDetail> {
+        private static final SerializedString ID = new SerializedString("_id");
+        private static final SerializedString MANAGER = new SerializedString("manager");
+        private static final SerializedString START_DATE = new SerializedString("start_date");
+        private static final SerializedString END_DATE = new SerializedString("end_date");
+        private static final SerializedString DISPLAY_NAME = new SerializedString("display_name");
+        private static final SerializedString FIRST_NAME = new SerializedString("first_name");
+        private static final SerializedString LAST_NAME = new SerializedString("last_name");
+        private static final SerializedString NAME = new SerializedString("name");
+        private static final SerializedString EMAIL = new SerializedString("email");
+        private static final SerializedString NO_OF_HOURS = new SerializedString("no_of_hours");
+        private static final SerializedString SHEET = new SerializedString("sheet");
+
+        public Serializer() {
+            super(LeaveDetail.class);
+        }
+
+        @Override
+        public void serialize(LeaveDetail value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            write(value, gen);
+        }
+
+        static void write(LeaveDetail value, JsonGenerator gen) throws IOException {
+            gen.writeStartObject();
+            gen.writeFieldName(ID);
+            gen.writeNumber(value.employeeId());
+            gen.writeFieldName(MANAGER);
+            gen.writeString(value.manager());
+            gen.writeFieldName(START_DATE);
+            writeDateTime(gen, value.startDate());
+            gen.writeFieldName(END_DATE);
+            writeDateTime(gen, value.endDate());
+            gen.writeFieldName(DISPLAY_NAME);
+            gen.writeString(value.displayName());
+            gen.writeFieldName(FIRST_NAME);
+            gen.writeString(value.firstName());
+            gen.writeFieldName(LAST_NAME);
+            gen.writeString(value.lastName());
+            gen.writeFieldName(NAME);
+            gen.writeString(value.displayName());
+            gen.writeFieldName(EMAIL);
+            gen.writeString(value.email());
+            gen.writeFieldName(NO_OF_HOURS);
+            gen.writeNumber(value.noOfHours());
+            if (value.sheet() != null) {
+                gen.writeFieldName(SHEET);
+                gen.writeString(value.sheet());
+            }
+            gen.writeEndObject();
+        }
+
+        /**
+         * Writes {@code yyyy-MM-ddT00:00:00} digit by digit, falling back to {@link LocalDate#toString()} for
+         * years without exactly four digits.
+         */
+        private static void writeDateTime(JsonGenerator gen, LocalDate date) throws IOException {
+            int year = date.getYear();
+            if (year < 1000 || year > 9999) {
+                gen.writeString(date + TIME_SUFFIX);
+                return;
+            }
+            char[] chars = new char[ISO_DATE_LENGTH + TIME_SUFFIX.length()];
+            writeDigits(chars, 0, year, 4);
+            chars[4] = '-';
+            writeDigits(chars, 5, date.getMonthValue(), 2);
+            chars[7] = '-';
+            writeDigits(chars, 8, date.getDayOfMonth(), 2);
+            TIME_SUFFIX.getChars(0, TIME_SUFFIX.length(), chars, ISO_DATE_LENGTH);
+            gen.writeString(chars, 0, chars.length);
+        }
+
+        private static void writeDigits(char[] chars, int offset, int value, int digits) {
+            for (int i = offset + digits - 1; i >= offset; i--) {
+                chars[i] = (char) ('0' + value % 10);
+                value /= 10;
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.component;
+
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.RuntimeCamelException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Collects parsed leave detail rows into fixed size batches and sends every batch as its own exchange.
+ * <p>
+ * A full batch is only sent once the next row arrives, so the batch that is sent from {@link #complete()}
+ * is always the one flagged with {@link EmailCsvProcessorConstants#BATCH_COMPLETE}.
+ */
+public class LeaveDetailBatcher<T> implements Consumer<T> {
+
+    private final ProducerTemplate template;
+    private final Endpoint target;
+    private final Exchange source;
+    private final int batchSize;
+    private final Function<List<T>, Object> envelopeFactory;
+
+    private List<T> current;
+    private int batchIndex;
+    private int rowCount;
+
+    public LeaveDetailBatcher(ProducerTemplate template, Endpoint target, Exchange source, int batchSize,
+                              Function<List<T>, Object> envelopeFactory) {
+        this.template = template;
+        this.target = target;
+        this.source = source;
+        this.batchSize = batchSize;
+        this.envelopeFactory = envelopeFactory;
+        this.current = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void accept(T row) {
+        if (current.size() == batchSize) {
+            send(current, false);
+            current = new ArrayList<>(batchSize);
+        }
+        current.add(row);
+        rowCount++;
+    }
+
+    /**
+     * Sends the remaining rows as the last batch and returns the number of batches sent.
+     */
+    public int complete() {
+        if (!current.isEmpty()) {
+            send(current, true);
+            current = new ArrayList<>(0);
+        }
+        return batchIndex;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    private void send(List<T> rows, boolean last) {
+        int index = batchIndex++;
+        Exchange result = template.send(target, batch -> {
+            batch.getIn().setHeaders(new HashMap<>(source.getIn().getHeaders()));
+            batch.getIn().setHeader(EmailCsvProcessorConstants.BATCH_INDEX, index);
+            batch.getIn().setHeader(EmailCsvProcessorConstants.BATCH_COMPLETE, last);
+            if (last) {
+                batch.getIn().setHeader(EmailCsvProcessorConstants.BATCH_SIZE, index + 1);
+            }
+            batch.getIn().setBody(envelopeFactory.apply(rows));
+        });
+        if (result.getException() != null) {
+            throw new DeliveryException("Failed to deliver leave details batch " + index, result.getException());
+        }
+    }
+
+    /**
+     * Thrown when the downstream endpoint fails a batch, so it is not mistaken for a parse error.
+     */
+    public static class DeliveryException extends RuntimeCamelException {
+        public DeliveryException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaveDetailBatcherTest {
+
+    private DefaultCamelContext camelContext;
+    private MockEndpoint batches;
+
+    @BeforeEach
+    void setUp() {
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+        batches = camelContext.getEndpoint("mock:batches", MockEndpoint.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+    }
+
+    @Test
+    void testSendsEveryBatchInItsOwnEnvelope() throws Exception {
+        batches.expectedMessageCount(3);
+
+        Exchange exchange = process(csv(5));
+
+        batches.assertIsSatisfied();
+        List<Exchange> received = batches.getReceivedExchanges();
+        int employeeId = 1;
+        for (int i = 0; i < received.size(); i++) {
+            Exchange batch = received.get(i);
+            assertEquals(i, batch.getIn().getHeader(EmailCsvProcessorConstants.BATCH_INDEX));
+            assertEquals(i == 2, batch.getIn().getHeader(EmailCsvProcessorConstants.BATCH_COMPLETE));
+            assertEquals(i == 2 ? 3 : null, batch.getIn().getHeader(EmailCsvProcessorConstants.BATCH_SIZE));
+            // the headers of the email go with every batch
+            assertEquals("Company X", batch.getIn().getHeader("Subject"));
+
+            LeaveSubmission submission = batch.getIn().getBody(LeaveSubmission.class);
+            assertEquals("john.doe@example.com", submission.requesterEmail());
+            assertEquals("Company X", submission.requesterCompany());
+            assertEquals(i == 2 ? 1 : 2, submission.leaveDetails().size());
+            for (LeaveDetail leaveDetail : submission.leaveDetails()) {
+                assertEquals(employeeId++, leaveDetail.employeeId());
+            }
+        }
+
+        assertNull(exchange.getIn().getHeader("ErrorReason"));
+        assertEquals(3, exchange.getIn().getHeader(EmailCsvProcessorConstants.BATCH_SIZE));
+        assertEquals(5, exchange.getIn().getHeader(EmailCsvProcessorConstants.ROW_COUNT));
+        assertNull(exchange.getIn().getBody());
+    }
+
+    @Test
+    void testFlagsAFullLastBatchAsComplete() throws Exception {
+        batches.expectedMessageCount(2);
+
+        Exchange exchange = process(csv(4));
+
+        batches.assertIsSatisfied();
+        assertEquals(List.of(false, true), batches.getReceivedExchanges().stream()
+                .map(batch -> batch.getIn().getHeader(EmailCsvProcessorConstants.BATCH_COMPLETE)).toList());
+        assertEquals(2, batches.getReceivedExchanges().get(1).getIn().getBody(LeaveSubmission.class).leaveDetails().size());
+        assertEquals(2, exchange.getIn().getHeader(EmailCsvProcessorConstants.BATCH_SIZE));
+    }
+
+    @Test
+    void testFailsTheEmailWhenABatchIsNotDelivered() throws Exception {
+        batches.whenExchangeReceived(2, batch -> {
+            throw new IllegalStateException("Service unavailable");
+        });
+
+        Exchange exchange = process(csv(7));
+
+        // the batch after the failed one is never sent
+        assertEquals(2, batches.getReceivedCounter());
+        assertEquals("An unexpected error occurred: Failed to deliver leave details batch 1", exchange.getIn().getHeader("ErrorReason"));
+        assertNull(exchange.getIn().getHeader(EmailCsvProcessorConstants.BATCH_SIZE));
+        assertNull(exchange.getIn().getBody());
+    }
+
+    private static String csv(int rows) {
+        StringBuilder csv = new StringBuilder("employee_id,employee_name,manager,start_date,end_date,no_of_hours\n");
+        for (int i = 1; i <= rows; i++) {
+            csv.append(i).append(",Employee ").append(i).append(",Jane Roe,2024-01-02,2024-01-03,8\n");
+        }
+        return csv.toString();
+    }
+
+    private Exchange process(String csv) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", "john.doe@example.com");
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(csv.getBytes(StandardCharsets.UTF_8), "text/csv");
+        dataSource.setName("leave.csv");
+        in.addAttachment("leave.csv", new DataHandler(dataSource));
+        exchange.setIn(in);
+
+        camelContext.createProducerTemplate().send("emailCsvProcessor:batched?batchSize=2&batchEndpoint=mock:batches", exchange);
+        return exchange;
+    }
+}
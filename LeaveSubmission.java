@@ -0,0 +1,114 @@
+package org.component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The form submission built for one email (or one batch of it).
+ * <p>
+ * Only the requester fields and the leave rows vary, the form id, metadata and state are constants written
+ * by {@link Serializer}.
+ */
+@JsonSerialize(using = LeaveSubmission.Serializer.class)
+public record LeaveSubmission(String requesterName, String requesterEmail, String requesterCompany, String createOn,
+                              List<LeaveDetail> leaveDetails) {
+
+    static final String FORM_ID = "123123123131dafwefw21e1eac";
+    static final String TIMEZONE = "UTC";
+    static final String BROWSER_NAME = "Chrome";
+    static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/237.84.2.178 Safari/537.36";
+
+    public static class Serializer extends StdSerializer<LeaveSubmission> {
+        private static final SerializedString DATA = new SerializedString("data");
+        private static final SerializedString REQUESTER_NAME = new SerializedString("requester_name");
+        private static final SerializedString REQUESTER_EMAIL = new SerializedString("requester_email");
+        private static final SerializedString REQUESTER_COMPANY = new SerializedString("requesterCompany");
+        private static final SerializedString CREATE_ON = new SerializedString("createOn");
+        private static final SerializedString LEAVE_DETAILS = new SerializedString("leave_details");
+        private static final SerializedString FORMIO_FORM_ID = new SerializedString("_formio_formId");
+        private static final SerializedString FORMIO_SUBMISSION_ID = new SerializedString("_formio_submissionId");
+        private static final SerializedString SUBMIT = new SerializedString("submit");
+        private static final SerializedString METADATA = new SerializedString("metadata");
+        private static final SerializedString TIMEZONE_FIELD = new SerializedString("timezone");
+        private static final SerializedString BROWSER_NAME_FIELD = new SerializedString("browserName");
+        private static final SerializedString USER_AGENT_FIELD = new SerializedString("userAgent");
+        private static final SerializedString STATE = new SerializedString("state");
+        private static final SerializedString VNOTE = new SerializedString("_vnote");
+        private static final SerializedString ACTION = new SerializedString("action");
+        private static final SerializedString UPLOADED_FILES = new SerializedString("uploadedFiles");
+
+        public Serializer() {
+            super(LeaveSubmission.class);
+        }
+
+        @Override
+        public void serialize(LeaveSubmission value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            writeHead(gen, value.requesterName(), value.requesterEmail(), value.requesterCompany(), value.createOn());
+            for (LeaveDetail leaveDetail : value.leaveDetails()) {
+                LeaveDetail.Serializer.write(leaveDetail, gen);
+            }
+            writeTail(gen);
+        }
+
+        /**
+         * Writes the submission up to and including the start of the {@code leave_details} array.
+         */
+        static void writeHead(JsonGenerator gen, String requesterName, String requesterEmail, String requesterCompany,
+                              String createOn) throws IOException {
+            gen.writeStartObject();
+            gen.writeFieldName(DATA);
+            gen.writeStartObject();
+            gen.writeFieldName(REQUESTER_NAME);
+            gen.writeString(requesterName);
+            gen.writeFieldName(REQUESTER_EMAIL);
+            gen.writeString(requesterEmail);
+            gen.writeFieldName(REQUESTER_COMPANY);
+            gen.writeString(requesterCompany);
+            gen.writeFieldName(CREATE_ON);
+            gen.writeString(createOn);
+            gen.writeFieldName(LEAVE_DETAILS);
+            gen.writeStartArray();
+        }
+
+        /**
+         * Writes the rest of the submission after the last row, closing the {@code leave_details} array.
+         */
+        static void writeTail(JsonGenerator gen) throws IOException {
+            gen.writeEndArray();
+            gen.writeFieldName(FORMIO_FORM_ID);
+            gen.writeString(FORM_ID);
+            gen.writeFieldName(FORMIO_SUBMISSION_ID);
+            gen.writeString("");
+            gen.writeFieldName(SUBMIT);
+            gen.writeBoolean(true);
+            gen.writeEndObject();
+
+            gen.writeFieldName(METADATA);
+            gen.writeStartObject();
+            gen.writeFieldName(TIMEZONE_FIELD);
+            gen.writeString(TIMEZONE);
+            gen.writeFieldName(BROWSER_NAME_FIELD);
+            gen.writeString(BROWSER_NAME);
+            gen.writeFieldName(USER_AGENT_FIELD);
+            gen.writeString(USER_AGENT);
+            gen.writeEndObject();
+
+            gen.writeFieldName(STATE);
+            gen.writeString("submitted");
+            gen.writeFieldName(VNOTE);
+            gen.writeString("");
+            gen.writeFieldName(ACTION);
+            gen.writeString("CREATE");
+            gen.writeFieldName(UPLOADED_FILES);
+            gen.writeStartArray();
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+}
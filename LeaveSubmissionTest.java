@@ -0,0 +1,192 @@
+package org.component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.StreamCache;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaveSubmissionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testSerializesToTheFormPayload() throws Exception {
+        LeaveSubmission submission = new LeaveSubmission("John Doe", "john.doe@example.com", "Company X", "2024-01-01 10:00:00",
+                List.of(LeaveDetail.of(42, "Jane Q Roe", "Boss", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 2), 16)));
+
+        JsonNode actual = objectMapper.readTree(objectMapper.writeValueAsBytes(submission));
+
+        assertEquals(objectMapper.valueToTree(expectedPayload()), actual);
+    }
+
+    @Test
+    void testWritesTheSheetOnlyWhenSet() throws Exception {
+        LeaveDetail fromSheet = LeaveDetail.of(42, "Jane Q Roe", "Boss", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 2), 16, "Team A");
+
+        JsonNode actual = objectMapper.readTree(objectMapper.writeValueAsBytes(fromSheet));
+
+        assertEquals("Team A", actual.get("sheet").asText());
+        assertFalse(objectMapper.readTree(objectMapper.writeValueAsBytes(LeaveDetail.of(42, "Jane Q Roe", "Boss",
+                LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 2), 16))).has("sheet"));
+    }
+
+    @Test
+    void testStreamedBodyMatchesTheSubmission(@TempDir File spoolDirectory) throws Exception {
+        String csv = csv(50, false);
+        Date receivedDate = new Date();
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        Map<String, Object> received = new HashMap<>();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:spooled")
+                        .to("emailCsvProcessor:spooled?streamBody=true&streamBodyThreshold=256&spoolDirectory=" + spoolDirectory.getPath())
+                        .process(exchange -> received.put("spooled", receive(exchange, spoolDirectory)));
+                from("direct:inMemory")
+                        .to("emailCsvProcessor:inMemory?streamBody=true")
+                        .process(exchange -> received.put("inMemory", receive(exchange, spoolDirectory)));
+            }
+        });
+        camelContext.start();
+        try {
+            Exchange plain = process(camelContext, "emailCsvProcessor:plain", csv, receivedDate);
+            JsonNode expected = objectMapper.valueToTree(plain.getIn().getBody(LeaveSubmission.class));
+
+            Exchange spooled = process(camelContext, "direct:spooled", csv, receivedDate);
+            assertNull(spooled.getIn().getHeader("ErrorReason"));
+            assertEquals(50, spooled.getIn().getHeader(EmailCsvProcessorConstants.ROW_COUNT));
+            assertEquals(List.of(false, 1, expected), received.get("spooled"));
+            // the temp file goes with the exchange
+            assertEquals(0, spoolDirectory.list().length);
+
+            process(camelContext, "direct:inMemory", csv, receivedDate);
+            assertEquals(List.of(true, 0, expected), received.get("inMemory"));
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    @Test
+    void testDiscardsTheStreamedBodyOfAFailedEmail(@TempDir File spoolDirectory) throws Exception {
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+        try {
+            Exchange exchange = process(camelContext, "emailCsvProcessor:failed?streamBody=true&streamBodyThreshold=256&spoolDirectory="
+                    + spoolDirectory.getPath(), csv(50, true), new Date());
+
+            // the header is the first row
+            assertEquals(52L, exchange.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW, Long.class));
+            assertNull(exchange.getIn().getBody());
+            assertEquals(0, spoolDirectory.list().length);
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    @Test
+    void testNameSplittingMatchesStringSplit() {
+        for (String name : new String[]{"John", "John Doe", "John Ronald Doe", "John  Doe", " John", "John ", "A B  "}) {
+            String[] parts = name.split(" ");
+            assertEquals(parts[0], LeaveDetail.firstName(name), name);
+            assertEquals(parts.length > 1 ? parts[parts.length - 1] : "", LeaveDetail.lastName(name), name);
+        }
+    }
+
+    /**
+     * Whether the body is on the heap, the number of spooled files and the JSON of the body.
+     */
+    private List<Object> receive(Exchange exchange, File spoolDirectory) throws Exception {
+        StreamCache body = exchange.getIn().getBody(StreamCache.class);
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        body.writeTo(json);
+        return List.of(body.inMemory(), spoolDirectory.list().length, objectMapper.readTree(json.toByteArray()));
+    }
+
+    private static String csv(int rows, boolean invalidLastRow) {
+        StringBuilder csv = new StringBuilder("employee_id,employee_name,manager,start_date,end_date,no_of_hours\n");
+        for (int i = 1; i <= rows; i++) {
+            csv.append(i).append(",Employee ").append(i).append(",Jane Roe,2024-01-02,2024-01-03,8\n");
+        }
+        if (invalidLastRow) {
+            csv.append(rows + 1).append(",Employee,Jane Roe,2024-01-02,not a date,8\n");
+        }
+        return csv.toString();
+    }
+
+    private static Exchange process(DefaultCamelContext camelContext, String uri, String csv, Date receivedDate) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", "john.doe@example.com");
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", receivedDate);
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(csv.getBytes(StandardCharsets.UTF_8), "text/csv");
+        dataSource.setName("leave.csv");
+        in.addAttachment("leave.csv", new DataHandler(dataSource));
+        exchange.setIn(in);
+
+        camelContext.createProducerTemplate().send(uri, exchange);
+        return exchange;
+    }
+
+    // the envelope exactly as it used to be built from nested maps
+    private Map<String, Object> expectedPayload() {
+        Map<String, Object> leaveDetail = new HashMap<>();
+        leaveDetail.put("_id", 42);
+        leaveDetail.put("manager", "Boss");
+        leaveDetail.put("start_date", "2024-02-01T00:00:00");
+        leaveDetail.put("end_date", "2024-02-02T00:00:00");
+        leaveDetail.put("display_name", "Jane Q Roe");
+        leaveDetail.put("first_name", "Jane");
+        leaveDetail.put("last_name", "Roe");
+        leaveDetail.put("name", "Jane Q Roe");
+        leaveDetail.put("email", "example@example.com");
+        leaveDetail.put("no_of_hours", 16);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("requester_name", "John Doe");
+        data.put("requester_email", "john.doe@example.com");
+        data.put("requesterCompany", "Company X");
+        data.put("createOn", "2024-01-01 10:00:00");
+        data.put("leave_details", List.of(leaveDetail));
+        data.put("_formio_formId", "123123123131dafwefw21e1eac");
+        data.put("_formio_submissionId", "");
+        data.put("submit", true);
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("timezone", "UTC");
+        metadata.put("browserName", "Chrome");
+        metadata.put("userAgent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/237.84.2.178 Safari/537.36");
+
+        Map<String, Object> jsonResponse = new HashMap<>();
+        jsonResponse.put("data", data);
+        jsonResponse.put("metadata", metadata);
+        jsonResponse.put("state", "submitted");
+        jsonResponse.put("_vnote", "");
+        jsonResponse.put("action", "CREATE");
+        jsonResponse.put("uploadedFiles", Collections.emptyList());
+        return jsonResponse;
+    }
+}
@@ -0,0 +1,38 @@
+package org.component;
+
+import jakarta.mail.Message;
+
+import java.util.List;
+
+/**
+ * Where {@link EmailCsvProcessorConsumer} picks up emails from.
+ * <p>
+ * A poll opens the source, fetches up to {@code maxMessages} emails, commits or rolls back every email once
+ * its exchange is done and closes the source again. Commit and rollback may be called from several consumer
+ * threads at once.
+ */
+public interface MailSource {
+
+    void open() throws Exception;
+
+    List<Message> fetch(int maxMessages) throws Exception;
+
+    /**
+     * The email has been processed and must not be picked up again.
+     */
+    void commit(Message message) throws Exception;
+
+    /**
+     * Processing failed, the email is left in place to be picked up by a later poll.
+     */
+    void rollback(Message message) throws Exception;
+
+    void close() throws Exception;
+
+    /**
+     * Releases any connection kept between polls, called when the consumer stops.
+     */
+    default void shutdown() throws Exception {
+        close();
+    }
+}
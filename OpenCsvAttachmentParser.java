@@ -0,0 +1,82 @@
+package org.component;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static org.component.EmailCsvProcessorProducer.EXPECTED_HEADERS;
+
+/**
+ * Parses CSV attachments with OpenCSV, for {@code csvParser=opencsv} and for charsets the tokenizer does not support.
+ */
+final class OpenCsvAttachmentParser implements AttachmentParser {
+
+    private final Charset charset;
+
+    OpenCsvAttachmentParser(Charset charset) {
+        this.charset = charset;
+    }
+
+    @Override
+    public void parse(InputStream inputStream, Consumer<LeaveDetail> sink) throws Exception {
+        CSVReader csvReader = new CSVReader(new InputStreamReader(inputStream, charset));
+
+        try {
+            String[] headers = csvReader.readNext();
+            if (!Arrays.equals(headers, EXPECTED_HEADERS)) {
+                throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_HEADER_MISMATCH,
+                        "Invalid CSV header format!", 1, null);
+            }
+
+            String[] row;
+            while ((row = csvReader.readNext()) != null) {
+                long rowNumber = csvReader.getRecordsRead();
+                if (row.length != headers.length) {
+                    throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_MISSING_VALUES,
+                            "CSV file format is correct but values are missing", rowNumber, null);
+                }
+
+                for (String value : row) {
+                    if (value == null || value.trim().isEmpty()) {
+                        throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_MISSING_VALUES,
+                                "CSV file format is correct but values are missing", rowNumber, null);
+                    }
+                }
+
+                LeaveDetail leaveDetail;
+                try {
+                    int employeeId = LeaveCells.parseInt(row[0], 0, row[0].length());
+                    LocalDate startDate = LeaveCells.parseDate(row[3], 0, row[3].length());
+                    LocalDate endDate = LeaveCells.parseDate(row[4], 0, row[4].length());
+                    int noOfHours = LeaveCells.parseInt(row[5], 0, row[5].length());
+                    if (RowDeduplicator.isDuplicate(sink, employeeId, startDate, endDate)) {
+                        continue;
+                    }
+                    leaveDetail = LeaveDetail.of(employeeId, row[1], row[2], startDate, endDate, noOfHours);
+                } catch (NumberFormatException | DateTimeException e) {
+                    throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_INVALID_FILE,
+                            e.getMessage(), rowNumber, e);
+                }
+                sink.accept(leaveDetail);
+            }
+        } catch (CsvValidationException e) {
+            throw new RuntimeException("Error processing CSV file!", e);
+        } finally {
+            csvReader.close();
+        }
+    }
+
+    @Override
+    public void parse(Path file, Consumer<LeaveDetail> sink) throws Exception {
+        parse(Files.newInputStream(file), sink);
+    }
+}
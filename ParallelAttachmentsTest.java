@@ -0,0 +1,174 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.DataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelAttachmentsTest {
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    void setUp() {
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+    }
+
+    @Test
+    void testMergesRowsInAttachmentOrder() throws Exception {
+        // the first attachment is only read once the last one has been parsed
+        CountDownLatch lastParsed = new CountDownLatch(1);
+        List<Attachment> attachments = List.of(
+                new Attachment("a.csv", csv(1, 100, false), lastParsed, null),
+                new Attachment("b.csv", csv(101, 10, false), null, null),
+                new Attachment("c.csv", csv(111, 10, false), null, lastParsed));
+
+        Exchange exchange = process("emailCsvProcessor:ordered?parallelAttachments=true&attachmentParallelism=3", attachments);
+
+        assertNull(exchange.getIn().getHeader("ErrorReason"));
+        List<LeaveDetail> leaveDetails = exchange.getIn().getBody(LeaveSubmission.class).leaveDetails();
+        assertEquals(120, leaveDetails.size());
+        for (int i = 0; i < leaveDetails.size(); i++) {
+            assertEquals(i + 1, leaveDetails.get(i).employeeId());
+        }
+    }
+
+    @Test
+    void testReportsTheFirstFailingAttachmentAndCancelsTheRest() throws Exception {
+        // the second attachment fails first, the first one only fails after it
+        CountDownLatch secondFailed = new CountDownLatch(1);
+        List<Attachment> attachments = new ArrayList<>();
+        attachments.add(new Attachment("a.csv", csv(1, 50, true), secondFailed, null));
+        attachments.add(new Attachment("b.csv", csv(51, 1, true), null, secondFailed));
+        for (int i = 0; i < 4; i++) {
+            attachments.add(new Attachment("later" + i + ".csv", csv(100 + 10 * i, 10, false), null, null));
+        }
+
+        Exchange exchange = process("emailCsvProcessor:failing?parallelAttachments=true&attachmentParallelism=2", attachments);
+
+        assertEquals("Please attach a valid CSV file: Invalid date: \"tomorrow\", expected yyyy-MM-dd", exchange.getIn().getHeader("ErrorReason"));
+        assertEquals(52L, exchange.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW));
+        assertNull(exchange.getIn().getBody());
+        assertEquals(1, attachments.get(0).opened.get());
+        assertEquals(1, attachments.get(1).opened.get());
+        // cancelled before a thread was free to start them
+        for (Attachment later : attachments.subList(2, attachments.size())) {
+            assertEquals(0, later.opened.get(), later.getName());
+        }
+    }
+
+    /**
+     * Rows with consecutive employee ids from {@code firstId}, followed by a row with an invalid end date when
+     * {@code invalidLastRow} is set.
+     */
+    private static byte[] csv(int firstId, int rows, boolean invalidLastRow) {
+        StringBuilder csv = new StringBuilder("employee_id,employee_name,manager,start_date,end_date,no_of_hours\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(firstId + i).append(",Employee ").append(firstId + i).append(",Jane Roe,2024-01-02,2024-01-03,8\n");
+        }
+        if (invalidLastRow) {
+            csv.append(firstId + rows).append(",Employee,Jane Roe,2024-01-02,tomorrow,8\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Exchange process(String uri, List<Attachment> attachments) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", "john.doe@example.com");
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        for (Attachment attachment : attachments) {
+            in.addAttachment(attachment.getName(), new DataHandler(attachment));
+        }
+        exchange.setIn(in);
+
+        camelContext.createProducerTemplate().send(uri, exchange);
+        return exchange;
+    }
+
+    /**
+     * An attachment that counts how often it is opened, waits for {@code openAfter} before it can be read and
+     * counts down {@code closed} once it has been read.
+     */
+    private static final class Attachment implements DataSource {
+
+        private final String name;
+        private final byte[] content;
+        private final CountDownLatch openAfter;
+        private final CountDownLatch closed;
+        private final AtomicInteger opened = new AtomicInteger();
+
+        Attachment(String name, byte[] content, CountDownLatch openAfter, CountDownLatch closed) {
+            this.name = name;
+            this.content = content;
+            this.openAfter = openAfter;
+            this.closed = closed;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            opened.incrementAndGet();
+            try {
+                if (openAfter != null && !openAfter.await(10, TimeUnit.SECONDS)) {
+                    throw new IOException("Timed out waiting to open " + name);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            return new FilterInputStream(new ByteArrayInputStream(content)) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    if (closed != null) {
+                        closed.countDown();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getContentType() {
+            return "text/csv";
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Parses one large CSV file on several threads.
+ * <p>
+ * The file is cut into chunks of roughly {@code chunkSize} bytes, each chunk starting right after a line break
+ * that is outside quotes. Whether a line break is quoted depends on the number of quotes before it, so every
+ * chunk is first scanned in parallel for its quote parity and for its first line break at either parity; a
+ * sequential pass over these summaries then picks the real record boundaries without reading the file again.
+ * The chunks are tokenized in parallel, each into its own list, and the lists are handed to the sink in file
+ * order. Rows therefore arrive exactly as the sequential parser would deliver them, and a failing chunk stops the
+ * chunks after it. Row numbers of {@link EmailCsvProcessorProducer.InvalidRowException} are translated from the
+ * chunk into the whole file.
+ * <p>
+ * The chunks waiting for their turn hold their rows, so {@code maxRows} is enforced on all chunks together while
+ * they parse. When parsing fails, the chunks still running stop at their next row and are waited for, so nothing
+ * reads the file any more once {@link #parse} has thrown.
+ */
+final class ParallelCsvParser {
+
+    /**
+     * Parses the records of one chunk, starting with the header when {@code first} is set.
+     */
+    @FunctionalInterface
+    interface ChunkParser {
+
+        void parse(LeaveCsvTokenizer tokenizer, boolean first, Consumer<LeaveDetail> sink) throws IOException;
+    }
+
+    private final ExecutorService pool;
+    private final long chunkSize;
+    private final Charset charset;
+    private final int maxRows;
+
+    /**
+     * {@code maxRows} is 0 for no limit.
+     */
+    ParallelCsvParser(ExecutorService pool, long chunkSize, Charset charset, int maxRows) {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("parallelCsvChunkSize must be between 1 and " + Integer.MAX_VALUE);
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.charset = charset;
+        this.maxRows = maxRows;
+    }
+
+    void parse(Path file, ChunkParser parser, Consumer<LeaveDetail> sink) throws IOException {
+        long[] boundaries;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boundaries = recordBoundaries(channel);
+        }
+
+        int count = boundaries.length - 1;
+        List<Future<Chunk>> tasks = new ArrayList<>(count);
+        AtomicInteger firstFailure = new AtomicInteger(count);
+        AtomicLong rows = new AtomicLong();
+        try {
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                tasks.add(pool.submit(() -> parseChunk(file, index, start, end, parser, firstFailure, rows)));
+            }
+
+            long recordOffset = 0;
+            for (Future<Chunk> task : tasks) {
+                Chunk chunk = join(task);
+                if (chunk.failure != null) {
+                    rethrow(chunk.failure, recordOffset);
+                }
+                chunk.rows.forEach(sink);
+                recordOffset += chunk.records;
+            }
+        } finally {
+            // the chunks still queued or running stop at their next row, the sink may have failed as well
+            firstFailure.set(-1);
+            awaitAll(tasks);
+        }
+    }
+
+    private Chunk parseChunk(Path file, int index, long start, long end, ChunkParser parser, AtomicInteger firstFailure, AtomicLong rows) {
+        Chunk chunk = new Chunk();
+        if (index > firstFailure.get()) {
+            // never read, an earlier chunk already failed
+            return chunk;
+        }
+        Consumer<LeaveDetail> chunkSink = row -> {
+            if (index > firstFailure.get()) {
+                throw new CancellationException();
+            }
+            if (maxRows > 0 && rows.incrementAndGet() > maxRows) {
+                throw new EmailCsvProcessorProducer.LimitExceededException("Attachment exceeds the maximum of " + maxRows + " rows");
+            }
+            chunk.rows.add(row);
+        };
+        try (LeaveCsvTokenizer tokenizer = new LeaveCsvTokenizer(FileChannel.open(file, StandardOpenOption.READ), start, end, charset)) {
+            try {
+                parser.parse(tokenizer, index == 0, chunkSink);
+            } finally {
+                chunk.records = tokenizer.getRecordNumber();
+            }
+        } catch (IOException | RuntimeException e) {
+            firstFailure.accumulateAndGet(index, Math::min);
+            chunk.failure = e;
+        }
+        return chunk;
+    }
+
+    private static <T> T join(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing the CSV in parallel");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Waits for every task to finish, whether or not it failed.
+     */
+    private static void awaitAll(List<? extends Future<?>> tasks) {
+        boolean interrupted = false;
+        for (Future<?> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void rethrow(Exception failure, long recordOffset) throws IOException {
+        if (failure instanceof EmailCsvProcessorProducer.InvalidRowException invalidRow) {
+            throw new EmailCsvProcessorProducer.InvalidRowException(invalidRow.getReason(), invalidRow.getMessage(),
+                    recordOffset + invalidRow.getRowNumber(), invalidRow.getCause());
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw (IOException) failure;
+    }
+
+    /**
+     * Offsets where the chunks start, followed by the file size. Chunks without an unquoted line break are merged
+     * into the chunk before them.
+     */
+    private long[] recordBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+        List<Future<long[]>> scans = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                long start = i * chunkSize;
+                long length = Math.min(chunkSize, size - start);
+                scans.add(pool.submit(() -> scan(channel.map(FileChannel.MapMode.READ_ONLY, start, length), start)));
+            }
+
+            long[] boundaries = new long[count + 1];
+            int found = 1;
+            // the quote parity at a chunk start is that of every chunk before it, the first chunk always starts a record
+            long parity = join(scans.get(0))[2];
+            for (int i = 1; i < count; i++) {
+                long[] scan = join(scans.get(i));
+                long lineBreak = scan[(int) parity];
+                if (lineBreak >= 0 && lineBreak + 1 < size) {
+                    boundaries[found++] = lineBreak + 1;
+                }
+                parity ^= scan[2];
+            }
+            boundaries[found++] = size;
+            return Arrays.copyOf(boundaries, found);
+        } finally {
+            // the channel is closed once this returns
+            awaitAll(scans);
+        }
+    }
+
+    /**
+     * Positions of the first line break after an even and after an odd number of quotes within the region, -1
+     * when there is none, followed by the parity of all quotes in the region.
+     */
+    private static long[] scan(MappedByteBuffer region, long offset) {
+        long[] result = {-1, -1, 0};
+        int quotes = 0;
+        int limit = region.limit();
+        for (int i = 0; i < limit; i++) {
+            byte b = region.get(i);
+            if (b == '"') {
+                quotes ^= 1;
+            } else if (b == '\n' && result[quotes] < 0) {
+                result[quotes] = offset + i;
+            }
+        }
+        result[2] = quotes;
+        return result;
+    }
+
+    private static final class Chunk {
+
+        private final List<LeaveDetail> rows = new ArrayList<>();
+        private long records;
+        private Exception failure;
+    }
+}
@@ -0,0 +1,161 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCsvParserTest {
+
+    private static final String HEADER = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n";
+    // tiny chunks put boundaries inside quoted names, escaped quotes and line breaks
+    private static final String PARALLEL = "emailCsvProcessor:parallel?parallelCsvThreshold=1&parallelCsvChunkSize=7";
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    void setUp() {
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+    }
+
+    @Test
+    void testParallelParsingMatchesSequentialParsing() {
+        String csv = csv(1000, -1);
+
+        List<LeaveDetail> sequential = process("emailCsvProcessor:sequential", csv).getIn().getBody(LeaveSubmission.class).leaveDetails();
+        List<LeaveDetail> parallel = process(PARALLEL, csv).getIn().getBody(LeaveSubmission.class).leaveDetails();
+
+        assertEquals(1000, sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void testReportsGlobalRowNumberOfInvalidRow() {
+        String csv = csv(1000, 700);
+
+        Exchange sequential = process("emailCsvProcessor:sequential", csv);
+        Exchange parallel = process(PARALLEL, csv);
+
+        assertEquals("Please attach a valid CSV file: CSV file format is correct but values are missing", parallel.getIn().getHeader("ErrorReason"));
+        assertNull(parallel.getIn().getBody());
+        // data row 700 follows the header
+        assertEquals(701L, sequential.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW));
+        assertEquals(701L, parallel.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW));
+    }
+
+    @Test
+    void testRejectsInvalidHeader() {
+        Exchange exchange = process(PARALLEL, "id,name\n" + csv(10, -1).substring(HEADER.length()));
+
+        assertEquals("Please attach a valid CSV file: Invalid CSV header format!", exchange.getIn().getHeader("ErrorReason"));
+        assertEquals(1L, exchange.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW));
+    }
+
+    @Test
+    void testSmallAttachmentsStayOnOneThread() {
+        Exchange exchange = process("emailCsvProcessor:small?parallelCsvThreshold=1000000&parallelCsvChunkSize=7", csv(3, 2));
+
+        assertEquals(3L, exchange.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW));
+    }
+
+    @Test
+    void testEnforcesTheRowLimitWhileChunksParse() {
+        Exchange exchange = process(PARALLEL + "&maxRows=10", csv(1000, -1));
+
+        assertEquals("Please attach a valid CSV file: Attachment exceeds the maximum of 10 rows", exchange.getIn().getHeader("ErrorReason"));
+    }
+
+    @Test
+    void testStopsTheOtherChunksWhenOneFails(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("leave.csv");
+        Files.writeString(file, csv(100, -1));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicInteger running = new AtomicInteger();
+        LeaveDetail row = LeaveDetail.of(1, "John Doe", "Boss", LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 3), 8);
+        try {
+            ParallelCsvParser parser = new ParallelCsvParser(pool, 64, StandardCharsets.UTF_8, 0);
+            IllegalStateException failure = assertThrows(IllegalStateException.class, () -> parser.parse(file, (tokenizer, first, sink) -> {
+                running.incrementAndGet();
+                try {
+                    if (first) {
+                        throw new IllegalStateException("first chunk failed");
+                    }
+                    // far longer than the test, unless the chunk is stopped
+                    for (int i = 0; i < 10_000; i++) {
+                        sink.accept(row);
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    }
+                } finally {
+                    running.decrementAndGet();
+                }
+            }, rows -> { }));
+
+            assertEquals("first chunk failed", failure.getMessage());
+            assertEquals(0, running.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * A sheet with quoted names holding commas, escaped quotes and line breaks, row {@code blankRow} missing its hours.
+     */
+    private static String csv(int rows, int blankRow) {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= rows; i++) {
+            String name = switch (i % 4) {
+                case 0 -> "\"Doe, John " + i + "\"";
+                case 1 -> "\"Jane \"\"J\"\" Roe " + i + "\"";
+                case 2 -> "\"Mary\r\nMajor " + i + "\"";
+                default -> "Max Mustermann " + i;
+            };
+            csv.append(i).append(',').append(name).append(",Boss,2024-01-02,2024-01-03,")
+                    .append(i == blankRow ? "" : String.valueOf(i % 9))
+                    .append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        return csv.toString();
+    }
+
+    private Exchange process(String uri, String csv) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", "john.doe@example.com");
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(csv.getBytes(StandardCharsets.UTF_8), "text/csv");
+        dataSource.setName("leave.csv");
+        in.addAttachment("leave.csv", new DataHandler(dataSource));
+        exchange.setIn(in);
+
+        camelContext.createProducerTemplate().send(uri, exchange);
+        return exchange;
+    }
+}
@@ -0,0 +1,526 @@
+package org.component;
+
+import org.apache.camel.CamelContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Remembers every leave row by {@code (employee_id, start_date, end_date)}, so a row already received in an earlier
+ * email, or earlier in the same one, is dropped while parsing instead of going downstream again.
+ * <p>
+ * A row key is packed into a {@code long}: the employee id, the start date as a day number and the length of the
+ * leave in days. Rows starting more than about 1400 years from 1970 or longer than 4095 days have no key and
+ * always pass. The keys are kept in a Bloom filter sized for {@code expectedRows} keys at a 1% false positive
+ * rate, and in an exact set split into stripes, each a primitive open addressing table behind its own lock. A
+ * Bloom miss proves the row is new, so it is inserted without comparing it to the keys on the way to a free slot;
+ * only a Bloom hit looks the key up. Going past {@code expectedRows} keeps the results exact and only makes the
+ * filter miss less often.
+ * <p>
+ * A row only counts as received once the email that carried it has been delivered: until its session commits, the
+ * key is pending. An email that meets a pending key of another email still in flight lets the row through and holds
+ * the key as well, since the other email may yet be rolled back. The key is forgotten when the last email holding it
+ * rolls back without any of them having committed, so one failed email never loses a row another one dropped.
+ * <p>
+ * The exact set is written to {@code file} every {@code saveInterval} milliseconds when it changed and on stop,
+ * to a temp file that then replaces the old one, and read back on start.
+ */
+public class RowDeduplicator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RowDeduplicator.class);
+
+    private static final int STRIPES = 64;
+    private static final int HASHES = 7;
+    // bits per expected key for a 1% false positive rate with 7 hashes
+    private static final double BITS_PER_KEY = 9.6;
+    private static final int MAX_START_DAY = (1 << 19) - 1;
+    private static final int MAX_DAYS = (1 << 12) - 1;
+
+    private final CamelContext camelContext;
+    private final Path file;
+    private final long saveInterval;
+    private final AtomicLongArray bloom;
+    private final long bloomBits;
+    private final LongSet[] stripes = new LongSet[STRIPES];
+    // the keys of sessions that have neither committed nor rolled back yet, changed under the lock of their stripe
+    private final Map<Long, Holders> pending = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+    private ScheduledExecutorService scheduler;
+
+    public RowDeduplicator(CamelContext camelContext, int expectedRows, Path file, long saveInterval) {
+        if (expectedRows <= 0) {
+            throw new IllegalArgumentException("rowDedupExpectedRows must be positive");
+        }
+        this.camelContext = camelContext;
+        this.file = file;
+        this.saveInterval = saveInterval;
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, ((long) Math.ceil(expectedRows * BITS_PER_KEY) + 63) / 64);
+        this.bloom = new AtomicLongArray(words);
+        this.bloomBits = words * 64L;
+        int stripeCapacity = Integer.highestOneBit(Math.max(16, expectedRows / STRIPES) * 2 - 1) * 2;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new LongSet(stripeCapacity);
+        }
+    }
+
+    /**
+     * Reads the saved rows, failing when the file exists but cannot be read, and starts saving them.
+     */
+    public void start() {
+        if (file == null) {
+            return;
+        }
+        try {
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load the row deduplication file " + file, e);
+        }
+        if (saveInterval > 0) {
+            scheduler = camelContext.getExecutorServiceManager().newSingleThreadScheduledExecutor(this, "EmailCsvProcessorRowDedup");
+            scheduler.scheduleWithFixedDelay(this::saveIfChanged, saveInterval, saveInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            camelContext.getExecutorServiceManager().shutdown(scheduler);
+            scheduler = null;
+        }
+        if (file != null) {
+            saveIfChanged();
+        }
+    }
+
+    /**
+     * The rows of one email, each checked against every row seen before. Rows the email added can be forgotten
+     * again when it fails, so a redelivery is not taken for a duplicate.
+     */
+    public Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * Number of rows remembered.
+     */
+    public int size() {
+        int size = 0;
+        for (LongSet stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * Whether {@code sink} drops the row as a duplicate, always false for a sink not wrapped by a session. The
+     * parsers call this with the key columns before they build the row.
+     */
+    static boolean isDuplicate(Consumer<LeaveDetail> sink, int employeeId, LocalDate startDate, LocalDate endDate) {
+        return sink instanceof Session.Sink rows && rows.session().isDuplicate(employeeId, startDate, endDate);
+    }
+
+    /**
+     * {@code sink} checking rows against the session of {@code outer}, for the parsers that collect rows into a
+     * list of their own before handing them on.
+     */
+    static Consumer<LeaveDetail> sameSession(Consumer<LeaveDetail> outer, Consumer<LeaveDetail> sink) {
+        return outer instanceof Session.Sink rows ? rows.session().wrap(sink) : sink;
+    }
+
+    /**
+     * The packed key of a row, -1 when its dates do not fit.
+     */
+    static long key(int employeeId, LocalDate startDate, LocalDate endDate) {
+        long startDay = startDate.toEpochDay();
+        long days = endDate.toEpochDay() - startDay;
+        if (startDay < -MAX_START_DAY || startDay >= MAX_START_DAY || days < 0 || days > MAX_DAYS) {
+            return -1;
+        }
+        return (long) employeeId << 32 | (startDay + MAX_START_DAY + 1) << 12 | days;
+    }
+
+    /**
+     * Remembers the key, returns false when it had been seen before.
+     */
+    boolean add(long key) {
+        long hash = mix(key);
+        LongSet stripe = stripes[(int) (hash >>> 58)];
+        synchronized (stripe) {
+            return add(stripe, key, hash);
+        }
+    }
+
+    void remove(long key) {
+        long hash = mix(key);
+        LongSet stripe = stripes[(int) (hash >>> 58)];
+        synchronized (stripe) {
+            remove(stripe, key, hash);
+        }
+    }
+
+    // the filter is checked and set under the stripe lock, so two threads adding the same key cannot both miss
+    private boolean add(LongSet stripe, long key, long hash) {
+        boolean added = mightContain(hash) ? stripe.add(key, hash) : stripe.addAbsent(key, hash);
+        if (added) {
+            put(hash);
+            dirty = true;
+        }
+        return added;
+    }
+
+    private void remove(LongSet stripe, long key, long hash) {
+        if (stripe.remove(key, hash)) {
+            // the filter keeps the bits, a later lookup just goes on to the exact set
+            dirty = true;
+        }
+    }
+
+    /**
+     * Takes the key for a session, returns false when it had been received before and no other session still in
+     * flight holds it.
+     */
+    private boolean hold(long key, long hash) {
+        LongSet stripe = stripes[(int) (hash >>> 58)];
+        synchronized (stripe) {
+            if (add(stripe, key, hash)) {
+                pending.put(key, new Holders());
+                return true;
+            }
+            Holders holders = pending.get(key);
+            if (holders == null) {
+                return false;
+            }
+            holders.pending++;
+            return true;
+        }
+    }
+
+    /**
+     * Lets go of a key held by a session, which either committed or rolled back. Rolling back a key the session
+     * has already committed only forgets it when no other session holds it.
+     */
+    private void release(long key, long hash, boolean committed, boolean rollback) {
+        LongSet stripe = stripes[(int) (hash >>> 58)];
+        synchronized (stripe) {
+            Holders holders = pending.get(key);
+            if (holders == null) {
+                if (rollback) {
+                    remove(stripe, key, hash);
+                }
+                return;
+            }
+            if (committed) {
+                // a committed session is only counted until the last pending holder lets go
+                holders.committed--;
+                return;
+            }
+            holders.pending--;
+            if (!rollback) {
+                holders.committed++;
+            }
+            if (holders.pending == 0) {
+                pending.remove(key);
+                if (holders.committed <= 0) {
+                    remove(stripe, key, hash);
+                }
+            }
+        }
+    }
+
+    private boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bloomBits);
+            if ((bloom.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void put(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bloomBits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((bloom.get(word) & mask) == 0) {
+                bloom.accumulateAndGet(word, mask, (current, set) -> current | set);
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                long key;
+                try {
+                    key = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                add(key);
+            }
+        }
+        dirty = false;
+    }
+
+    void saveIfChanged() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                for (LongSet stripe : stripes) {
+                    for (long key : stripe.toArray()) {
+                        out.writeLong(key);
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            LOGGER.warn("Failed to save the row deduplication file {}", file, e);
+        }
+    }
+
+    /**
+     * The murmur3 finalizer, spreading the packed fields over every bit.
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    public final class Session {
+
+        private LongSet added = new LongSet(16);
+        private int duplicates;
+        private boolean committed;
+
+        /**
+         * Remembers the row, returns true when it had been seen before and has to be dropped.
+         */
+        public synchronized boolean isDuplicate(int employeeId, LocalDate startDate, LocalDate endDate) {
+            long key = key(employeeId, startDate, endDate);
+            if (key == -1) {
+                return false;
+            }
+            long hash = mix(key);
+            if (added.contains(key, hash) || !hold(key, hash)) {
+                duplicates++;
+                return true;
+            }
+            added.add(key, hash);
+            return false;
+        }
+
+        public synchronized int getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         * The email has been delivered, its rows count as received from now on.
+         */
+        public synchronized void commit() {
+            if (committed) {
+                return;
+            }
+            for (long key : added.toArray()) {
+                release(key, mix(key), false, false);
+            }
+            committed = true;
+        }
+
+        /**
+         * Forgets the rows this email added, unless another email still in flight holds them as well.
+         */
+        public synchronized void rollback() {
+            for (long key : added.toArray()) {
+                release(key, mix(key), committed, true);
+            }
+            added = new LongSet(16);
+        }
+
+        /**
+         * {@code sink} with the duplicates of this session dropped by the parsers before they build them.
+         */
+        public Consumer<LeaveDetail> wrap(Consumer<LeaveDetail> sink) {
+            return new Sink(this, sink);
+        }
+
+        private record Sink(Session session, Consumer<LeaveDetail> sink) implements Consumer<LeaveDetail> {
+
+            @Override
+            public void accept(LeaveDetail leaveDetail) {
+                sink.accept(leaveDetail);
+            }
+        }
+    }
+
+    /**
+     * How many sessions hold a pending key, and how many of those that let go had committed.
+     */
+    private static final class Holders {
+
+        private int pending = 1;
+        private int committed;
+    }
+
+    /**
+     * Open addressing set of longs with linear probing, 0 being the empty slot and tracked on its own.
+     */
+    private static final class LongSet {
+
+        private long[] keys;
+        private int size;
+        private boolean hasZero;
+
+        LongSet(int capacity) {
+            keys = new long[capacity];
+        }
+
+        synchronized int size() {
+            return size + (hasZero ? 1 : 0);
+        }
+
+        synchronized boolean add(long key, long hash) {
+            if (key == 0) {
+                boolean added = !hasZero;
+                hasZero = true;
+                return added;
+            }
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            insert(slot, key);
+            return true;
+        }
+
+        synchronized boolean contains(long key, long hash) {
+            if (key == 0) {
+                return hasZero;
+            }
+            int mask = keys.length - 1;
+            for (int slot = (int) hash & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Adds a key known not to be in the set, skipping the comparisons on the way to a free slot.
+         */
+        synchronized boolean addAbsent(long key, long hash) {
+            if (key == 0) {
+                hasZero = true;
+                return true;
+            }
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            insert(slot, key);
+            return true;
+        }
+
+        synchronized boolean remove(long key, long hash) {
+            if (key == 0) {
+                boolean had = hasZero;
+                hasZero = false;
+                return had;
+            }
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (keys[slot] != key) {
+                if (keys[slot] == 0) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            // shift the following keys back, so no probe sequence is cut short by the hole
+            int hole = slot;
+            for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = (int) mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    hole = next;
+                }
+            }
+            keys[hole] = 0;
+            size--;
+            return true;
+        }
+
+        synchronized long[] toArray() {
+            long[] array = new long[size()];
+            int i = 0;
+            for (long key : keys) {
+                if (key != 0) {
+                    array[i++] = key;
+                }
+            }
+            if (hasZero) {
+                array[i] = 0;
+            }
+            return array;
+        }
+
+        private void insert(int slot, long key) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+        }
+
+        private void rehash() {
+            long[] old = keys;
+            keys = new long[old.length * 2];
+            int mask = keys.length - 1;
+            for (long key : old) {
+                if (key != 0) {
+                    int slot = (int) mix(key) & mask;
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                }
+            }
+        }
+    }
+}
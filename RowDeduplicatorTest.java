@@ -0,0 +1,189 @@
+package org.component;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowDeduplicatorTest {
+
+    private static final String HEADER = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n";
+    private static final LocalDate JAN_2 = LocalDate.of(2024, 1, 2);
+    private static final LocalDate JAN_3 = LocalDate.of(2024, 1, 3);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testKeysEveryRowThatFits() {
+        Set<Long> keys = new HashSet<>();
+        for (int id : new int[]{0, -1, 1, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            for (LocalDate start : new LocalDate[]{LocalDate.EPOCH, JAN_2, LocalDate.of(600, 1, 1), LocalDate.of(3000, 12, 31)}) {
+                for (int days : new int[]{0, 1, 4095}) {
+                    long key = RowDeduplicator.key(id, start, start.plusDays(days));
+                    assertNotEquals(-1, key);
+                    assertTrue(keys.add(key), id + " " + start + " " + days);
+                }
+            }
+        }
+        assertEquals(-1, RowDeduplicator.key(1, JAN_3, JAN_2));
+        assertEquals(-1, RowDeduplicator.key(1, JAN_2, JAN_2.plusDays(4096)));
+        assertEquals(-1, RowDeduplicator.key(-1, LocalDate.of(1, 1, 1), LocalDate.of(1, 1, 1)));
+        assertEquals(-1, RowDeduplicator.key(-1, LocalDate.of(9999, 1, 1), LocalDate.of(9999, 1, 1)));
+    }
+
+    @Test
+    void testSessionDropsRepeatedRowsAndRollsBack() {
+        RowDeduplicator deduplicator = new RowDeduplicator(null, 100, null, 0);
+        RowDeduplicator.Session first = deduplicator.newSession();
+        assertFalse(first.isDuplicate(1, JAN_2, JAN_3));
+        assertTrue(first.isDuplicate(1, JAN_2, JAN_3));
+        assertFalse(first.isDuplicate(1, JAN_2, JAN_2));
+        assertFalse(first.isDuplicate(2, JAN_2, JAN_3));
+        // no key, never a duplicate
+        assertFalse(first.isDuplicate(3, JAN_3, JAN_2));
+        assertFalse(first.isDuplicate(3, JAN_3, JAN_2));
+        assertEquals(1, first.getDuplicates());
+        first.commit();
+
+        RowDeduplicator.Session second = deduplicator.newSession();
+        assertTrue(second.isDuplicate(2, JAN_2, JAN_3));
+        assertFalse(second.isDuplicate(4, JAN_2, JAN_3));
+        second.rollback();
+        assertEquals(3, deduplicator.size());
+
+        first.rollback();
+        assertEquals(0, deduplicator.size());
+        assertFalse(deduplicator.newSession().isDuplicate(1, JAN_2, JAN_3));
+    }
+
+    @Test
+    void testRowOfAnEmailInFlightIsNotLostWhenItRollsBack() {
+        RowDeduplicator deduplicator = new RowDeduplicator(null, 100, null, 0);
+        RowDeduplicator.Session first = deduplicator.newSession();
+        RowDeduplicator.Session second = deduplicator.newSession();
+        assertFalse(first.isDuplicate(1, JAN_2, JAN_3));
+        // the first email may still fail, so the second one carries the row too
+        assertFalse(second.isDuplicate(1, JAN_2, JAN_3));
+        assertTrue(second.isDuplicate(1, JAN_2, JAN_3));
+
+        first.rollback();
+        assertEquals(1, deduplicator.size());
+        second.commit();
+        assertTrue(deduplicator.newSession().isDuplicate(1, JAN_2, JAN_3));
+
+        // once every holder has rolled back without committing, the row passes again
+        RowDeduplicator.Session third = deduplicator.newSession();
+        RowDeduplicator.Session fourth = deduplicator.newSession();
+        assertFalse(third.isDuplicate(2, JAN_2, JAN_3));
+        assertFalse(fourth.isDuplicate(2, JAN_2, JAN_3));
+        third.rollback();
+        fourth.rollback();
+        assertEquals(1, deduplicator.size());
+
+        // a committed holder keeps the row when the other one rolls back
+        RowDeduplicator.Session fifth = deduplicator.newSession();
+        RowDeduplicator.Session sixth = deduplicator.newSession();
+        assertFalse(fifth.isDuplicate(3, JAN_2, JAN_3));
+        assertFalse(sixth.isDuplicate(3, JAN_2, JAN_3));
+        fifth.commit();
+        sixth.rollback();
+        assertTrue(deduplicator.newSession().isDuplicate(3, JAN_2, JAN_3));
+    }
+
+    @Test
+    void testMatchesAHashSetPastTheExpectedRows() {
+        RowDeduplicator deduplicator = new RowDeduplicator(null, 1000, null, 0);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // a small key space, so adds hit existing keys and removes hit long probe chains
+            long key = random.nextInt(50_000) * 0x1_0000_0001L;
+            if (random.nextInt(4) == 0) {
+                deduplicator.remove(key);
+                expected.remove(key);
+            } else {
+                assertEquals(expected.add(key), deduplicator.add(key), "key " + key + " at " + i);
+            }
+        }
+        assertEquals(expected.size(), deduplicator.size());
+    }
+
+    @Test
+    void testSavesAndLoadsTheRows() {
+        Path file = dir.resolve("rows.bin");
+        RowDeduplicator deduplicator = new RowDeduplicator(null, 100, file, 0);
+        deduplicator.start();
+        RowDeduplicator.Session session = deduplicator.newSession();
+        for (int id = 0; id < 1000; id++) {
+            session.isDuplicate(id, JAN_2, JAN_3);
+        }
+        deduplicator.stop();
+
+        RowDeduplicator loaded = new RowDeduplicator(null, 100, file, 0);
+        loaded.start();
+        assertEquals(1000, loaded.size());
+        assertTrue(loaded.newSession().isDuplicate(0, JAN_2, JAN_3));
+        assertFalse(loaded.newSession().isDuplicate(1000, JAN_2, JAN_3));
+    }
+
+    @Test
+    void testEndpointDropsRowsReceivedBefore() throws Exception {
+        String first = HEADER
+                + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n"
+                + "2,Mary Major,Jane Roe,2024-01-02,2024-01-03,4\n"
+                + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n";
+        String overlapping = HEADER
+                + "2,Mary Major,Jane Roe,2024-01-02,2024-01-03,4\n"
+                + "3,Richard Roe,Jane Roe,2024-01-02,2024-01-03,8\n";
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+        try {
+            for (String options : new String[]{"", "&csvParser=opencsv", "&streamingXlsx=false", "&streamingXlsx=true"}) {
+                String uri = "emailCsvProcessor:dedup?rowDedup=true" + options;
+                String fileName = options.contains("Xlsx") ? "leave.xlsx" : "leave.csv";
+                Exchange exchange = send(camelContext, uri, fileName, first);
+                assertEquals(2, exchange.getIn().getBody(LeaveSubmission.class).leaveDetails().size(), options);
+                assertEquals(1, exchange.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE_ROWS), options);
+
+                exchange = send(camelContext, uri, fileName, overlapping);
+                List<LeaveDetail> leaveDetails = exchange.getIn().getBody(LeaveSubmission.class).leaveDetails();
+                assertEquals(1, leaveDetails.size(), options);
+                assertEquals(3, leaveDetails.get(0).employeeId(), options);
+
+                exchange = send(camelContext, uri, fileName, overlapping);
+                assertNull(exchange.getIn().getHeader("ErrorReason"), options);
+                assertNull(exchange.getIn().getBody(), options);
+                assertEquals(2, exchange.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE_ROWS), options);
+            }
+
+            // the rows parsed before an email is rejected are forgotten
+            String uri = "emailCsvProcessor:rejected?rowDedup=true";
+            String invalid = HEADER
+                    + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n"
+                    + "2,Mary Major,Jane Roe,2024-01-02,tomorrow,4\n";
+            assertNotNull(send(camelContext, uri, "leave.csv", invalid).getIn().getHeader("ErrorReason"));
+            Exchange exchange = send(camelContext, uri, "leave.csv", first);
+            assertEquals(2, exchange.getIn().getBody(LeaveSubmission.class).leaveDetails().size());
+            assertEquals(1, exchange.getIn().getHeader(EmailCsvProcessorConstants.DUPLICATE_ROWS));
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    private static Exchange send(DefaultCamelContext camelContext, String uri, String fileName, String csv) throws Exception {
+        byte[] content = fileName.endsWith(".xlsx") ? AttachmentExchanges.xlsx(csv) : csv.getBytes(StandardCharsets.UTF_8);
+        return AttachmentExchanges.process(camelContext, uri, fileName, content);
+    }
+}
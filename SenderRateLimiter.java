@@ -0,0 +1,106 @@
+package org.component;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per sender, so one flooding mailbox cannot take the parsing capacity of everybody else.
+ * <p>
+ * Every key (a sender domain or a company) may send {@code burst} emails at once and {@code permitsPerSecond}
+ * emails per second after that. A bucket is a single {@link AtomicLong} holding the time at which it will be full
+ * again (the generic cell rate algorithm), updated with a CAS, so admitting an email takes no lock and two senders
+ * never contend. Buckets live in a {@link ConcurrentHashMap}; once it holds more than {@code maxKeys} buckets the
+ * full ones are dropped, which loses nothing as a full bucket is exactly what a new sender gets. If every bucket is
+ * still in use, arbitrary buckets are dropped anyway, handing those senders a fresh burst rather than growing.
+ */
+public class SenderRateLimiter {
+
+    private final long interval;
+    private final long tolerance;
+    private final int maxKeys;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public SenderRateLimiter(double permitsPerSecond, int burst, int maxKeys) {
+        this(permitsPerSecond, burst, maxKeys, System::nanoTime);
+    }
+
+    SenderRateLimiter(double permitsPerSecond, int burst, int maxKeys, LongSupplier clock) {
+        if (permitsPerSecond <= 0 || burst <= 0 || maxKeys <= 0) {
+            throw new IllegalArgumentException("rateLimit, rateLimitBurst and rateLimitMaxKeys must be positive");
+        }
+        this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.tolerance = (burst - 1) * interval;
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    /**
+     * Takes a permit for the key if one is free within {@code maxWaitNanos}. Returns the nanoseconds the caller has
+     * to wait before using the permit, 0 when it is free right away, or -1 without taking a permit when the wait
+     * would be longer.
+     */
+    public long reserve(String key, long maxWaitNanos) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        long wait;
+        while (true) {
+            long fullAt = bucket.get();
+            wait = fullAt - tolerance - now;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (bucket.compareAndSet(fullAt, Math.max(fullAt, now) + interval)) {
+                break;
+            }
+        }
+        // after taking the permit, so the sweep does not take this bucket for a full one
+        if (buckets.size() > maxKeys) {
+            evict(now);
+        }
+        return Math.max(0, wait);
+    }
+
+    /**
+     * Nanoseconds until the key gets a permit again, 0 when it has one now.
+     */
+    public long retryAfter(String key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            return 0;
+        }
+        return Math.max(0, bucket.get() - tolerance - clock.getAsLong());
+    }
+
+    /**
+     * Number of senders with a bucket.
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    private void evict(long now) {
+        // one thread sweeps, the others go on with a map that is briefly over its bound
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.get() <= now);
+            Iterator<AtomicLong> iterator = buckets.values().iterator();
+            while (buckets.size() > maxKeys && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
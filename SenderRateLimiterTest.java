@@ -0,0 +1,176 @@
+package org.component;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SenderRateLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final String CSV = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+            + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n";
+
+    private final AtomicLong now = new AtomicLong(1_000_000 * MILLIS);
+
+    @Test
+    void testAllowsBurstThenRate() {
+        SenderRateLimiter limiter = new SenderRateLimiter(2, 3, 100, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.reserve("example.com", 0), "burst " + i);
+        }
+        assertEquals(-1, limiter.reserve("example.com", 0));
+        assertEquals(500 * MILLIS, limiter.retryAfter("example.com"));
+        assertEquals(0, limiter.reserve("other.com", 0));
+
+        now.addAndGet(500 * MILLIS);
+        assertEquals(0, limiter.reserve("example.com", 0));
+        assertEquals(-1, limiter.reserve("example.com", 0));
+    }
+
+    @Test
+    void testReservesAheadWithinMaxWait() {
+        SenderRateLimiter limiter = new SenderRateLimiter(10, 1, 100, now::get);
+
+        assertEquals(0, limiter.reserve("example.com", 0));
+        assertEquals(100 * MILLIS, limiter.reserve("example.com", 150 * MILLIS));
+        // the reserved permit counts, the next one is 200 ms away
+        assertEquals(-1, limiter.reserve("example.com", 150 * MILLIS));
+        assertEquals(200 * MILLIS, limiter.reserve("example.com", 200 * MILLIS));
+    }
+
+    @Test
+    void testEvictsFullBucketsFirstAndStaysBounded() {
+        SenderRateLimiter limiter = new SenderRateLimiter(1, 1, 3, now::get);
+        limiter.reserve("a", 0);
+        limiter.reserve("b", 0);
+        limiter.reserve("c", 0);
+        now.addAndGet(500 * MILLIS);
+        limiter.reserve("c", 500 * MILLIS);
+        now.addAndGet(600 * MILLIS);
+
+        // a and b are full again, c still has a permit reserved
+        limiter.reserve("d", 0);
+        assertEquals(2, limiter.size());
+        assertTrue(limiter.retryAfter("c") > 0);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.reserve("sender" + i, 0);
+            assertTrue(limiter.size() <= 3);
+        }
+    }
+
+    @Test
+    void testConcurrentSendersNeverExceedTheBurst() throws Exception {
+        SenderRateLimiter limiter = new SenderRateLimiter(1, 50, 100, now::get);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    go.await();
+                    int admitted = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (limiter.reserve("example.com", 0) == 0) {
+                            admitted++;
+                        }
+                    }
+                    return admitted;
+                }));
+            }
+            go.countDown();
+            int admitted = 0;
+            for (Future<Integer> future : futures) {
+                admitted += future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(50, admitted);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testEndpointRejectsSendersOverTheLimit() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.getRegistry().bind("registry", registry);
+        camelContext.start();
+        try {
+            String uri = "emailCsvProcessor:test?rateLimit=0.01&rateLimitBurst=2&metricsEnabled=true";
+            assertNull(send(camelContext, uri, "john.doe@example.com", "Company X").getIn().getHeader("ErrorReason"));
+            assertNull(send(camelContext, uri, "mary.major@EXAMPLE.com", "Company Y").getIn().getHeader("ErrorReason"));
+
+            Exchange limited = send(camelContext, uri, "jane.roe@example.com", "Company Z");
+            assertTrue(limited.getIn().getHeader("ErrorReason", String.class).startsWith("Too many emails from example.com"));
+            assertTrue(limited.getIn().getHeader(EmailCsvProcessorConstants.RETRY_AFTER, Long.class) > 0);
+            assertNull(limited.getIn().getBody());
+            assertEquals(1, registry.get("emailcsv.errors").tag("reason", EmailCsvProcessorMetrics.REASON_RATE_LIMITED).counter().count());
+
+            assertNull(send(camelContext, uri, "john.doe@other.example", "Company X").getIn().getHeader("ErrorReason"));
+
+            String byCompany = "emailCsvProcessor:company?rateLimit=0.01&rateLimitBurst=1&rateLimitBy=company";
+            assertNull(send(camelContext, byCompany, "john.doe@example.com", "Company X").getIn().getHeader("ErrorReason"));
+            assertNull(send(camelContext, byCompany, "john.doe@example.com", "Company Y").getIn().getHeader("ErrorReason"));
+            assertNotNull(send(camelContext, byCompany, "mary.major@other.example", "Company X").getIn().getHeader("ErrorReason"));
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    @Test
+    void testEndpointHoldsBackEmailsWithinMaxDelay() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.getRegistry().bind("registry", registry);
+        camelContext.start();
+        try {
+            String uri = "emailCsvProcessor:test?rateLimit=20&rateLimitBurst=1&rateLimitMaxDelay=1000&metricsEnabled=true";
+            // warms up another domain, a cold first send would outlast the 50 ms the permit takes to come back
+            assertNull(send(camelContext, uri, "john.doe@example.org", "Company X").getIn().getHeader("ErrorReason"));
+            assertNull(send(camelContext, uri, "john.doe@example.com", "Company X").getIn().getHeader("ErrorReason"));
+            long start = System.nanoTime();
+            assertNull(send(camelContext, uri, "john.doe@example.com", "Company X").getIn().getHeader("ErrorReason"));
+
+            assertTrue(System.nanoTime() - start >= 30 * MILLIS);
+            assertEquals(1, registry.get("emailcsv.stage").tag("stage", "throttle").timer().count());
+        } finally {
+            camelContext.stop();
+        }
+    }
+
+    private static Exchange send(DefaultCamelContext camelContext, String uri, String from, String subject) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", from);
+        in.setHeader("Subject", subject);
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(CSV.getBytes(StandardCharsets.UTF_8), "text/csv");
+        dataSource.setName("leave.csv");
+        in.addAttachment("leave.csv", new DataHandler(dataSource));
+        exchange.setIn(in);
+        camelContext.createProducerTemplate().send(uri, exchange);
+        return exchange;
+    }
+}
@@ -0,0 +1,86 @@
+package org.component;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * An attachment read once from its source and kept either on the heap or, above the spool threshold, in a temp
+ * file.
+ * <p>
+ * Only the first {@code threshold} bytes are ever buffered on the heap: once the attachment turns out to be
+ * larger they are written to the file followed by the rest of the stream. Parsers then work on the file, through
+ * a memory mapped channel for CSV and directly from the zip for XLSX, so the heap does not grow with the
+ * attachment. Closing deletes the file.
+ */
+final class SpooledAttachment implements Closeable {
+
+    private final byte[] bytes;
+    private final Path file;
+
+    private SpooledAttachment(byte[] bytes, Path file) {
+        this.bytes = bytes;
+        this.file = file;
+    }
+
+    /**
+     * Reads the whole stream, spooling it to a temp file in {@code directory}, or the default temp directory when
+     * {@code null}, if it holds more than {@code threshold} bytes.
+     */
+    static SpooledAttachment spool(InputStream in, long threshold, String directory, String suffix) throws IOException {
+        byte[] head = in.readNBytes((int) Math.min(threshold, Integer.MAX_VALUE - 8));
+        int next = head.length < threshold ? -1 : in.read();
+        if (next < 0) {
+            return new SpooledAttachment(head, null);
+        }
+
+        Path file = directory != null
+                ? Files.createTempFile(Paths.get(directory), "email-csv-processor-", suffix)
+                : Files.createTempFile("email-csv-processor-", suffix);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(head);
+            out.write(next);
+            in.transferTo(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new SpooledAttachment(null, file);
+    }
+
+    boolean isSpooled() {
+        return file != null;
+    }
+
+    /**
+     * The temp file, only when {@link #isSpooled()}.
+     */
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * The attachment as a stream, from the heap or the temp file.
+     */
+    InputStream openStream() throws IOException {
+        return file != null ? Files.newInputStream(file) : new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public void close() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // still mapped on platforms that refuse to delete such files, try again when the JVM exits
+            file.toFile().deleteOnExit();
+        }
+    }
+}
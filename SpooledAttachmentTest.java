@@ -0,0 +1,73 @@
+package org.component;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpooledAttachmentTest {
+
+    private static final String CSV = "employee_id,employee_name,manager,start_date,end_date,no_of_hours\n"
+            + "1,John Doe,Jane Roe,2024-01-02,2024-01-03,8\n"
+            + "2,Mary Major,Jane Roe,2024-01-04,2024-01-05,4\n";
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    void setUp() {
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+    }
+
+    @Test
+    void testSpoolsLargeAttachmentsToTempFiles(@TempDir Path dir) throws Exception {
+        String spool = "spoolThreshold=16&spoolDirectory=" + dir;
+
+        for (String uri : new String[]{"emailCsvProcessor:fast?" + spool, "emailCsvProcessor:opencsv?csvParser=opencsv&" + spool}) {
+            assertEquals(2, process(uri).getIn().getBody(LeaveSubmission.class).leaveDetails().size(), uri);
+        }
+        byte[] xlsx = AttachmentExchanges.xlsx(CSV);
+        for (String uri : new String[]{"emailCsvProcessor:sax?" + spool, "emailCsvProcessor:dom?streamingXlsx=false&" + spool}) {
+            LeaveSubmission submission = AttachmentExchanges.process(camelContext, uri, "leave.xlsx", xlsx).getIn().getBody(LeaveSubmission.class);
+            assertEquals("Mary Major", submission.leaveDetails().get(1).displayName(), uri);
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testDeletesSpooledAttachmentWhenParsingFails(@TempDir Path dir) throws Exception {
+        Exchange exchange = process("emailCsvProcessor:test?maxRows=1&spoolThreshold=16&spoolDirectory=" + dir);
+
+        assertEquals("Please attach a valid CSV file: Attachment exceeds the maximum of 1 rows", exchange.getIn().getHeader("ErrorReason"));
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testKeepsAttachmentsBelowThresholdInMemory(@TempDir Path dir) throws Exception {
+        Exchange exchange = process("emailCsvProcessor:test?spoolThreshold=" + CSV.length() + "&spoolDirectory=" + dir.resolve("missing"));
+
+        assertEquals(2, exchange.getIn().getBody(LeaveSubmission.class).leaveDetails().size());
+    }
+
+    private Exchange process(String uri) throws Exception {
+        return AttachmentExchanges.process(camelContext, uri, "leave.csv", CSV.getBytes(StandardCharsets.UTF_8));
+    }
+}
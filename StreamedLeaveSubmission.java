@@ -0,0 +1,172 @@
+package org.component;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.camel.Exchange;
+import org.apache.camel.StreamCache;
+import org.apache.camel.converter.stream.FileInputStreamCache;
+import org.apache.camel.converter.stream.InputStreamCache;
+import org.apache.camel.support.SynchronizationAdapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+/**
+ * The submission of one email written as JSON while its rows are parsed, for {@code streamBody}.
+ * <p>
+ * The requester fields are written when it is opened, every row as the sink receives it and the constant fields
+ * of {@link LeaveSubmission.Serializer} on {@link #complete(Exchange)}, so the rows are never held. The JSON stays
+ * on the heap up to the threshold and then moves to a temp file, which is deleted once the exchange is done.
+ * Closing it before it is complete discards what was written.
+ */
+final class StreamedLeaveSubmission implements Consumer<LeaveDetail>, Closeable {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final SpoolingOutputStream out;
+    private final JsonGenerator gen;
+    private int rowCount;
+    private boolean completed;
+
+    /**
+     * Spools to a temp file in {@code directory}, or the default temp directory when {@code null}, once the JSON
+     * is larger than {@code threshold} bytes.
+     */
+    StreamedLeaveSubmission(String requesterName, String requesterEmail, String requesterCompany, String createOn,
+                            long threshold, String directory) throws IOException {
+        out = new SpoolingOutputStream(threshold, directory);
+        gen = JSON.createGenerator(out, JsonEncoding.UTF8);
+        try {
+            LeaveSubmission.Serializer.writeHead(gen, requesterName, requesterEmail, requesterCompany, createOn);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void accept(LeaveDetail leaveDetail) {
+        try {
+            LeaveDetail.Serializer.write(leaveDetail, gen);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the submission: " + e.getMessage(), e);
+        }
+        rowCount++;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Writes the end of the submission and returns it as a body for {@code exchange}, which deletes the temp file
+     * once it is done.
+     */
+    StreamCache complete(Exchange exchange) throws IOException {
+        LeaveSubmission.Serializer.writeTail(gen);
+        gen.close();
+        completed = true;
+
+        Path file = out.file;
+        if (file == null) {
+            return new InputStreamCache(out.buffer.toByteArray());
+        }
+        exchange.getExchangeExtension().addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onDone(Exchange exchange) {
+                delete(file);
+            }
+        });
+        return new FileInputStreamCache(file.toFile());
+    }
+
+    @Override
+    public void close() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        try {
+            gen.close();
+        } catch (IOException | RuntimeException e) {
+            // discarded anyway
+        }
+        if (out.file != null) {
+            delete(out.file);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Buffers on the heap until more than {@code threshold} bytes were written, then moves the buffer to a temp
+     * file and writes everything after it there.
+     */
+    private static final class SpoolingOutputStream extends OutputStream {
+
+        private final long threshold;
+        private final String directory;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream fileOut;
+        private Path file;
+
+        SpoolingOutputStream(long threshold, String directory) {
+            this.threshold = threshold;
+            this.directory = directory;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target(1).write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target(len).write(b, off, len);
+        }
+
+        private OutputStream target(int len) throws IOException {
+            if (fileOut != null) {
+                return fileOut;
+            }
+            if (buffer.size() + (long) len <= threshold) {
+                return buffer;
+            }
+            file = directory != null
+                    ? Files.createTempFile(Paths.get(directory), "email-csv-processor-", ".json")
+                    : Files.createTempFile("email-csv-processor-", ".json");
+            fileOut = Files.newOutputStream(file);
+            buffer.writeTo(fileOut);
+            buffer = null;
+            return fileOut;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (fileOut != null) {
+                fileOut.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOut != null) {
+                fileOut.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package org.component;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the first sheet of an XLSX workbook with POI's event model instead of building an {@code XSSFWorkbook}.
+ * <p>
+ * The workbook is copied to a temp file so POI can open it as a random access zip, the shared strings are
+ * read through {@link ReadOnlySharedStringsTable} and the sheet XML is parsed with SAX, so only the current
+ * row is ever held in memory. The header and the data rows are validated the same way as the DOM based parser.
+ * <p>
+ * Cell values are decoded from the raw {@code <v>} text by column with {@link LeaveCells}, numbers and date
+ * serials without going through a display format, so neither the styles nor a {@code DataFormatter} are needed.
+ * <p>
+ * When created with a sheet pattern every sheet whose name matches is read instead, each validated on its own.
+ * The shared strings are loaded once and only read by the sheets, which are parsed in parallel into lists of
+ * their own and handed to the row handler in workbook order, every row carrying its sheet name. A failing sheet
+ * stops the sheets after it, and its error names the sheet.
+ */
+public class StreamingXlsxParser {
+
+    private final Pattern sheets;
+    private final ExecutorService executor;
+
+    /**
+     * Reads the first sheet only.
+     */
+    public StreamingXlsxParser() {
+        this(null, null);
+    }
+
+    /**
+     * Reads every sheet whose whole name matches {@code sheets} on {@code executor}, which must not be the
+     * executor the caller runs on: the caller blocks until the sheets have been parsed.
+     */
+    public StreamingXlsxParser(Pattern sheets, ExecutorService executor) {
+        this.sheets = sheets;
+        this.executor = executor;
+    }
+
+    /**
+     * Parses the workbook and hands every data row to {@code rowHandler}.
+     */
+    public void parse(InputStream inputStream, Consumer<LeaveDetail> rowHandler) throws Exception {
+        Path tempFile = Files.createTempFile("email-csv-processor-", ".xlsx");
+        try {
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            parse(tempFile, rowHandler);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Parses a workbook that is already on disk, such as a spooled attachment, without copying it.
+     */
+    public void parse(Path file, Consumer<LeaveDetail> rowHandler) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+
+            XSSFReader.SheetIterator sheetIterator = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (sheets == null) {
+                if (!sheetIterator.hasNext()) {
+                    throw new EmailCsvProcessorProducer.InvalidAttachmentException(EmailCsvProcessorMetrics.REASON_HEADER_MISMATCH,
+                            "Invalid XLSX header format!");
+                }
+                try (InputStream sheet = sheetIterator.next()) {
+                    parseSheet(sheet, sharedStrings, null, rowHandler);
+                }
+                return;
+            }
+
+            List<String> names = new ArrayList<>();
+            List<InputStream> streams = new ArrayList<>();
+            try {
+                while (sheetIterator.hasNext()) {
+                    InputStream sheet = sheetIterator.next();
+                    if (sheets.matcher(sheetIterator.getSheetName()).matches()) {
+                        names.add(sheetIterator.getSheetName());
+                        streams.add(sheet);
+                    } else {
+                        sheet.close();
+                    }
+                }
+                if (names.isEmpty()) {
+                    throw new RuntimeException("The workbook has no sheet matching " + sheets.pattern());
+                }
+                if (names.size() == 1) {
+                    // nothing to run in parallel, the rows go straight to the handler
+                    parseSheet(streams.get(0), sharedStrings, names.get(0), rowHandler);
+                } else {
+                    parseInParallel(names, streams, sharedStrings, rowHandler);
+                }
+            } finally {
+                for (InputStream stream : streams) {
+                    stream.close();
+                }
+            }
+        } catch (OpenXML4JException | SAXException e) {
+            throw new RuntimeException("Error processing XLSX file!", e);
+        }
+    }
+
+    /**
+     * Parses every sheet into a list of its own on the executor and hands the lists to {@code rowHandler} in sheet
+     * order. Sheets after a failing one are not read, and every task has ended before this returns, so the
+     * package is never closed under a sheet still being parsed.
+     */
+    private void parseInParallel(List<String> names, List<InputStream> streams, ReadOnlySharedStringsTable sharedStrings,
+                                 Consumer<LeaveDetail> rowHandler) throws Exception {
+        int count = names.size();
+        List<Future<Sheet>> tasks = new ArrayList<>(count);
+        AtomicInteger firstFailure = new AtomicInteger(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks.add(executor.submit(() -> {
+                Sheet sheet = new Sheet();
+                if (index > firstFailure.get()) {
+                    // never read, an earlier sheet already failed
+                    return sheet;
+                }
+                try {
+                    parseSheet(streams.get(index), sharedStrings, names.get(index), RowDeduplicator.sameSession(rowHandler, sheet.rows::add));
+                } catch (Exception e) {
+                    firstFailure.accumulateAndGet(index, Math::min);
+                    sheet.failure = e;
+                }
+                return sheet;
+            }));
+        }
+
+        try {
+            for (int i = 0; i < count; i++) {
+                Sheet sheet = tasks.get(i).get();
+                if (sheet.failure != null) {
+                    throw sheet.failure;
+                }
+                sheet.rows.forEach(rowHandler);
+            }
+        } finally {
+            firstFailure.set(-1);
+            awaitAll(tasks);
+        }
+    }
+
+    /**
+     * Waits for every task to end, even when interrupted, restoring the interrupt afterwards.
+     */
+    private static void awaitAll(List<Future<Sheet>> tasks) {
+        boolean interrupted = false;
+        for (Future<Sheet> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void parseSheet(InputStream sheet, ReadOnlySharedStringsTable sharedStrings, String sheetName,
+                                   Consumer<LeaveDetail> rowHandler) throws Exception {
+        SheetHandler handler = new SheetHandler(sharedStrings, sheetName, rowHandler);
+        XMLReader xmlReader = XMLHelper.newXMLReader();
+        xmlReader.setContentHandler(handler);
+        xmlReader.parse(new InputSource(sheet));
+        if (!handler.headerSeen) {
+            throw new EmailCsvProcessorProducer.InvalidAttachmentException(EmailCsvProcessorMetrics.REASON_HEADER_MISMATCH,
+                    inSheet(sheetName, "Invalid XLSX header format!"));
+        }
+    }
+
+    /**
+     * {@code message} naming the sheet it is about when several sheets are read, {@code sheetName} being
+     * {@code null} otherwise.
+     */
+    static String inSheet(String sheetName, String message) {
+        return sheetName == null ? message : "Sheet " + sheetName + ": " + message;
+    }
+
+    /**
+     * Converts the column letters of a cell reference such as {@code "AB12"} into a zero based index
+     * without going through {@code CellReference}.
+     */
+    static int columnIndex(String cellReference) {
+        int column = 0;
+        for (int i = 0; i < cellReference.length(); i++) {
+            char c = cellReference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    /**
+     * Decodes the cells of the six known columns as their elements end, so a row is never kept as text.
+     */
+    private static class SheetHandler extends DefaultHandler {
+
+        private static final int COLUMNS = EmailCsvProcessorProducer.EXPECTED_HEADERS.length;
+
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final String sheetName;
+        private final Consumer<LeaveDetail> rowHandler;
+        private final StringBuilder value = new StringBuilder();
+        private boolean headerSeen;
+
+        private int rowNumber;
+        private int column;
+        private String cellType;
+        private boolean inValue;
+
+        private final String[] headers = new String[COLUMNS];
+        private final boolean[] present = new boolean[COLUMNS];
+        private int employeeId;
+        private String employeeName;
+        private String manager;
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private int noOfHours;
+
+        SheetHandler(ReadOnlySharedStringsTable sharedStrings, String sheetName, Consumer<LeaveDetail> rowHandler) {
+            this.sharedStrings = sharedStrings;
+            this.sheetName = sheetName;
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    String r = attributes.getValue("r");
+                    rowNumber = r != null ? Integer.parseInt(r) : rowNumber + 1;
+                    column = -1;
+                    Arrays.fill(present, false);
+                    Arrays.fill(headers, null);
+                }
+                case "c" -> {
+                    String r = attributes.getValue("r");
+                    column = r != null ? columnIndex(r) : column + 1;
+                    cellType = attributes.getValue("t");
+                    value.setLength(0);
+                }
+                // <v> holds the value, <t> the text of an inline string
+                case "v", "t" -> inValue = true;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) {
+                value.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v", "t" -> inValue = false;
+                case "c" -> {
+                    if (column >= 0 && column < COLUMNS && value.length() > 0) {
+                        cell();
+                    }
+                }
+                case "row" -> endRow();
+                default -> {
+                }
+            }
+        }
+
+        private void cell() {
+            boolean numeric = cellType == null || "n".equals(cellType);
+            String text = numeric ? null : text();
+            if (!headerSeen) {
+                headers[column] = numeric ? value.toString() : text;
+                return;
+            }
+            if (text != null && text.isEmpty()) {
+                // an empty string is as good as a missing cell
+                return;
+            }
+            try {
+                switch (column) {
+                    case LeaveCells.EMPLOYEE_ID -> employeeId = numeric ? number() : parseInt(text);
+                    case LeaveCells.EMPLOYEE_NAME -> employeeName = numeric ? numberText() : text;
+                    case LeaveCells.MANAGER -> manager = numeric ? numberText() : text;
+                    case LeaveCells.START_DATE -> startDate = numeric ? date() : parseDate(text);
+                    case LeaveCells.END_DATE -> endDate = numeric ? date() : parseDate(text);
+                    case LeaveCells.NO_OF_HOURS -> noOfHours = numeric ? number() : parseInt(text);
+                    default -> {
+                    }
+                }
+            } catch (NumberFormatException | DateTimeException e) {
+                throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_INVALID_FILE,
+                        inSheet(sheetName, e.getMessage()), rowNumber, e);
+            }
+            present[column] = true;
+        }
+
+        private void endRow() {
+            if (!headerSeen) {
+                headerSeen = true;
+                if (!Arrays.equals(headers, EmailCsvProcessorProducer.EXPECTED_HEADERS)) {
+                    throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_HEADER_MISMATCH,
+                            inSheet(sheetName, "Invalid XLSX header format!"), rowNumber, null);
+                }
+                return;
+            }
+
+            for (boolean cellPresent : present) {
+                if (!cellPresent) {
+                    throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_MISSING_VALUES,
+                            inSheet(sheetName, "XLSX file format is correct but values are missing"), rowNumber, null);
+                }
+            }
+            if (!RowDeduplicator.isDuplicate(rowHandler, employeeId, startDate, endDate)) {
+                rowHandler.accept(LeaveDetail.of(employeeId, employeeName, manager, startDate, endDate, noOfHours, sheetName));
+            }
+        }
+
+        /**
+         * The cell as text: a shared string, an inline or formula string, or a boolean.
+         */
+        private String text() {
+            if ("s".equals(cellType)) {
+                return sharedStrings.getItemAt(LeaveCells.parseInt(value, 0, value.length())).getString();
+            }
+            if ("b".equals(cellType)) {
+                return value.length() == 1 && value.charAt(0) == '1' ? "TRUE" : "FALSE";
+            }
+            return value.toString();
+        }
+
+        private int number() {
+            if (isWholeNumber()) {
+                return LeaveCells.parseInt(value, 0, value.length());
+            }
+            return LeaveCells.toInt(Double.parseDouble(value.toString()));
+        }
+
+        private String numberText() {
+            return NumberToTextConverter.toText(Double.parseDouble(value.toString()));
+        }
+
+        private LocalDate date() {
+            return LeaveCells.excelDate(isWholeNumber() ? LeaveCells.parseInt(value, 0, value.length()) : Double.parseDouble(value.toString()));
+        }
+
+        private boolean isWholeNumber() {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if ((c < '0' || c > '9') && !(i == 0 && c == '-')) {
+                    return false;
+                }
+            }
+            return value.length() <= 10;
+        }
+
+        private static int parseInt(String text) {
+            return LeaveCells.parseInt(text, 0, text.length());
+        }
+
+        private static LocalDate parseDate(String text) {
+            return LeaveCells.parseDate(text, 0, text.length());
+        }
+    }
+
+    private static final class Sheet {
+
+        private final List<LeaveDetail> rows = new ArrayList<>();
+        private Exception failure;
+    }
+}
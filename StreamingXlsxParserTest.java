@@ -0,0 +1,228 @@
+package org.component;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.apache.camel.Exchange;
+import org.apache.camel.attachment.AttachmentMessage;
+import org.apache.camel.attachment.DefaultAttachmentMessage;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingXlsxParserTest {
+
+    private static final String[] HEADER = EmailCsvProcessorProducer.EXPECTED_HEADERS;
+    private static final LocalDate START = LocalDate.of(2024, 1, 2);
+    private static final LocalDate END = LocalDate.of(2024, 1, 3);
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    void setUp() {
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("emailCsvProcessor", new EmailCsvProcessorComponent());
+        camelContext.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+    }
+
+    @Test
+    void testReadsTheSameRowsAsTheDomParser() throws Exception {
+        byte[] xlsx = workbook(HEADER,
+                new String[]{"1", "John Doe", "Jane Roe", "2024-01-02", "2024-01-03", "8"},
+                new String[]{"2", "Mary Major", "Jane Roe", "2024-01-04", "2024-01-05", "4"},
+                new String[]{"3", "Richard Roe", "Jane Roe", "2024-02-01", "2024-02-29", "160"});
+
+        List<LeaveDetail> streaming = assertSameResult(xlsx).getIn().getBody(LeaveSubmission.class).leaveDetails();
+
+        assertEquals(3, streaming.size());
+        assertEquals("Richard Roe", streaming.get(2).displayName());
+    }
+
+    @Test
+    void testReportsTheSameErrorsAsTheDomParser() throws Exception {
+        String[] valid = {"1", "John Doe", "Jane Roe", "2024-01-02", "2024-01-03", "8"};
+
+        Exchange wrongHeader = assertSameResult(workbook(new String[]{"id", "name", "manager", "start", "end", "hours"}, valid));
+        assertEquals("Please attach a valid XLSX file: Invalid XLSX header format!", wrongHeader.getIn().getHeader("ErrorReason"));
+        assertEquals(1L, wrongHeader.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW));
+
+        Exchange shortHeader = assertSameResult(workbook(Arrays.copyOf(HEADER, 4), valid));
+        assertEquals("Please attach a valid XLSX file: Invalid XLSX header format!", shortHeader.getIn().getHeader("ErrorReason"));
+
+        Exchange emptySheet = assertSameResult(workbook());
+        assertEquals("Please attach a valid XLSX file: Invalid XLSX header format!", emptySheet.getIn().getHeader("ErrorReason"));
+
+        Exchange missingCell = assertSameResult(workbook(HEADER, valid, new String[]{"2", "Mary Major", null, "2024-01-04", "2024-01-05", "4"}));
+        assertEquals("Please attach a valid XLSX file: XLSX file format is correct but values are missing",
+                missingCell.getIn().getHeader("ErrorReason"));
+        assertEquals(3L, missingCell.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW));
+
+        Exchange emptyCell = assertSameResult(workbook(HEADER, new String[]{"1", "", "Jane Roe", "2024-01-02", "2024-01-03", "8"}));
+        assertEquals("Please attach a valid XLSX file: XLSX file format is correct but values are missing",
+                emptyCell.getIn().getHeader("ErrorReason"));
+        assertEquals(2L, emptyCell.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW));
+
+        Exchange headerOnly = assertSameResult(workbook(HEADER));
+        assertEquals("File format is correct but values are missing", headerOnly.getIn().getHeader("ErrorReason"));
+    }
+
+    @Test
+    void testReadsTheSelectedSheetsInOrder() throws Exception {
+        byte[] xlsx = multiSheetWorkbook("Team A", "Notes", "Team B", "Team C");
+        List<LeaveDetail> expected = new ArrayList<>();
+        for (String sheet : new String[]{"Team A", "Team B", "Team C"}) {
+            for (int i = 0; i < 50; i++) {
+                expected.add(LeaveDetail.of(employeeId(sheet, i), "John Doe", "Jane Roe", START, END, 8, sheet));
+            }
+        }
+
+        for (String options : new String[]{"", "&streamingXlsx=false"}) {
+            assertEquals(expected, leaveDetails("emailCsvProcessor:teams?xlsxSheets=Team.*" + options, xlsx), options);
+            assertEquals(expected.subList(50, 100),
+                    leaveDetails("emailCsvProcessor:teamB?xlsxSheets=Team B" + options, xlsx), options);
+            // the first sheet only and without its name when no sheets are selected
+            List<LeaveDetail> first = leaveDetails("emailCsvProcessor:first?streamingXlsx=" + options.isEmpty(), xlsx);
+            assertEquals(50, first.size(), options);
+            assertNull(first.get(0).sheet(), options);
+
+            Exchange exchange = process("emailCsvProcessor:all?xlsxSheets=*" + options, xlsx);
+            assertEquals("Please attach a valid XLSX file: Sheet Notes: Invalid XLSX header format!", exchange.getIn().getHeader("ErrorReason"), options);
+            assertEquals(1L, exchange.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW), options);
+
+            exchange = process("emailCsvProcessor:none?xlsxSheets=Team D" + options, xlsx);
+            assertEquals("Please attach a valid XLSX file: The workbook has no sheet matching Team D", exchange.getIn().getHeader("ErrorReason"), options);
+        }
+    }
+
+    @Test
+    void testReportsTheFirstInvalidSheet() throws Exception {
+        String[] sheets = new String[8];
+        for (int i = 0; i < sheets.length; i++) {
+            sheets[i] = "Month " + (i + 1);
+        }
+        byte[] xlsx;
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(multiSheetWorkbook(sheets)));
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            workbook.getSheet("Month 3").getRow(7).getCell(3).setCellValue("02/01/2024");
+            workbook.getSheet("Month 6").getRow(2).getCell(4).setCellValue("tomorrow");
+            workbook.write(out);
+            xlsx = out.toByteArray();
+        }
+
+        // one sheet thread reads the sheets one after the other
+        for (String options : new String[]{"", "&xlsxSheetParallelism=1", "&streamingXlsx=false"}) {
+            Exchange exchange = process("emailCsvProcessor:months?xlsxSheets=Month.*" + options, xlsx);
+            assertEquals("Please attach a valid XLSX file: Sheet Month 3: Invalid date: \"02/01/2024\", expected yyyy-MM-dd",
+                    exchange.getIn().getHeader("ErrorReason"), options);
+            assertEquals(8L, exchange.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW), options);
+        }
+    }
+
+    /**
+     * Processes the workbook with both parsers and checks they agree on the rows, the error and its row. Returns
+     * the exchange of the streaming parser.
+     */
+    private Exchange assertSameResult(byte[] xlsx) {
+        Exchange streaming = process("emailCsvProcessor:sax", xlsx);
+        Exchange dom = process("emailCsvProcessor:dom?streamingXlsx=false", xlsx);
+
+        assertEquals(dom.getIn().getHeader("ErrorReason"), streaming.getIn().getHeader("ErrorReason"));
+        assertEquals(dom.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW), streaming.getIn().getHeader(EmailCsvProcessorConstants.ERROR_ROW));
+        LeaveSubmission domBody = dom.getIn().getBody(LeaveSubmission.class);
+        LeaveSubmission streamingBody = streaming.getIn().getBody(LeaveSubmission.class);
+        assertEquals(domBody != null ? domBody.leaveDetails() : null, streamingBody != null ? streamingBody.leaveDetails() : null);
+        return streaming;
+    }
+
+    /**
+     * A workbook with one sheet of text cells, a {@code null} value leaves its cell out.
+     */
+    private static byte[] workbook(String[]... rows) throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet();
+            for (int r = 0; r < rows.length; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < rows[r].length; c++) {
+                    if (rows[r][c] != null) {
+                        row.createCell(c).setCellValue(rows[r][c]);
+                    }
+                }
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Sheets of 50 rows with text cells, the shared strings used by every sheet, except for {@code Notes} that
+     * has no header.
+     */
+    private static byte[] multiSheetWorkbook(String... names) throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (String name : names) {
+                Sheet sheet = workbook.createSheet(name);
+                if (name.equals("Notes")) {
+                    sheet.createRow(0).createCell(0).setCellValue("Leave by team, one sheet each");
+                    continue;
+                }
+                Row header = sheet.createRow(0);
+                for (int i = 0; i < HEADER.length; i++) {
+                    header.createCell(i).setCellValue(HEADER[i]);
+                }
+                for (int i = 0; i < 50; i++) {
+                    Row row = sheet.createRow(i + 1);
+                    String[] values = {String.valueOf(employeeId(name, i)), "John Doe", "Jane Roe", START.toString(), END.toString(), "8"};
+                    for (int c = 0; c < values.length; c++) {
+                        row.createCell(c).setCellValue(values[c]);
+                    }
+                }
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static int employeeId(String sheet, int row) {
+        return Math.abs(sheet.hashCode() % 1000) * 1000 + row;
+    }
+
+    private List<LeaveDetail> leaveDetails(String uri, byte[] content) {
+        Exchange exchange = process(uri, content);
+        assertNull(exchange.getIn().getHeader("ErrorReason"), uri);
+        return exchange.getIn().getBody(LeaveSubmission.class).leaveDetails();
+    }
+
+    private Exchange process(String uri, byte[] content) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        AttachmentMessage in = new DefaultAttachmentMessage(exchange.getIn());
+        in.setHeader("From", "john.doe@example.com");
+        in.setHeader("Subject", "Company X");
+        in.setHeader("CamelMailMessageReceivedDate", new Date());
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(content, "application/octet-stream");
+        dataSource.setName("leave.xlsx");
+        in.addAttachment("leave.xlsx", new DataHandler(dataSource));
+        exchange.setIn(in);
+
+        camelContext.createProducerTemplate().send(uri, exchange);
+        return exchange;
+    }
+}
@@ -1,126 +1,414 @@
-//package org.component;
-//
-//import org.apache.camel.*;
-//import org.apache.camel.builder.RouteBuilder;
-//import org.apache.camel.impl.engine.AbstractCamelContext;
-//import org.apache.camel.impl.engine.DefaultExchangeFactoryManager;
-//import org.apache.camel.spi.ExchangeFactory;
-//import org.apache.camel.spi.ExchangeFactoryManager;
-//import org.apache.camel.spi.UriEndpoint;
-//import org.apache.camel.spi.UriParam;
-//import org.apache.camel.support.DefaultComponent;
-//import org.apache.camel.support.DefaultConsumer;
-//import org.apache.camel.support.DefaultEndpoint;
-//import org.apache.camel.support.DefaultProducer;
-//import org.apache.http.HttpEntity;
-//import org.apache.http.HttpResponse;
-//import org.apache.http.client.HttpClient;
-//import org.apache.http.client.methods.HttpPost;
-//import org.apache.http.entity.StringEntity;
-//import org.apache.http.impl.client.HttpClientBuilder;
-//
-//import java.io.IOException;
-//import java.net.URI;
-//import java.util.HashMap;
-//import java.util.Map;
-//
-//@UriEndpoint(scheme = "token-generator", title = "Token Generator", syntax = "token-generator:tokenEndpoint", label = "token-generator")
-//public class TokenGeneratorComponent extends DefaultComponent {
-//
-//    @UriParam
-//    private String tokenEndpoint;
-//
-//    @Override
-//    protected Endpoint createEndpoint(String uri, String remaining, Map<String, Object> parameters) throws Exception {
-//        return new TokenGeneratorEndpoint(uri, this, tokenEndpoint);
-//    }
-//
-//    public static class TokenGeneratorEndpoint extends DefaultEndpoint {
-//
-//        private final String tokenEndpoint;
-//
-//        public TokenGeneratorEndpoint(String uri, Component component, String tokenEndpoint) {
-//            super(uri, component);
-//            this.tokenEndpoint = tokenEndpoint;
-//        }
-//
-//        @Override
-//        public Producer createProducer() throws Exception {
-//            return new TokenGeneratorProducer(this);
-//        }
-//
-//        @Override
-//        public Consumer createConsumer(Processor processor) throws Exception {
-//            return new TokenGeneratorConsumer(this, processor);
-//        }
-//
-//        @Override
-//        public boolean isSingleton() {
-//            return true;
-//        }
-//    }
-//
-//    public static class TokenGeneratorProducer extends DefaultProducer {
-//
-//        public TokenGeneratorProducer(TokenGeneratorEndpoint endpoint) {
-//            super(endpoint);
-//        }
-//
-//        @Override
-//        public void process(Exchange exchange) throws Exception {
-//            // Get the input parameters from the exchange
-//            String appName = exchange.getIn().getHeader("appName", String.class);
-//            String emailId = exchange.getIn().getHeader("emailId", String.class);
-//            String groups = exchange.getIn().getHeader("groups", String.class);
-//            int timeToLive = exchange.getIn().getHeader("timeToLive", Integer.class);
-//            String userId = exchange.getIn().getHeader("userId", String.class);
-//
-//            // Create a JSON payload for the token request
-//            Map<String, Object> payload = new HashMap<>();
-//            payload.put("appName", appName);
-//            payload.put("emailId", emailId);
-//            payload.put("groups", groups);
-//            payload.put("timeToLive", timeToLive);
-//            payload.put("userId", userId);
-//
-//            // Make the REST API call to generate the token
-//            HttpClient client = HttpClientBuilder.create().build();
-//            HttpPost request = new HttpPost(getEndpoint().getEndpointUri() + "/token");
-//            request.setURI(URI.create(getEndpoint().getEndpointUri() + "/token"));
-//            request.setEntity(new StringEntity(payload.toString()));
-//            HttpResponse response = client.execute(request);
-//
-//            // Get the token from the response
-//            HttpEntity entity = response.getEntity();
-//            String token = new String(entity.getContent().readAllBytes());
-//
-//            // Set the token as the output of the exchange
-//            exchange.getOut().setBody(token);
-//        }
-//    }
-//
-//    public static class TokenGeneratorConsumer extends DefaultConsumer {
-//
-//        public TokenGeneratorConsumer(TokenGeneratorEndpoint endpoint, Processor processor) {
-//            super(endpoint, processor);
-//        }
-//
-//        @Override
-//        protected void doStart() throws Exception {
-//            super.doStart();
-//        }
-//
-//        @Override
-//        protected void doStop() throws Exception {
-//            super.doStop();
-//        }
-//    }
-//
-//    public String getTokenEndpoint() {
-//        return tokenEndpoint;
-//    }
-//
-//    public void setTokenEndpoint(String tokenEndpoint) {
-//        this.tokenEndpoint = tokenEndpoint;
-//    }
-//}
\ No newline at end of file
+package org.component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Category;
+import org.apache.camel.Component;
+import org.apache.camel.Consumer;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.Producer;
+import org.apache.camel.RuntimeCamelException;
+import org.apache.camel.spi.UriEndpoint;
+import org.apache.camel.spi.UriParam;
+import org.apache.camel.spi.UriPath;
+import org.apache.camel.support.DefaultAsyncProducer;
+import org.apache.camel.support.DefaultComponent;
+import org.apache.camel.support.DefaultEndpoint;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Fetches authentication tokens for the downstream form submissions from a token service.
+ * <p>
+ * All endpoints share one {@link HttpClient}, which keeps its connections to the token service open between
+ * requests. Tokens are cached per (appName, userId, groups) for their {@code timeToLive} and refreshed in the
+ * background shortly before they expire. Concurrent exchanges asking for the same token while it is being
+ * fetched share that one request.
+ */
+public class TokenGeneratorComponent extends DefaultComponent {
+
+    private String tokenEndpoint;
+    private long connectTimeout = 5000;
+    private HttpClient httpClient;
+
+    @Override
+    protected Endpoint createEndpoint(String uri, String remaining, Map<String, Object> parameters) throws Exception {
+        String url = remaining != null && !remaining.isEmpty() ? remaining : tokenEndpoint;
+        if (url == null) {
+            throw new IllegalArgumentException("The token endpoint must be given in the URI or configured on the component");
+        }
+        TokenGeneratorEndpoint endpoint = new TokenGeneratorEndpoint(uri, this, url);
+        setProperties(endpoint, parameters);
+        return endpoint;
+    }
+
+    /**
+     * The client shared by every endpoint of the component, created on first use.
+     */
+    synchronized HttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofMillis(connectTimeout))
+                    .build();
+        }
+        return httpClient;
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        synchronized (this) {
+            httpClient = null;
+        }
+        super.doStop();
+    }
+
+    public String getTokenEndpoint() {
+        return tokenEndpoint;
+    }
+
+    /**
+     * Base URL of the token service used by endpoints that do not give one in their URI.
+     */
+    public void setTokenEndpoint(String tokenEndpoint) {
+        this.tokenEndpoint = tokenEndpoint;
+    }
+
+    public long getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Milliseconds to wait for a connection to the token service.
+     */
+    public void setConnectTimeout(long connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    @UriEndpoint(scheme = "token-generator", title = "Token Generator", syntax = "token-generator:tokenEndpoint",
+            category = {Category.SECURITY}, producerOnly = true)
+    public static class TokenGeneratorEndpoint extends DefaultEndpoint {
+
+        @UriPath
+        private final String tokenEndpoint;
+        @UriParam(defaultValue = "3600")
+        private int timeToLive = 3600;
+        @UriParam(defaultValue = "60")
+        private int refreshBeforeExpiry = 60;
+        @UriParam(defaultValue = "10000")
+        private long requestTimeout = 10000;
+        @UriParam(defaultValue = "10000")
+        private int maxCachedTokens = 10000;
+
+        private TokenCache tokenCache;
+
+        public TokenGeneratorEndpoint(String uri, Component component, String tokenEndpoint) {
+            super(uri, component);
+            this.tokenEndpoint = tokenEndpoint;
+        }
+
+        @Override
+        public TokenGeneratorComponent getComponent() {
+            return (TokenGeneratorComponent) super.getComponent();
+        }
+
+        @Override
+        public Producer createProducer() throws Exception {
+            return new TokenGeneratorProducer(this);
+        }
+
+        @Override
+        public Consumer createConsumer(Processor processor) throws Exception {
+            throw new UnsupportedOperationException("The token-generator endpoint can only be used as a producer");
+        }
+
+        @Override
+        public boolean isSingleton() {
+            return true;
+        }
+
+        /**
+         * The tokens fetched by every producer of this endpoint, created on first use.
+         */
+        synchronized TokenCache getTokenCache() {
+            if (tokenCache == null) {
+                tokenCache = new TokenCache(refreshBeforeExpiry * 1000L, maxCachedTokens, System::currentTimeMillis);
+            }
+            return tokenCache;
+        }
+
+        public String getTokenEndpoint() {
+            return tokenEndpoint;
+        }
+
+        public int getTimeToLive() {
+            return timeToLive;
+        }
+
+        /**
+         * Seconds a token is valid for when the exchange has no {@code timeToLive} header.
+         */
+        public void setTimeToLive(int timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public int getRefreshBeforeExpiry() {
+            return refreshBeforeExpiry;
+        }
+
+        /**
+         * Seconds before expiry a cached token is refreshed in the background, at most half its time to live.
+         */
+        public void setRefreshBeforeExpiry(int refreshBeforeExpiry) {
+            this.refreshBeforeExpiry = refreshBeforeExpiry;
+        }
+
+        public long getRequestTimeout() {
+            return requestTimeout;
+        }
+
+        /**
+         * Milliseconds to wait for the token service to answer.
+         */
+        public void setRequestTimeout(long requestTimeout) {
+            this.requestTimeout = requestTimeout;
+        }
+
+        public int getMaxCachedTokens() {
+            return maxCachedTokens;
+        }
+
+        /**
+         * Maximum number of tokens kept in the cache.
+         */
+        public void setMaxCachedTokens(int maxCachedTokens) {
+            this.maxCachedTokens = maxCachedTokens;
+        }
+    }
+
+    /**
+     * Sets the token for the {@code appName}, {@code emailId}, {@code groups}, {@code timeToLive} and
+     * {@code userId} headers as the body, without blocking the calling thread while it is fetched.
+     */
+    public static class TokenGeneratorProducer extends DefaultAsyncProducer {
+
+        private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+        private HttpClient httpClient;
+        private TokenCache tokenCache;
+        private URI tokenUri;
+
+        public TokenGeneratorProducer(TokenGeneratorEndpoint endpoint) {
+            super(endpoint);
+        }
+
+        @Override
+        public TokenGeneratorEndpoint getEndpoint() {
+            return (TokenGeneratorEndpoint) super.getEndpoint();
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+            super.doStart();
+            httpClient = getEndpoint().getComponent().getHttpClient();
+            tokenCache = getEndpoint().getTokenCache();
+            tokenUri = URI.create(getEndpoint().getTokenEndpoint() + "/token");
+        }
+
+        @Override
+        public boolean process(Exchange exchange, AsyncCallback callback) {
+            TokenKey key;
+            int timeToLive;
+            String emailId;
+            try {
+                key = new TokenKey(exchange.getIn().getHeader("appName", String.class),
+                        exchange.getIn().getHeader("userId", String.class),
+                        exchange.getIn().getHeader("groups", String.class));
+                emailId = exchange.getIn().getHeader("emailId", String.class);
+                timeToLive = exchange.getIn().getHeader("timeToLive", getEndpoint().getTimeToLive(), Integer.class);
+            } catch (Exception e) {
+                exchange.setException(e);
+                callback.done(true);
+                return true;
+            }
+
+            CompletableFuture<String> token = tokenCache.get(key, k -> requestToken(k, emailId, timeToLive));
+            if (token.isDone()) {
+                complete(exchange, token);
+                callback.done(true);
+                return true;
+            }
+            token.whenComplete((value, error) -> {
+                complete(exchange, token);
+                callback.done(false);
+            });
+            return false;
+        }
+
+        private void complete(Exchange exchange, CompletableFuture<String> token) {
+            try {
+                exchange.getMessage().setBody(token.join());
+            } catch (CompletionException e) {
+                exchange.setException(e.getCause());
+            }
+        }
+
+        private CompletableFuture<TokenCache.CachedToken> requestToken(TokenKey key, String emailId, int timeToLive) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("appName", key.appName());
+            payload.put("emailId", emailId);
+            payload.put("groups", key.groups());
+            payload.put("timeToLive", timeToLive);
+            payload.put("userId", key.userId());
+
+            HttpRequest request;
+            try {
+                request = HttpRequest.newBuilder(tokenUri)
+                        .timeout(Duration.ofMillis(getEndpoint().getRequestTimeout()))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(OBJECT_MAPPER.writeValueAsBytes(payload)))
+                        .build();
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+
+            // the token is valid from the moment it was requested, not from when the answer arrived
+            long requestedAt = tokenCache.now();
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .thenApply(response -> {
+                        if (response.statusCode() / 100 != 2) {
+                            throw new TokenRequestFailedException(response.statusCode(), response.body());
+                        }
+                        return tokenCache.newToken(response.body().trim(), requestedAt, timeToLive * 1000L);
+                    });
+        }
+    }
+
+    /**
+     * What a token is issued for, the email address is only passed along and not part of the key.
+     */
+    record TokenKey(String appName, String userId, String groups) {
+    }
+
+    /**
+     * Cached tokens with their expiry, plus the requests currently fetching one.
+     */
+    static final class TokenCache {
+
+        private final long refreshBeforeExpiry;
+        private final int maxSize;
+        private final LongSupplier clock;
+        private final Map<TokenKey, CachedToken> tokens = new ConcurrentHashMap<>();
+        private final Map<TokenKey, CompletableFuture<CachedToken>> inFlight = new ConcurrentHashMap<>();
+
+        TokenCache(long refreshBeforeExpiry, int maxSize, LongSupplier clock) {
+            this.refreshBeforeExpiry = refreshBeforeExpiry;
+            this.maxSize = maxSize;
+            this.clock = clock;
+        }
+
+        long now() {
+            return clock.getAsLong();
+        }
+
+        CachedToken newToken(String token, long issuedAt, long timeToLive) {
+            long expiresAt = issuedAt + timeToLive;
+            return new CachedToken(token, expiresAt - Math.min(refreshBeforeExpiry, timeToLive / 2), expiresAt);
+        }
+
+        /**
+         * The cached token for the key. A token due for refresh is still returned while a new one is fetched in the
+         * background, an expired or missing token is fetched and every caller asking meanwhile waits on that fetch.
+         */
+        CompletableFuture<String> get(TokenKey key, Function<TokenKey, CompletableFuture<CachedToken>> fetch) {
+            long now = now();
+            CachedToken cached = tokens.get(key);
+            if (cached != null && now < cached.refreshAt()) {
+                return CompletableFuture.completedFuture(cached.token());
+            }
+
+            CompletableFuture<CachedToken> refresh = new CompletableFuture<>();
+            CompletableFuture<CachedToken> running = inFlight.putIfAbsent(key, refresh);
+            if (running == null) {
+                running = refresh;
+                startFetch(key, fetch, refresh);
+            }
+            if (cached != null && now < cached.expiresAt()) {
+                return CompletableFuture.completedFuture(cached.token());
+            }
+            return running.thenApply(CachedToken::token);
+        }
+
+        private void startFetch(TokenKey key, Function<TokenKey, CompletableFuture<CachedToken>> fetch, CompletableFuture<CachedToken> refresh) {
+            CompletableFuture<CachedToken> request;
+            try {
+                request = fetch.apply(key);
+            } catch (RuntimeException e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+            request.whenComplete((token, error) -> {
+                if (token != null) {
+                    tokens.put(key, token);
+                    evictIfFull();
+                }
+                inFlight.remove(key, refresh);
+                if (error != null) {
+                    refresh.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                } else {
+                    refresh.complete(token);
+                }
+            });
+        }
+
+        private void evictIfFull() {
+            if (tokens.size() <= maxSize) {
+                return;
+            }
+            long now = now();
+            tokens.values().removeIf(token -> token.expiresAt() <= now);
+            // still full of live tokens, drop arbitrary ones, they are simply fetched again when needed
+            Iterator<TokenKey> keys = tokens.keySet().iterator();
+            while (tokens.size() > maxSize && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+
+        int size() {
+            return tokens.size();
+        }
+
+        record CachedToken(String token, long refreshAt, long expiresAt) {
+        }
+    }
+
+    /**
+     * The token service answered with an error status.
+     */
+    public static class TokenRequestFailedException extends RuntimeCamelException {
+
+        private final int statusCode;
+
+        public TokenRequestFailedException(int statusCode, String responseBody) {
+            super("Token request failed with status " + statusCode + ": " + responseBody);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+}
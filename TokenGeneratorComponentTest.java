@@ -0,0 +1,157 @@
+package org.component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenGeneratorComponentTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private final AtomicReference<JsonNode> lastPayload = new AtomicReference<>();
+    private volatile int status = 200;
+
+    private HttpServer server;
+    private DefaultCamelContext camelContext;
+    private ProducerTemplate template;
+    private String uri;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/token", exchange -> {
+            int request = tokenRequests.incrementAndGet();
+            lastPayload.set(objectMapper.readTree(exchange.getRequestBody()));
+            try {
+                // slow enough for a burst of exchanges to pile up on one request
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("token-" + request).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent("token-generator", new TokenGeneratorComponent());
+        camelContext.start();
+        template = camelContext.createProducerTemplate();
+        uri = "token-generator:http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        camelContext.stop();
+        server.stop(0);
+    }
+
+    @Test
+    void testSendsJsonPayloadAndReturnsToken() {
+        Exchange exchange = template.send(uri, createExchange("user-1"));
+
+        assertNull(exchange.getException());
+        assertEquals("token-1", exchange.getMessage().getBody(String.class));
+        JsonNode payload = lastPayload.get();
+        assertEquals("forms", payload.get("appName").asText());
+        assertEquals("user-1@example.com", payload.get("emailId").asText());
+        assertEquals("hr", payload.get("groups").asText());
+        assertEquals(600, payload.get("timeToLive").asInt());
+        assertEquals("user-1", payload.get("userId").asText());
+    }
+
+    @Test
+    void testBurstOfExchangesSharesOneTokenRequest() throws Exception {
+        List<CompletableFuture<Exchange>> exchanges = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            exchanges.add(template.asyncSend(uri, createExchange("user-1")));
+        }
+        for (CompletableFuture<Exchange> exchange : exchanges) {
+            assertEquals("token-1", exchange.get(10, TimeUnit.SECONDS).getMessage().getBody(String.class));
+        }
+        assertEquals(1, tokenRequests.get());
+
+        assertEquals("token-2", template.send(uri, createExchange("user-2")).getMessage().getBody(String.class));
+        assertEquals("token-1", template.send(uri, createExchange("user-1")).getMessage().getBody(String.class));
+        assertEquals(2, tokenRequests.get());
+    }
+
+    @Test
+    void testErrorStatusFailsTheExchangeAndIsNotCached() {
+        status = 503;
+        Exchange failed = template.send(uri, createExchange("user-1"));
+        TokenGeneratorComponent.TokenRequestFailedException error =
+                assertInstanceOf(TokenGeneratorComponent.TokenRequestFailedException.class, failed.getException());
+        assertEquals(503, error.getStatusCode());
+
+        status = 200;
+        assertEquals("token-2", template.send(uri, createExchange("user-1")).getMessage().getBody(String.class));
+    }
+
+    @Test
+    void testTokenIsRefreshedBeforeItExpires() {
+        AtomicLong now = new AtomicLong();
+        AtomicInteger fetches = new AtomicInteger();
+        TokenGeneratorComponent.TokenCache cache = new TokenGeneratorComponent.TokenCache(10_000, 100, now::get);
+        TokenGeneratorComponent.TokenKey key = new TokenGeneratorComponent.TokenKey("forms", "user-1", "hr");
+        CompletableFuture<TokenGeneratorComponent.TokenCache.CachedToken> pending = new CompletableFuture<>();
+        Function<TokenGeneratorComponent.TokenKey, CompletableFuture<TokenGeneratorComponent.TokenCache.CachedToken>> fetch = k -> {
+            int n = fetches.incrementAndGet();
+            return n == 1
+                    ? CompletableFuture.completedFuture(cache.newToken("first", now.get(), 60_000))
+                    : pending;
+        };
+
+        assertEquals("first", cache.get(key, fetch).join());
+        now.set(49_999);
+        assertEquals("first", cache.get(key, fetch).join());
+        assertEquals(1, fetches.get());
+
+        // due for refresh: the old token is still served while the new one is fetched, once
+        now.set(50_000);
+        assertEquals("first", cache.get(key, fetch).join());
+        assertEquals("first", cache.get(key, fetch).join());
+        assertEquals(2, fetches.get());
+
+        // expired before the refresh came back: callers wait for it
+        now.set(60_000);
+        CompletableFuture<String> waiting = cache.get(key, fetch);
+        assertFalse(waiting.isDone());
+        pending.complete(cache.newToken("second", 50_000, 60_000));
+        assertEquals("second", waiting.join());
+        assertEquals("second", cache.get(key, fetch).join());
+        assertEquals(2, fetches.get());
+    }
+
+    private Exchange createExchange(String userId) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setHeader("appName", "forms");
+        exchange.getIn().setHeader("emailId", userId + "@example.com");
+        exchange.getIn().setHeader("groups", "hr");
+        exchange.getIn().setHeader("timeToLive", 600);
+        exchange.getIn().setHeader("userId", userId);
+        return exchange;
+    }
+}
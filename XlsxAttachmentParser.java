@@ -0,0 +1,144 @@
+package org.component;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import static org.component.EmailCsvProcessorProducer.EXPECTED_HEADERS;
+
+/**
+ * Parses XLSX attachments with {@link StreamingXlsxParser}, or by loading the whole workbook into an
+ * {@link XSSFWorkbook} when streaming is turned off.
+ */
+final class XlsxAttachmentParser implements AttachmentParser {
+
+    private final boolean streaming;
+    private final Pattern sheets;
+    private final StreamingXlsxParser streamingParser;
+
+    /**
+     * {@code sheets} selects the sheets to read by name, the first sheet only is read when {@code null}. The
+     * streaming parser reads the selected sheets on {@code sheetExecutor}.
+     */
+    XlsxAttachmentParser(boolean streaming, Pattern sheets, ExecutorService sheetExecutor) {
+        this.streaming = streaming;
+        this.sheets = sheets;
+        this.streamingParser = sheets != null ? new StreamingXlsxParser(sheets, sheetExecutor) : new StreamingXlsxParser();
+    }
+
+    @Override
+    public void parse(InputStream inputStream, Consumer<LeaveDetail> sink) throws Exception {
+        if (streaming) {
+            streamingParser.parse(inputStream, sink);
+            return;
+        }
+
+        try (Workbook workbook = new XSSFWorkbook(inputStream)) {
+            parseWorkbook(workbook, sink);
+        }
+    }
+
+    /**
+     * Both parsers open the zip from the file itself.
+     */
+    @Override
+    public void parse(Path file, Consumer<LeaveDetail> sink) throws Exception {
+        if (streaming) {
+            streamingParser.parse(file, sink);
+            return;
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            parseWorkbook(new XSSFWorkbook(pkg), sink);
+        }
+    }
+
+    /**
+     * Parses the first sheet, or every selected sheet one after the other: the workbook is already in memory and
+     * its XML beans are not read faster from several threads.
+     */
+    private void parseWorkbook(Workbook workbook, Consumer<LeaveDetail> sink) {
+        if (sheets == null) {
+            parseSheet(workbook.getSheetAt(0), null, sink);
+            return;
+        }
+        boolean matched = false;
+        for (Sheet sheet : workbook) {
+            if (sheets.matcher(sheet.getSheetName()).matches()) {
+                matched = true;
+                parseSheet(sheet, sheet.getSheetName(), sink);
+            }
+        }
+        if (!matched) {
+            throw new RuntimeException("The workbook has no sheet matching " + sheets.pattern());
+        }
+    }
+
+    private static void parseSheet(Sheet sheet, String sheetName, Consumer<LeaveDetail> sink) {
+        Iterator<Row> rowIterator = sheet.iterator();
+        if (!rowIterator.hasNext()) {
+            throw new EmailCsvProcessorProducer.InvalidAttachmentException(EmailCsvProcessorMetrics.REASON_HEADER_MISMATCH,
+                    StreamingXlsxParser.inSheet(sheetName, "Invalid XLSX header format!"));
+        }
+
+        Row headerRow = rowIterator.next();
+        String[] headers = new String[EXPECTED_HEADERS.length];
+        for (int i = 0; i < headers.length; i++) {
+            // a short header row, such as a notes sheet, is a mismatch rather than a missing cell
+            Cell cell = headerRow.getCell(i);
+            headers[i] = cell != null ? cell.getStringCellValue() : null;
+        }
+        if (!Arrays.equals(headers, EXPECTED_HEADERS)) {
+            throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_HEADER_MISMATCH,
+                    StreamingXlsxParser.inSheet(sheetName, "Invalid XLSX header format!"),
+                    headerRow.getRowNum() + 1, null);
+        }
+
+        while (rowIterator.hasNext()) {
+            Row row = rowIterator.next();
+            long rowNumber = row.getRowNum() + 1;
+            for (int i = 0; i < EXPECTED_HEADERS.length; i++) {
+                Cell cell = row.getCell(i);
+                if (cell == null || cell.getCellType() == CellType.BLANK
+                        || (LeaveCells.valueType(cell) == CellType.STRING && cell.getStringCellValue().isEmpty())) {
+                    throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_MISSING_VALUES,
+                            StreamingXlsxParser.inSheet(sheetName, "XLSX file format is correct but values are missing"), rowNumber, null);
+                }
+            }
+
+            LeaveDetail leaveDetail;
+            try {
+                // typed by column, so numeric ids are not read as "123.0" and date cells not in a display format
+                int employeeId = LeaveCells.intValue(row.getCell(LeaveCells.EMPLOYEE_ID));
+                String employeeName = LeaveCells.stringValue(row.getCell(LeaveCells.EMPLOYEE_NAME));
+                String manager = LeaveCells.stringValue(row.getCell(LeaveCells.MANAGER));
+                LocalDate startDate = LeaveCells.dateValue(row.getCell(LeaveCells.START_DATE));
+                LocalDate endDate = LeaveCells.dateValue(row.getCell(LeaveCells.END_DATE));
+                int noOfHours = LeaveCells.intValue(row.getCell(LeaveCells.NO_OF_HOURS));
+                if (RowDeduplicator.isDuplicate(sink, employeeId, startDate, endDate)) {
+                    continue;
+                }
+                leaveDetail = LeaveDetail.of(employeeId, employeeName, manager, startDate, endDate, noOfHours, sheetName);
+            } catch (NumberFormatException | DateTimeException e) {
+                throw new EmailCsvProcessorProducer.InvalidRowException(EmailCsvProcessorMetrics.REASON_INVALID_FILE,
+                        StreamingXlsxParser.inSheet(sheetName, e.getMessage()), rowNumber, e);
+            }
+            sink.accept(leaveDetail);
+        }
+    }
+}